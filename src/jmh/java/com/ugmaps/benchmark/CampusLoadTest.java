@@ -0,0 +1,351 @@
+package com.ugmaps.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ugmaps.UgCampusNavigatorApplication;
+import com.ugmaps.benchmark.CampusWorkload.Endpoint;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reproduces the morning traffic spike against a local build. Requests of the
+ * {@link CampusWorkload} mix arrive at a fixed rate per stage (an open model: arrivals do not
+ * wait for responses, like students opening the map), with Poisson or uniform gaps. Each
+ * latency is measured from the moment the request was due to be sent, so a stalled server or
+ * load generator shows up as queueing delay instead of being hidden by fewer samples
+ * (coordinated omission). Latencies go into HdrHistogram recorders; the service time from the
+ * actual send is recorded too, for comparison.
+ *
+ * Without {@code --url} the application is started in-process on a random port. The report
+ * lists throughput against p50/p99/p99.9 per rate and is written, together with one .hgrm
+ * percentile file per stage and endpoint, to {@code <output>/<label>/}. {@code --baseline}
+ * takes the summary.csv of an earlier run and prints the change per rate.
+ *
+ * Arguments (all optional): {@code --url=http://localhost:8080 --locations=20000
+ * --mix=locations:5,search:40,nearest:30,bounds:25 --rates=25,50,100,200,400 --stage=30
+ * --warmup=10 --arrivals=poisson --max-in-flight=5000 --profiles=virtual-threads --seed=7
+ * --output=target/load --label=morning --baseline=target/load/before/summary.csv}.
+ */
+public final class CampusLoadTest {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String CSV_HEADER =
+            "rate,endpoint,requests,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,uncorrected_p99_ms,errors,dropped";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.get("url");
+        int locations = Integer.parseInt(options.getOrDefault("locations", "0"));
+        String mix = options.getOrDefault("mix", "locations:5,search:40,nearest:30,bounds:25");
+        String[] rates = options.getOrDefault("rates", "25,50,100,200,400").split(",");
+        int stageSeconds = Integer.parseInt(options.getOrDefault("stage", "30"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        boolean poisson = !"uniform".equals(options.getOrDefault("arrivals", "poisson"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "5000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "7"));
+        Random random = new Random(seed);
+        Path output = Paths.get(options.getOrDefault("output", "target/load"), options.getOrDefault("label",
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))));
+
+        ConfigurableApplicationContext context = url == null ? start(options.get("profiles")) : null;
+        try {
+            String baseUrl = url != null ? url : "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            if (locations > 0) {
+                importSynthetic(client, baseUrl, locations, seed);
+            }
+            ObjectMapper objectMapper = new ObjectMapper();
+            CampusWorkload workload = CampusWorkload.of(mix,
+                    objectMapper.readTree(get(client, baseUrl + "/api/locations")),
+                    objectMapper.readTree(get(client, baseUrl + "/api/locations/type/RESIDENTIAL_HALL")));
+
+            if (warmupSeconds > 0) {
+                run(client, baseUrl, workload, random, Double.parseDouble(rates[0].trim()), warmupSeconds, poisson, maxInFlight);
+            }
+            System.out.printf("%8s %8s %9s %9s %9s %9s %9s %11s %7s %8s%n", "rate/s", "req/s", "p50 ms", "p90 ms",
+                    "p99 ms", "p99.9 ms", "max ms", "p99 uncorr", "errors", "dropped");
+            List<Stage> stages = new ArrayList<>();
+            for (String rate : rates) {
+                Stage stage = run(client, baseUrl, workload, random, Double.parseDouble(rate.trim()), stageSeconds,
+                        poisson, maxInFlight);
+                stages.add(stage);
+                Histogram all = stage.all;
+                System.out.printf(Locale.ROOT, "%8.0f %8.1f %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f %7d %8d%n",
+                        stage.rate, stage.throughput(), millis(all, 50), millis(all, 90), millis(all, 99),
+                        millis(all, 99.9), all.getMaxValue() / 1000.0, millis(stage.uncorrected, 99),
+                        stage.errors.get(), stage.dropped.get());
+            }
+
+            // Where the time goes at the highest rate
+            Stage peak = stages.get(stages.size() - 1);
+            System.out.printf("%nBy endpoint at %.0f/s:%n%-10s %9s %9s %9s %9s%n", peak.rate, "endpoint", "requests",
+                    "p50 ms", "p99 ms", "p99.9 ms");
+            for (Map.Entry<Endpoint, Histogram> entry : peak.byEndpoint.entrySet()) {
+                Histogram histogram = entry.getValue();
+                System.out.printf(Locale.ROOT, "%-10s %9d %9.2f %9.2f %9.2f%n", entry.getKey().label(),
+                        histogram.getTotalCount(), millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9));
+            }
+
+            write(output, stages);
+            System.out.println("\nReport written to " + output.toAbsolutePath());
+            if (options.containsKey("baseline")) {
+                compare(Paths.get(options.get("baseline")), stages);
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String profiles) {
+        // The application must not restart itself under the load generator
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(UgCampusNavigatorApplication.class);
+        if (profiles != null) {
+            builder.profiles(profiles.split(","));
+        }
+        // Command-line arguments, so they win over application.properties
+        return builder.run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:campus-load",
+                "--map.tiles.store-file=${java.io.tmpdir}/ug-campus-load-test-tiles.bin",
+                "--logging.level.root=WARN",
+                "--logging.level.com.ugmaps=WARN",
+                "--logging.level.org.springframework.web=WARN");
+    }
+
+    // Adds synthetic locations through the import endpoint, so an external server gets them too
+    private static void importSynthetic(HttpClient client, String baseUrl, int count, long seed) throws IOException, InterruptedException {
+        Path file = Files.createTempFile("ug-campus-load", ".csv");
+        try {
+            SyntheticLocations.writeCsv(file, count, seed);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/locations/import?format=csv"))
+                    .header("Content-Type", "text/csv")
+                    .timeout(Duration.ofMinutes(10))
+                    .POST(HttpRequest.BodyPublishers.ofFile(file))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Synthetic import failed: " + response.statusCode() + " " + response.body());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static String get(HttpClient client, String url) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " answered " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    // Sends requests at their scheduled times for the stage, then waits for the stragglers
+    private static Stage run(HttpClient client, String baseUrl, CampusWorkload workload, Random random, double rate,
+                             int seconds, boolean poisson, int maxInFlight) throws InterruptedException {
+        Stage stage = new Stage(rate);
+        AtomicInteger inFlight = new AtomicInteger();
+        double meanGapNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long end = start + Duration.ofSeconds(seconds).toNanos();
+        // Kept as a double so rounding does not drift the rate
+        double due = start;
+        while (true) {
+            due += poisson ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            long scheduled = (long) due;
+            if (scheduled - end >= 0) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = workload.next(random);
+            String path = workload.path(endpoint, random);
+            if (inFlight.get() >= maxInFlight) {
+                stage.dropped.incrementAndGet();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            long sent = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long completed = System.nanoTime();
+                        if (failure != null || response.statusCode() != 200) {
+                            stage.errors.incrementAndGet();
+                        } else {
+                            stage.record(endpoint, completed - scheduled, completed - sent);
+                        }
+                        inFlight.decrementAndGet();
+                    });
+        }
+        long dispatched = System.nanoTime();
+        while (inFlight.get() > 0 && System.nanoTime() - dispatched < REQUEST_TIMEOUT.toNanos()) {
+            Thread.sleep(5);
+        }
+        stage.finish(System.nanoTime() - start);
+        return stage;
+    }
+
+    // summary.csv plus an .hgrm percentile distribution (in ms) per stage and endpoint
+    private static void write(Path output, List<Stage> stages) throws IOException {
+        Files.createDirectories(output);
+        List<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        for (Stage stage : stages) {
+            String rate = String.format(Locale.ROOT, "%.0f", stage.rate);
+            lines.add(csvLine(rate, "all", stage.all, stage.throughput(), stage.uncorrected, stage));
+            writeDistribution(output.resolve(rate + "-all.hgrm"), stage.all);
+            for (Map.Entry<Endpoint, Histogram> entry : stage.byEndpoint.entrySet()) {
+                Histogram histogram = entry.getValue();
+                lines.add(csvLine(rate, entry.getKey().label(), histogram,
+                        histogram.getTotalCount() / (stage.elapsedNanos / 1e9), null, null));
+                writeDistribution(output.resolve(rate + "-" + entry.getKey().label() + ".hgrm"), histogram);
+            }
+        }
+        Files.write(output.resolve("summary.csv"), lines);
+    }
+
+    private static String csvLine(String rate, String endpoint, Histogram histogram, double throughput,
+                                  Histogram uncorrected, Stage stage) {
+        StringBuilder line = new StringBuilder(rate).append(',').append(endpoint).append(',')
+                .append(histogram.getTotalCount()).append(',').append(String.format(Locale.ROOT, "%.1f", throughput));
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(Locale.ROOT, ",%.3f", millis(histogram, percentile)));
+        }
+        line.append(String.format(Locale.ROOT, ",%.3f", histogram.getMaxValue() / 1000.0));
+        line.append(uncorrected != null ? String.format(Locale.ROOT, ",%.3f", millis(uncorrected, 99)) : ",");
+        line.append(stage != null ? "," + stage.errors.get() + "," + stage.dropped.get() : ",,");
+        return line.toString();
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    // Change against an earlier summary.csv, matched by rate
+    private static void compare(Path baseline, List<Stage> stages) throws IOException {
+        Map<String, String[]> before = new HashMap<>();
+        for (String line : Files.readAllLines(baseline)) {
+            String[] fields = line.split(",", -1);
+            if ("all".equals(fields[1])) {
+                before.put(fields[0], fields);
+            }
+        }
+        System.out.printf("%nAgainst %s:%n%8s %10s %10s %10s %10s%n", baseline, "rate/s", "req/s", "p50", "p99", "p99.9");
+        for (Stage stage : stages) {
+            String rate = String.format(Locale.ROOT, "%.0f", stage.rate);
+            String[] fields = before.get(rate);
+            if (fields == null) {
+                System.out.printf("%8s %s%n", rate, "not in baseline");
+                continue;
+            }
+            Histogram all = stage.all;
+            System.out.printf(Locale.ROOT, "%8s %10s %10s %10s %10s%n", rate,
+                    change(Double.parseDouble(fields[3]), stage.throughput()),
+                    change(Double.parseDouble(fields[4]), millis(all, 50)),
+                    change(Double.parseDouble(fields[6]), millis(all, 99)),
+                    change(Double.parseDouble(fields[7]), millis(all, 99.9)));
+        }
+    }
+
+    private static String change(double before, double after) {
+        return before == 0 ? "n/a" : String.format(Locale.ROOT, "%+.1f%%", (after / before - 1) * 100);
+    }
+
+    // Latencies are recorded in microseconds
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    // Latencies of one rate: recorders while running, histograms once finished
+    private static final class Stage {
+        final double rate;
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        private final Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+        private final Recorder uncorrectedRecorder = new Recorder(3);
+        final Map<Endpoint, Histogram> byEndpoint = new EnumMap<>(Endpoint.class);
+        Histogram all;
+        Histogram uncorrected;
+        long elapsedNanos;
+
+        Stage(double rate) {
+            this.rate = rate;
+            for (Endpoint endpoint : Endpoint.values()) {
+                recorders.put(endpoint, new Recorder(3));
+            }
+        }
+
+        // Called from the HTTP client's threads
+        void record(Endpoint endpoint, long sinceDueNanos, long sinceSentNanos) {
+            recorders.get(endpoint).recordValue(Math.max(1, sinceDueNanos / 1000));
+            uncorrectedRecorder.recordValue(Math.max(1, sinceSentNanos / 1000));
+        }
+
+        void finish(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+            for (Map.Entry<Endpoint, Recorder> entry : recorders.entrySet()) {
+                Histogram histogram = entry.getValue().getIntervalHistogram();
+                if (histogram.getTotalCount() > 0) {
+                    byEndpoint.put(entry.getKey(), histogram);
+                }
+            }
+            uncorrected = uncorrectedRecorder.getIntervalHistogram();
+            all = new Histogram(3);
+            byEndpoint.values().forEach(all::add);
+        }
+
+        // Successful responses per second, stragglers included
+        double throughput() {
+            return all.getTotalCount() / (elapsedNanos / 1e9);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ugmaps.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The request mix of the morning rush on campus, built from the locations the application
+ * actually serves: full list loads of the map page, search-as-you-type prefixes of real names,
+ * nearest lookups from around the residential halls and map viewports at every zoom level the
+ * web client allows.
+ */
+final class CampusWorkload {
+
+    enum Endpoint {
+        LOCATIONS, SEARCH, NEAREST, BOUNDS;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Zoom range of the web client (app.js), viewport of a 1280x720 browser window
+    private static final int MIN_ZOOM = 14;
+    private static final int MAX_ZOOM = 20;
+    private static final int VIEWPORT_WIDTH = 1280;
+    private static final int VIEWPORT_HEIGHT = 720;
+    // Phones report positions up to ~50 m off; walkers are spread around their hall
+    private static final double HALL_JITTER_DEGREES = 0.001;
+
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+    private final List<String> words;
+    private final List<double[]> halls;
+    private final List<double[]> places;
+
+    private CampusWorkload(Map<Endpoint, Integer> mix, List<String> words, List<double[]> halls, List<double[]> places) {
+        this.endpoints = mix.keySet().toArray(new Endpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += mix.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.words = words;
+        this.halls = halls;
+        this.places = places;
+    }
+
+    /**
+     * Workload over the given locations and residential halls (the JSON arrays returned by
+     * /api/locations and /api/locations/type/RESIDENTIAL_HALL). {@code mix} is a list of
+     * endpoint:weight pairs such as {@code locations:5,search:40,nearest:30,bounds:25}.
+     */
+    static CampusWorkload of(String mix, JsonNode locations, JsonNode residentialHalls) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Endpoint.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix needs at least one endpoint with a positive weight");
+        }
+
+        List<String> words = new ArrayList<>();
+        for (JsonNode location : locations) {
+            for (String word : location.path("name").asText().split("[^\\p{L}]+")) {
+                if (word.length() >= 3) {
+                    words.add(word.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        List<double[]> places = coordinates(locations);
+        List<double[]> halls = coordinates(residentialHalls);
+        if (places.isEmpty() || words.isEmpty()) {
+            throw new IllegalStateException("The application serves no locations to build a workload from");
+        }
+        return new CampusWorkload(weights, words, halls.isEmpty() ? places : halls, places);
+    }
+
+    Endpoint next(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; ; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+    }
+
+    String path(Endpoint endpoint, Random random) {
+        switch (endpoint) {
+            case LOCATIONS:
+                return "/api/locations";
+            case SEARCH: {
+                // What the search box sends after 2 to 6 keystrokes of a real name
+                String word = words.get(random.nextInt(words.size()));
+                String prefix = word.substring(0, Math.min(word.length(), 2 + random.nextInt(5)));
+                return "/api/locations/search?q=" + URLEncoder.encode(prefix, StandardCharsets.UTF_8) + "&limit=10";
+            }
+            case NEAREST: {
+                double[] hall = halls.get(random.nextInt(halls.size()));
+                return String.format(Locale.ROOT, "/api/locations/nearest?lat=%.6f&lon=%.6f&limit=5",
+                        hall[0] + (random.nextDouble() - 0.5) * HALL_JITTER_DEGREES,
+                        hall[1] + (random.nextDouble() - 0.5) * HALL_JITTER_DEGREES);
+            }
+            default: {
+                // A viewport centred on a location, at a random zoom
+                double[] centre = places.get(random.nextInt(places.size()));
+                int zoom = MIN_ZOOM + random.nextInt(MAX_ZOOM - MIN_ZOOM + 1);
+                double lonSpan = VIEWPORT_WIDTH * 360.0 / (256 << zoom);
+                double latSpan = lonSpan * VIEWPORT_HEIGHT / VIEWPORT_WIDTH * Math.cos(Math.toRadians(centre[0]));
+                return String.format(Locale.ROOT, "/api/locations/bounds?minLat=%.6f&maxLat=%.6f&minLon=%.6f&maxLon=%.6f",
+                        centre[0] - latSpan / 2, centre[0] + latSpan / 2, centre[1] - lonSpan / 2, centre[1] + lonSpan / 2);
+            }
+        }
+    }
+
+    private static List<double[]> coordinates(JsonNode locations) {
+        List<double[]> coordinates = new ArrayList<>(locations.size());
+        for (JsonNode location : locations) {
+            coordinates.add(new double[] {location.path("latitude").asDouble(), location.path("longitude").asDouble()});
+        }
+        return coordinates;
+    }
+}
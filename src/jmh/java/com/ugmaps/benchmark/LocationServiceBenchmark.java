@@ -0,0 +1,151 @@
+package com.ugmaps.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ugmaps.UgCampusNavigatorApplication;
+import com.ugmaps.model.ImportResult;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationFormat;
+import com.ugmaps.model.LocationType;
+import com.ugmaps.service.LocationImportService;
+import com.ugmaps.service.LocationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of {@link LocationService} and the JSON encoding of their results, against the
+ * real application context (H2 and the location read model) holding {@code locations} rows: the seeded
+ * campus data (~30 rows) topped up with {@link SyntheticLocations} through the bulk importer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx3g"})
+public class LocationServiceBenchmark {
+
+    private static final int QUERIES = 1024;
+    // About a 450 m square, what the map shows at the default zoom
+    private static final double VIEWPORT_DEGREES = 0.004;
+
+    @Param({"30", "1000", "100000", "1000000"})
+    private int locations;
+
+    private ConfigurableApplicationContext context;
+    private LocationService locationService;
+    private ObjectMapper objectMapper;
+    private double[] queryLats;
+    private double[] queryLons;
+    private List<Location> viewport;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(UgCampusNavigatorApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--map.tiles.store-file=${java.io.tmpdir}/ug-campus-benchmark-tiles.bin",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.ugmaps=WARN",
+                        "--logging.level.org.springframework.web=WARN");
+        locationService = context.getBean(LocationService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        int synthetic = locations - locationService.getAllLocations().size();
+        if (synthetic > 0) {
+            Path file = Files.createTempFile("ug-campus-benchmark", ".csv");
+            try {
+                SyntheticLocations.writeCsv(file, synthetic, locations);
+                try (InputStream input = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+                    ImportResult result = context.getBean(LocationImportService.class)
+                            .importLocations(input, LocationFormat.CSV);
+                    if (result.getFailed() > 0) {
+                        throw new IllegalStateException("Synthetic import failed: " + result);
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        Random random = new Random(42);
+        queryLats = new double[QUERIES];
+        queryLons = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queryLats[i] = SyntheticLocations.randomLatitude(random);
+            queryLons[i] = SyntheticLocations.randomLongitude(random);
+        }
+        viewport = viewportAround(SyntheticLocations.CENTER_LAT, SyntheticLocations.CENTER_LON);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Location> getNearestLocations() {
+        int query = next++ & (QUERIES - 1);
+        return locationService.getNearestLocations(queryLats[query], queryLons[query], 10);
+    }
+
+    // Served from the ATM partition, so it should not grow with the other types
+    @Benchmark
+    public List<Location> getNearestLocationsOfType() {
+        int query = next++ & (QUERIES - 1);
+        return locationService.getNearestLocations(queryLats[query], queryLons[query], LocationType.ATM, 10, null);
+    }
+
+    @Benchmark
+    public List<Location> searchLocations() {
+        String query = SyntheticLocations.QUERIES[next++ % SyntheticLocations.QUERIES.length];
+        return locationService.searchLocations(query, 20);
+    }
+
+    @Benchmark
+    public List<Location> getLocationsWithinBounds() {
+        int query = next++ & (QUERIES - 1);
+        return viewportAround(queryLats[query], queryLons[query]);
+    }
+
+    @Benchmark
+    public List<Location> getLocationsByType() {
+        LocationType[] types = LocationType.values();
+        return locationService.getLocationsByType(types[next++ % types.length]);
+    }
+
+    // Jackson encoding of a /bounds response for the campus centre, without the HTTP layer
+    @Benchmark
+    public void serializeLocations() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), viewport);
+    }
+
+    private List<Location> viewportAround(double latitude, double longitude) {
+        double half = VIEWPORT_DEGREES / 2;
+        return locationService.getLocationsWithinBounds(latitude - half, latitude + half, longitude - half, longitude + half);
+    }
+}
@@ -0,0 +1,87 @@
+package com.ugmaps.benchmark;
+
+import com.ugmaps.index.SpatialIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-neighbour queries against the grid index. Run with {@code -prof gc}:
+ * {@code nearestIntoBuffers} must report a normalised allocation rate of ~0 B/op, while
+ * {@code nearest} pays only for its two result arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+    // University of Ghana, Legon (map.center.*)
+    private static final double CENTER_LAT = 5.6484;
+    private static final double CENTER_LON = -0.1864;
+    private static final double SPREAD_DEGREES = 0.01;
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "100000"})
+    private int locations;
+
+    @Param({"10"})
+    private int k;
+
+    private SpatialIndex index;
+    private double[] queryLats;
+    private double[] queryLons;
+    private long[] ids;
+    private double[] distances;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new SpatialIndex(0.001);
+        for (int i = 0; i < locations; i++) {
+            index.put(i + 1, CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD_DEGREES,
+                    CENTER_LON + (random.nextDouble() - 0.5) * SPREAD_DEGREES, random.nextInt(20));
+        }
+        queryLats = new double[QUERIES];
+        queryLons = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queryLats[i] = CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD_DEGREES;
+            queryLons[i] = CENTER_LON + (random.nextDouble() - 0.5) * SPREAD_DEGREES;
+        }
+        ids = new long[k];
+        distances = new double[k];
+    }
+
+    @Benchmark
+    public int nearestIntoBuffers() {
+        int query = next++ & (QUERIES - 1);
+        return index.nearest(queryLats[query], queryLons[query], k, Double.POSITIVE_INFINITY,
+                SpatialIndex.ANY_CATEGORY, ids, distances);
+    }
+
+    @Benchmark
+    public int nearestOfCategoryIntoBuffers() {
+        int query = next++ & (QUERIES - 1);
+        return index.nearest(queryLats[query], queryLons[query], k, Double.POSITIVE_INFINITY, 3, ids, distances);
+    }
+
+    @Benchmark
+    public long[] nearest() {
+        int query = next++ & (QUERIES - 1);
+        return index.nearest(queryLats[query], queryLons[query], k, Double.POSITIVE_INFINITY);
+    }
+}
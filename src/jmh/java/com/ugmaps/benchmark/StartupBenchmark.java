@@ -0,0 +1,223 @@
+package com.ugmaps.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cold-start comparison of the packaged application: the Spring Boot fat jar, the AppCDS
+ * archive with Spring AOT ({@code mvn -Pcds package}) and the native executable
+ * ({@code mvn -Pnative native:compile}). Each run starts a fresh process on a free port and
+ * polls {@code /api/locations} until it answers at all (time to first response) and until it
+ * returns the seeded locations, then samples the resident set size and stops the process.
+ *
+ * Arguments (all optional): {@code --modes=jar,cds,native --runs=5 --jvm-args=-Xmx256m,-Xms128m
+ * --target=target --artifact=ug-campus-navigator-1.0.0}. JVM modes use the JDK running the
+ * benchmark; the CDS archive only maps with the JDK that trained it. Modes whose artifacts are
+ * missing are skipped. RSS is read from /proc and reported as 0 where that is unavailable.
+ */
+public final class StartupBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(3);
+    private static final long POLL_MILLIS = 10;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String[] modes = options.getOrDefault("modes", "jar,cds,native").split(",");
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        // Same heap limits as the Dockerfile
+        List<String> jvmArgs = Arrays.asList(options.getOrDefault("jvm-args", "-Xmx256m,-Xms128m").split(","));
+        Path target = Paths.get(options.getOrDefault("target", "target")).toAbsolutePath();
+        String artifact = options.getOrDefault("artifact", "ug-campus-navigator-1.0.0");
+        Path logs = Files.createDirectories(target.resolve("startup"));
+
+        System.out.printf("%-7s %5s %17s %17s %15s%n", "mode", "runs", "first resp ms", "seeded ms", "rss MB");
+        System.out.printf("%-7s %5s %17s %17s %15s%n", "", "", "median (min)", "median (min)", "median (max)");
+        for (String mode : modes) {
+            mode = mode.trim();
+            List<String> command = command(mode, target, artifact, jvmArgs);
+            if (command == null) {
+                System.out.println(mode + " skipped: " + missing(mode));
+                continue;
+            }
+            long[] firstResponse = new long[runs];
+            long[] seeded = new long[runs];
+            long[] rss = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                Sample sample = measure(command, logs.resolve(mode + "-" + run + ".log").toFile());
+                firstResponse[run] = sample.firstResponseMillis;
+                seeded[run] = sample.seededMillis;
+                rss[run] = sample.rssKilobytes;
+            }
+            Arrays.sort(firstResponse);
+            Arrays.sort(seeded);
+            Arrays.sort(rss);
+            System.out.printf(Locale.ROOT, "%-7s %5d %9d (%5d) %9d (%5d) %7.0f (%5.0f)%n", mode, runs,
+                    firstResponse[runs / 2], firstResponse[0], seeded[runs / 2], seeded[0],
+                    rss[runs / 2] / 1024.0, rss[runs - 1] / 1024.0);
+        }
+    }
+
+    // Launch command for a mode, or null when its artifacts have not been built
+    private static List<String> command(String mode, Path target, String artifact, List<String> jvmArgs) {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>();
+        switch (mode) {
+            case "jar": {
+                Path jar = target.resolve(artifact + ".jar");
+                if (!Files.isRegularFile(jar)) {
+                    return null;
+                }
+                command.add(java);
+                command.addAll(jvmArgs);
+                command.addAll(List.of("-jar", jar.toString()));
+                return command;
+            }
+            case "cds": {
+                Path directory = target.resolve("cds");
+                if (!Files.isRegularFile(directory.resolve("app.jsa"))) {
+                    return null;
+                }
+                command.add(java);
+                command.addAll(jvmArgs);
+                command.addAll(List.of("-XX:SharedArchiveFile=" + directory.resolve("app.jsa"),
+                        "-Dspring.aot.enabled=true", "-jar", directory.resolve(artifact + "-cds.jar").toString()));
+                return command;
+            }
+            case "native": {
+                Path executable = target.resolve(artifact.substring(0, artifact.lastIndexOf('-')));
+                if (!Files.isExecutable(executable)) {
+                    return null;
+                }
+                command.add(executable.toString());
+                // Only heap limits apply to a native executable
+                for (String arg : jvmArgs) {
+                    if (arg.startsWith("-Xmx") || arg.startsWith("-Xms")) {
+                        command.add(arg);
+                    }
+                }
+                return command;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode + " (jar, cds or native)");
+        }
+    }
+
+    private static String missing(String mode) {
+        switch (mode) {
+            case "jar":
+                return "build it with mvn package";
+            case "cds":
+                return "build it with mvn -Pcds package";
+            default:
+                return "build it with mvn -Pnative native:compile on GraalVM";
+        }
+    }
+
+    private static Sample measure(List<String> command, File log) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> arguments = new ArrayList<>(command);
+        // Command-line arguments, so they win over application.properties
+        arguments.addAll(List.of(
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:startup",
+                "--map.tiles.store-file=" + log.getPath().replace(".log", "-tiles.bin"),
+                "--logging.level.org.springframework.web=WARN"));
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(500))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/locations"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            long firstResponse = -1;
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                HttpResponse<String> response;
+                try {
+                    response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                } catch (IOException notListeningYet) {
+                    Thread.sleep(POLL_MILLIS);
+                    continue;
+                }
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                if (firstResponse < 0) {
+                    firstResponse = elapsed;
+                }
+                // The seed data is written once the server is already accepting requests
+                if (response.statusCode() == 200 && !response.body().equals("[]")) {
+                    return new Sample(firstResponse, elapsed, rssKilobytes(process.pid()));
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            throw new IllegalStateException("No seeded response within " + TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    // Resident set size from /proc (Linux), 0 elsewhere
+    private static long rssKilobytes(long pid) throws IOException {
+        Path status = Paths.get("/proc", Long.toString(pid), "status");
+        if (!Files.isReadable(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private static final class Sample {
+        final long firstResponseMillis;
+        final long seededMillis;
+        final long rssKilobytes;
+
+        Sample(long firstResponseMillis, long seededMillis, long rssKilobytes) {
+            this.firstResponseMillis = firstResponseMillis;
+            this.seededMillis = seededMillis;
+            this.rssKilobytes = rssKilobytes;
+        }
+    }
+}
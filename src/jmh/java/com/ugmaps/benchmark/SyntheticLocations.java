@@ -0,0 +1,74 @@
+package com.ugmaps.benchmark;
+
+import com.ugmaps.model.LocationType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic campus locations around {@code map.center.*}, written as import CSV.
+ * Names and descriptions are drawn from a small campus vocabulary so text search has realistic
+ * hit rates at every dataset size.
+ */
+final class SyntheticLocations {
+
+    // University of Ghana, Legon (map.center.*)
+    static final double CENTER_LAT = 5.6484;
+    static final double CENTER_LON = -0.1864;
+    // Roughly the extent of map.bounds.*
+    static final double SPREAD_DEGREES = 0.02;
+
+    static final String[] QUERIES = {"library", "science hall", "lecture theatre", "cafeteria", "balme"};
+
+    private static final String[] SUBJECTS = {
+        "Science", "Law", "Business", "Engineering", "Physics", "Chemistry", "Economics", "History",
+        "Geography", "Music", "Agriculture", "Nursing", "Pharmacy", "Linguistics", "Statistics"
+    };
+    private static final String[] PLACES = {
+        "Hall", "Library", "Lecture Theatre", "Annex", "Block", "Centre", "Cafeteria", "Auditorium", "Lab"
+    };
+    private static final String[] DESCRIPTIONS = {
+        "Teaching rooms and staff offices", "Reading rooms near the Balme library",
+        "Open late during examinations", "Student common room and study spaces",
+        "Seminar rooms on the ground floor", "Snacks and local dishes"
+    };
+
+    private SyntheticLocations() {
+    }
+
+    static double randomLatitude(Random random) {
+        return CENTER_LAT + (random.nextDouble() - 0.5) * SPREAD_DEGREES;
+    }
+
+    static double randomLongitude(Random random) {
+        return CENTER_LON + (random.nextDouble() - 0.5) * SPREAD_DEGREES;
+    }
+
+    static void writeCsv(Path file, int count, long seed) throws IOException {
+        Random random = new Random(seed);
+        LocationType[] types = LocationType.values();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("name,description,latitude,longitude,type\n");
+            for (int i = 0; i < count; i++) {
+                out.write(SUBJECTS[random.nextInt(SUBJECTS.length)]);
+                out.write(' ');
+                out.write(PLACES[random.nextInt(PLACES.length)]);
+                out.write(' ');
+                out.write(Integer.toString(i));
+                out.write(',');
+                out.write(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]);
+                out.write(',');
+                out.write(Double.toString(randomLatitude(random)));
+                out.write(',');
+                out.write(Double.toString(randomLongitude(random)));
+                out.write(',');
+                out.write(types[random.nextInt(types.length)].name());
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ugmaps.benchmark;
+
+import com.ugmaps.UgCampusNavigatorApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Burst-load comparison of request execution on platform threads (Tomcat's pool) and on virtual
+ * threads (the {@code virtual-threads} profile). Each mode starts the application on a random
+ * port, warms it up, then keeps {@code concurrency} requests in flight for {@code duration}
+ * seconds against a mix of read-model endpoints, and reports throughput
+ * and latency percentiles.
+ *
+ * Arguments (all optional): {@code --modes=platform,virtual --concurrency=1000 --warmup=10
+ * --duration=30}. Virtual threads need Java 21; on older JVMs that mode is skipped.
+ */
+public final class ThreadModelLoadTest {
+
+    private static final int MAX_SAMPLES = 10_000_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String[] modes = options.getOrDefault("modes", "platform,virtual").split(",");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "1000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+
+        // The application must not restart itself under the load generator
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        System.out.printf("%-9s %11s %10s %9s %9s %9s %9s %7s%n",
+                "mode", "concurrency", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        for (String mode : modes) {
+            boolean virtual = "virtual".equals(mode.trim());
+            if (virtual && Runtime.version().feature() < 21) {
+                System.out.println("virtual   skipped: needs Java 21, running on " + Runtime.version());
+                continue;
+            }
+            ConfigurableApplicationContext context = start(virtual);
+            try {
+                String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                run(baseUrl, concurrency, warmup);
+                Result result = run(baseUrl, concurrency, duration);
+                System.out.printf(Locale.ROOT, "%-9s %11d %10.0f %9.1f %9.1f %9.1f %9.1f %7d%n",
+                        virtual ? "virtual" : "platform", concurrency, result.throughput(),
+                        result.percentile(50), result.percentile(90), result.percentile(99), result.percentile(100),
+                        result.errors);
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(UgCampusNavigatorApplication.class);
+        if (virtual) {
+            builder.profiles("virtual-threads");
+        }
+        // Command-line arguments, so they win over application.properties
+        return builder.run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:load-" + (virtual ? "virtual" : "platform"),
+                "--map.tiles.store-file=${java.io.tmpdir}/ug-campus-load-test-tiles.bin",
+                "--logging.level.root=WARN",
+                "--logging.level.com.ugmaps=WARN",
+                "--logging.level.org.springframework.web=WARN");
+    }
+
+    // Keeps `concurrency` requests in flight until the time is up
+    private static Result run(String baseUrl, int concurrency, int seconds) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[MAX_SAMPLES];
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        Random random = new Random(7);
+
+        long start = System.nanoTime();
+        long end = start + Duration.ofSeconds(seconds).toNanos();
+        int started = 0;
+        while (System.nanoTime() < end && started < MAX_SAMPLES) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + randomPath(random)))
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (failure != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else {
+                            int sample = (int) completed.getAndIncrement();
+                            if (sample < MAX_SAMPLES) {
+                                latencies[sample] = System.nanoTime() - sent;
+                            }
+                        }
+                        inFlight.release();
+                    });
+            started++;
+        }
+        // Let the requests still in flight finish so they do not spill into the next run
+        inFlight.acquire(concurrency);
+        long elapsed = System.nanoTime() - start;
+        int samples = (int) Math.min(completed.get(), MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        return new Result(sorted, errors.get(), elapsed);
+    }
+
+    // Mix of spatial (bounds, nearest), search and by-type reads
+    private static String randomPath(Random random) {
+        double lat = SyntheticLocations.randomLatitude(random);
+        double lon = SyntheticLocations.randomLongitude(random);
+        switch (random.nextInt(4)) {
+            case 0:
+                return String.format(Locale.ROOT, "/api/locations/bounds?minLat=%f&maxLat=%f&minLon=%f&maxLon=%f",
+                        lat - 0.002, lat + 0.002, lon - 0.002, lon + 0.002);
+            case 1:
+                return String.format(Locale.ROOT, "/api/locations/nearest?lat=%f&lon=%f&limit=5", lat, lon);
+            case 2:
+                return "/api/locations/search?q=" + SyntheticLocations.QUERIES[random.nextInt(SyntheticLocations.QUERIES.length)]
+                        .replace(' ', '+');
+            default:
+                return "/api/locations/type/LIBRARY";
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private static final class Result {
+        final long[] sortedNanos;
+        final long errors;
+        final long elapsedNanos;
+
+        Result(long[] sortedNanos, long errors, long elapsedNanos) {
+            this.sortedNanos = sortedNanos;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double throughput() {
+            return sortedNanos.length / (elapsedNanos / 1e9);
+        }
+
+        double percentile(double percent) {
+            if (sortedNanos.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percent / 100 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ugmaps.config;
+
+import com.ugmaps.model.ImportResult;
+import com.ugmaps.model.LocationFormat;
+import com.ugmaps.service.LocationImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line bulk import:
+ * {@code java -jar app.jar --import=rooms.csv [--import.format=csv] [--exit-after-import]}
+ */
+@Component
+@Order(10)
+public class BulkImportRunner implements ApplicationRunner {
+    
+    @Autowired
+    private LocationImportService importService;
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption("import")) {
+            return;
+        }
+        for (String file : args.getOptionValues("import")) {
+            Path path = Paths.get(file);
+            LocationFormat format = args.containsOption("import.format")
+                    ? LocationFormat.fromName(args.getOptionValues("import.format").get(0))
+                    : LocationFormat.fromFileName(path.getFileName().toString());
+            
+            System.out.println("Importing " + path + " as " + format + "...");
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+                ImportResult result = importService.importLocations(input, format);
+                System.out.println(result);
+                result.getErrors().forEach(error -> System.out.println("  " + error));
+            }
+        }
+        if (args.containsOption("exit-after-import")) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+}
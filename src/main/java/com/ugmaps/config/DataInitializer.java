@@ -2,23 +2,40 @@ package com.ugmaps.config;
 
 import com.ugmaps.model.Location;
 import com.ugmaps.model.LocationType;
+import com.ugmaps.model.Path;
 import com.ugmaps.service.LocationService;
+import com.ugmaps.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Component
+@Order(1)
 public class DataInitializer implements CommandLineRunner {
     
     @Autowired
     private LocationService locationService;
     
+    @Autowired
+    private RouteService routeService;
+    
+    // Each location gets a placeholder path to this many of its nearest neighbours
+    private static final int PATH_NEIGHBOURS = 4;
+    
     @Override
     public void run(String... args) throws Exception {
         // Only initialize if database is empty
         if (locationService.getAllLocations().isEmpty()) {
             initializeUGCampusLocations();
         }
+        if (routeService.getAllPaths().isEmpty()) {
+            initializeWalkingPaths();
+        }
     }
     
     private void initializeUGCampusLocations() {
@@ -222,4 +239,31 @@ public class DataInitializer implements CommandLineRunner {
         
         System.out.println("Successfully initialized " + locationService.getAllLocations().size() + " campus locations!");
     }
+    
+    private void initializeWalkingPaths() {
+        System.out.println("Initializing placeholder walking paths...");
+        
+        // No surveyed footpath data ships with the app: link every location to its closest neighbours
+        // in a straight line and mark the links synthetic, so routes over them say they are approximate.
+        // Replace them with real paths through /api/routes/paths.
+        Set<String> linked = new HashSet<>();
+        for (Location location : locationService.getAllLocations()) {
+            List<Location> neighbours = locationService.getNearestLocations(
+                    location.getLatitude(), location.getLongitude(), PATH_NEIGHBOURS + 1);
+            for (Location neighbour : neighbours) {
+                if (neighbour.getId().equals(location.getId())) {
+                    continue;
+                }
+                long a = Math.min(location.getId(), neighbour.getId());
+                long b = Math.max(location.getId(), neighbour.getId());
+                if (linked.add(a + "-" + b)) {
+                    Path path = new Path("Placeholder: " + location.getName() + " - " + neighbour.getName(), a, b);
+                    path.setSynthetic(true);
+                    routeService.savePath(path);
+                }
+            }
+        }
+        
+        System.out.println("Initialized " + linked.size() + " straight-line placeholder paths; routes over them are marked synthetic");
+    }
 }
@@ -0,0 +1,47 @@
+package com.ugmaps.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Puts a {@link ConcurrencyLimitingDataSource} in front of the connection pool when
+ * {@code datasource.concurrency-limit} is set (the {@code virtual-threads} profile does).
+ */
+@Configuration
+@ConditionalOnProperty("datasource.concurrency-limit")
+public class DataSourceLimitConfig {
+    
+    @Bean
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(Environment environment,
+                                                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof ConcurrencyLimitingDataSource) {
+                    return bean;
+                }
+                int limit = environment.getRequiredProperty("datasource.concurrency-limit", Integer.class);
+                Duration timeout = environment.getProperty("datasource.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+                ConcurrencyLimitingDataSource limited = new ConcurrencyLimitingDataSource((DataSource) bean, limit, timeout);
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("datasource.limiter.waiting", limited, ConcurrencyLimitingDataSource::getQueueLength)
+                            .description("Callers waiting for a database connection permit")
+                            .register(registry);
+                    Gauge.builder("datasource.limiter.available", limited, ConcurrencyLimitingDataSource::getAvailablePermits)
+                            .description("Free database connection permits")
+                            .register(registry);
+                });
+                return limited;
+            }
+        };
+    }
+}
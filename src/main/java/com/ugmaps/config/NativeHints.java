@@ -0,0 +1,24 @@
+package com.ugmaps.config;
+
+import com.ugmaps.model.ItineraryStop;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationChanges;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection hints for the native image (mvn -Pnative) that Spring AOT cannot derive from the
+ * controllers: types the services read and write with the ObjectMapper directly, and the
+ * static Jackson creator of {@link ItineraryStop}.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+    
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                Location.class, LocationChanges.class);
+        hints.reflection().registerType(ItineraryStop.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
@@ -0,0 +1,32 @@
+package com.ugmaps.controller;
+
+import com.ugmaps.model.BatchQuery;
+import com.ugmaps.model.BatchResult;
+import com.ugmaps.service.BatchQueryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/batch")
+@CrossOrigin(origins = "*")
+public class BatchController {
+    
+    @Autowired
+    private BatchQueryService batchQueryService;
+    
+    @Value("${batch.max-queries:50}")
+    private int maxQueries;
+    
+    // Several nearest/bounds/search/byId/route queries in one round trip; results keep the query order
+    @PostMapping
+    public ResponseEntity<List<BatchResult>> execute(@RequestBody List<BatchQuery> queries) {
+        if (queries.isEmpty() || queries.size() > maxQueries) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(batchQueryService.execute(queries));
+    }
+}
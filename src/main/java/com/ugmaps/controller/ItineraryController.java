@@ -0,0 +1,27 @@
+package com.ugmaps.controller;
+
+import com.ugmaps.model.Itinerary;
+import com.ugmaps.model.ItineraryRequest;
+import com.ugmaps.service.ItineraryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/itinerary")
+@CrossOrigin(origins = "*")
+public class ItineraryController {
+    
+    @Autowired
+    private ItineraryService itineraryService;
+    
+    // Shortest walking order over locations and "any location of a type" stops
+    @PostMapping
+    public ResponseEntity<Itinerary> plan(@RequestBody ItineraryRequest request) {
+        try {
+            return ResponseEntity.ok(itineraryService.plan(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
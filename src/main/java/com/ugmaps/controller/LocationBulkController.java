@@ -0,0 +1,59 @@
+package com.ugmaps.controller;
+
+import com.ugmaps.model.ImportResult;
+import com.ugmaps.model.LocationFormat;
+import com.ugmaps.service.LocationExportService;
+import com.ugmaps.service.LocationImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/locations")
+@CrossOrigin(origins = "*")
+public class LocationBulkController {
+    
+    @Autowired
+    private LocationImportService importService;
+    
+    @Autowired
+    private LocationExportService exportService;
+    
+    // Streams the request body; the format comes from ?format= or the Content-Type
+    @PostMapping("/import")
+    public ResponseEntity<ImportResult> importLocations(
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body) {
+        LocationFormat locationFormat;
+        try {
+            locationFormat = format != null
+                    ? LocationFormat.fromName(format)
+                    : LocationFormat.fromMediaType(MediaType.parseMediaType(contentType));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(415).build();
+        }
+        return ResponseEntity.ok(importService.importLocations(body, locationFormat));
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLocations(@RequestParam(defaultValue = "ndjson") String format) {
+        LocationFormat locationFormat;
+        try {
+            locationFormat = LocationFormat.fromName(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = output -> exportService.exportLocations(locationFormat, output);
+        return ResponseEntity.ok()
+                .contentType(locationFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"locations." + locationFormat.getExtension() + "\"")
+                .body(body);
+    }
+}
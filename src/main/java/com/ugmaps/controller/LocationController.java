@@ -1,29 +1,122 @@
 package com.ugmaps.controller;
 
+import com.ugmaps.metrics.ResultSizeMetrics;
 import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationChanges;
+import com.ugmaps.model.LocationCluster;
+import com.ugmaps.model.LocationFormat;
 import com.ugmaps.model.LocationType;
+import com.ugmaps.model.Reachability;
+import com.ugmaps.model.Suggestion;
+import com.ugmaps.service.AutocompleteService;
+import com.ugmaps.service.LocationChangeLog;
+import com.ugmaps.service.LocationChangeStream;
+import com.ugmaps.service.LocationExportService;
 import com.ugmaps.service.LocationService;
+import com.ugmaps.service.LocationSnapshotService;
+import com.ugmaps.service.ReachabilityService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToLongFunction;
 
 @RestController
 @RequestMapping("/api/locations")
 @CrossOrigin(origins = "*")
 public class LocationController {
     
+    // Media types that switch list endpoints to a row-by-row streamed response
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String GEOJSON = "application/geo+json";
+    
     @Autowired
     private LocationService locationService;
     
+    @Autowired
+    private AutocompleteService autocompleteService;
+    
+    @Autowired
+    private LocationSnapshotService snapshotService;
+    
+    @Autowired
+    private LocationChangeLog changeLog;
+    
+    @Autowired
+    private LocationChangeStream changeStream;
+    
+    @Autowired
+    private LocationExportService exportService;
+    
+    @Autowired
+    private ResultSizeMetrics resultSizeMetrics;
+    
+    @Autowired
+    private ReachabilityService reachabilityService;
+    
+    // Served from a pre-serialized snapshot; clients revalidate with If-None-Match
     @GetMapping
-    public ResponseEntity<List<Location>> getAllLocations() {
-        List<Location> locations = locationService.getAllLocations();
-        return ResponseEntity.ok(locations);
+    public ResponseEntity<byte[]> getAllLocations(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        LocationSnapshotService.Snapshot snapshot = snapshotService.getSnapshot();
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        String etag = gzip ? snapshot.getGzippedEtag() : snapshot.getEtag();
+        
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .eTag(etag);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzippedJson());
+        }
+        return response.body(snapshot.getJson());
+    }
+    
+    @GetMapping(produces = {NDJSON, GEOJSON})
+    public ResponseEntity<StreamingResponseBody> streamAllLocations(
+            @RequestHeader(HttpHeaders.ACCEPT) String accept) {
+        LocationFormat format = streamingFormat(accept);
+        return streaming(format, "/api/locations", output -> exportService.exportLocations(format, output));
+    }
+    
+    // Delta sync: upserts and deletions after the given version
+    @GetMapping("/changes")
+    public ResponseEntity<LocationChanges> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) Long epoch) {
+        return ResponseEntity.ok(changeLog.getChangesSince(since, epoch));
+    }
+    
+    // Server-sent events with the same deltas, pushed as they happen; Last-Event-ID resumes a dropped stream
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamChanges(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParameter) throws IOException {
+        changeStream.subscribe(request, response, lastEventId != null ? lastEventId : lastEventIdParameter);
     }
     
     @GetMapping("/{id}")
@@ -45,11 +138,33 @@ public class LocationController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Location>> searchLocations(@RequestParam(required = false) String q) {
-        List<Location> locations = locationService.searchLocations(q);
+    public ResponseEntity<List<Location>> searchLocations(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer limit) {
+        List<Location> locations = locationService.searchLocations(q, limit);
         return ResponseEntity.ok(locations);
     }
     
+    @GetMapping(value = "/search", produces = {NDJSON, GEOJSON})
+    public ResponseEntity<StreamingResponseBody> streamSearchResults(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(HttpHeaders.ACCEPT) String accept) {
+        LocationFormat format = streamingFormat(accept);
+        if (q == null || q.trim().isEmpty()) {
+            return streaming(format, "/api/locations/search", output -> exportService.exportLocations(format, output));
+        }
+        long[] ids = locationService.searchLocationIds(q, limit != null ? limit : Integer.MAX_VALUE);
+        return streaming(format, "/api/locations/search", output -> exportService.exportLocationsByIds(ids, format, output));
+    }
+    
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<Suggestion>> autocomplete(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(autocompleteService.autocomplete(q, limit));
+    }
+    
     @GetMapping("/bounds")
     public ResponseEntity<List<Location>> getLocationsWithinBounds(
             @RequestParam Double minLat,
@@ -60,15 +175,90 @@ public class LocationController {
         return ResponseEntity.ok(locations);
     }
     
+    @GetMapping(value = "/bounds", produces = {NDJSON, GEOJSON})
+    public ResponseEntity<StreamingResponseBody> streamLocationsWithinBounds(
+            @RequestParam Double minLat,
+            @RequestParam Double maxLat,
+            @RequestParam Double minLon,
+            @RequestParam Double maxLon,
+            @RequestHeader(HttpHeaders.ACCEPT) String accept) {
+        LocationFormat format = streamingFormat(accept);
+        return streaming(format, "/api/locations/bounds", output ->
+                exportService.exportLocationsWithinBounds(minLat, maxLat, minLon, maxLon, format, output));
+    }
+    
+    // bbox is west,south,east,north in degrees
+    @GetMapping("/clusters")
+    public ResponseEntity<List<LocationCluster>> getClusters(
+            @RequestParam String bbox,
+            @RequestParam int zoom) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            return ResponseEntity.badRequest().build();
+        }
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (box[0] > box[2] || box[1] > box[3]) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(locationService.getClusters(box[0], box[1], box[2], box[3], zoom));
+    }
+    
+    // type is optional; when given only locations of that type are considered
     @GetMapping("/nearest")
     public ResponseEntity<List<Location>> getNearestLocations(
             @RequestParam Double lat,
             @RequestParam Double lon,
-            @RequestParam(defaultValue = "10") int limit) {
-        List<Location> locations = locationService.getNearestLocations(lat, lon, limit);
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) Double maxRadius,
+            @RequestParam(required = false) String type) {
+        if (!isCoordinate(lat, lon) || limit <= 0
+                || (maxRadius != null && !(maxRadius > 0 && Double.isFinite(maxRadius)))) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocationType locationType = null;
+        if (type != null) {
+            try {
+                locationType = LocationType.valueOf(type.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        List<Location> locations = locationService.getNearestLocations(lat, lon, locationType, limit, maxRadius);
         return ResponseEntity.ok(locations);
     }
     
+    // Everything within `minutes` of walking from a point, grouped by type; types is an optional comma-separated filter
+    @GetMapping("/reachable")
+    public ResponseEntity<Reachability> getReachable(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam int minutes,
+            @RequestParam(required = false) String types) {
+        if (minutes <= 0 || minutes > reachabilityService.getMaxMinutes()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<LocationType> locationTypes = EnumSet.noneOf(LocationType.class);
+        if (types != null) {
+            try {
+                for (String type : types.split(",")) {
+                    if (!type.isBlank()) {
+                        locationTypes.add(LocationType.valueOf(type.trim().toUpperCase()));
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(reachabilityService.getReachable(lat, lon, minutes, locationTypes));
+    }
+    
     @PostMapping
     public ResponseEntity<Location> createLocation(@Valid @RequestBody Location location) {
         Location savedLocation = locationService.saveLocation(location);
@@ -98,4 +288,36 @@ public class LocationController {
     public ResponseEntity<LocationType[]> getLocationTypes() {
         return ResponseEntity.ok(LocationType.values());
     }
+    
+    @GetMapping("/read-model/stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getReadModelStats() {
+        return ResponseEntity.ok(locationService.getReadModelStats());
+    }
+    
+    // Finite and on the globe; NaN fails every comparison
+    private static boolean isCoordinate(double lat, double lon) {
+        return lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180;
+    }
+    
+    // First streaming format named in the Accept header; the mappings guarantee there is one
+    private static LocationFormat streamingFormat(String accept) {
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            if (LocationFormat.GEOJSON.getMediaType().equalsTypeAndSubtype(mediaType)) {
+                return LocationFormat.GEOJSON;
+            }
+            if (LocationFormat.NDJSON.getMediaType().equalsTypeAndSubtype(mediaType)) {
+                return LocationFormat.NDJSON;
+            }
+        }
+        return LocationFormat.NDJSON;
+    }
+    
+    // The writer returns the number of rows written, recorded under the given uri
+    private ResponseEntity<StreamingResponseBody> streaming(LocationFormat format, String uri,
+                                                           ToLongFunction<OutputStream> writer) {
+        StreamingResponseBody body = output -> resultSizeMetrics.record(uri, writer.applyAsLong(output));
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .body(body);
+    }
 }
@@ -0,0 +1,64 @@
+package com.ugmaps.controller;
+
+import com.ugmaps.model.Path;
+import com.ugmaps.model.Route;
+import com.ugmaps.service.RouteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/routes")
+@CrossOrigin(origins = "*")
+public class RouteController {
+    
+    @Autowired
+    private RouteService routeService;
+    
+    // Route between two locations, or from a coordinate (fromLat/fromLon) to a location
+    @GetMapping
+    public ResponseEntity<Route> getRoute(
+            @RequestParam(required = false) Long from,
+            @RequestParam Long to,
+            @RequestParam(required = false) Double fromLat,
+            @RequestParam(required = false) Double fromLon) {
+        Optional<Route> route;
+        if (from != null) {
+            route = routeService.findRoute(from, to);
+        } else if (fromLat != null && fromLon != null) {
+            route = routeService.findRoute(fromLat, fromLon, to);
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        return route.map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/paths")
+    public ResponseEntity<List<Path>> getAllPaths() {
+        return ResponseEntity.ok(routeService.getAllPaths());
+    }
+    
+    @PostMapping("/paths")
+    public ResponseEntity<Path> createPath(@Valid @RequestBody Path path) {
+        try {
+            Path savedPath = routeService.savePath(path);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedPath);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @DeleteMapping("/paths/{id}")
+    public ResponseEntity<Void> deletePath(@PathVariable Long id) {
+        if (!routeService.deletePath(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.ugmaps.controller;
+
+import com.ugmaps.service.VectorTileService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.zip.CRC32;
+
+@RestController
+@RequestMapping("/tiles")
+@CrossOrigin(origins = "*")
+public class TileController {
+    
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+    
+    @Autowired
+    private VectorTileService tileService;
+    
+    // Campus locations as Mapbox Vector Tiles; clients revalidate with If-None-Match
+    @GetMapping("/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getTile(@PathVariable int z, @PathVariable int x, @PathVariable int y,
+                                          WebRequest request) {
+        byte[] tile = tileService.getTile(z, x, y);
+        if (tile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(tile);
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + tile.length + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MVT)
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(tile);
+    }
+}
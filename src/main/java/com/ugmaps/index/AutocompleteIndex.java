@@ -0,0 +1,272 @@
+package com.ugmaps.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable typo-tolerant autocomplete over short phrases (names, aliases, type names).
+ *
+ * Every word of every phrase is stored once in a trie flattened into primitive arrays
+ * (children of a node are contiguous). Each query token is matched as a prefix within a
+ * small Levenshtein distance by walking the trie with one dynamic-programming row per
+ * level and pruning branches that can no longer get within the bound. Scores are only kept
+ * for the phrases containing a matched word, so a query costs what it matches rather than
+ * the number of phrases.
+ */
+public final class AutocompleteIndex<T> {
+
+    private static final int MAX_WORDS_PER_TOKEN = 512;
+
+    // Flattened trie; node 0 is the root
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] wordAt;
+
+    // Phrases containing each word
+    private final int[][] entriesByWord;
+    private final Entry<T>[] entries;
+
+    private AutocompleteIndex(char[] labels, int[] firstChild, int[] childCount, int[] wordAt,
+                              int[][] entriesByWord, Entry<T>[] entries) {
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.wordAt = wordAt;
+        this.entriesByWord = entriesByWord;
+        this.entries = entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> AutocompleteIndex<T> build(List<Entry<T>> phrases) {
+        Entry<T>[] entries = phrases.toArray(new Entry[0]);
+
+        // Sorted word dictionary with the phrases each word occurs in
+        TreeMap<String, List<Integer>> words = new TreeMap<>();
+        for (int i = 0; i < entries.length; i++) {
+            for (String word : SearchIndex.tokenize(entries[i].text)) {
+                List<Integer> phrasesWithWord = words.computeIfAbsent(word, w -> new ArrayList<>());
+                if (phrasesWithWord.isEmpty() || phrasesWithWord.get(phrasesWithWord.size() - 1) != i) {
+                    phrasesWithWord.add(i);
+                }
+            }
+        }
+
+        BuilderNode root = new BuilderNode();
+        int[][] entriesByWord = new int[words.size()][];
+        int wordIndex = 0;
+        for (Map.Entry<String, List<Integer>> word : words.entrySet()) {
+            BuilderNode node = root;
+            for (char c : word.getKey().toCharArray()) {
+                node = node.children.computeIfAbsent(c, k -> new BuilderNode());
+            }
+            node.word = wordIndex;
+            entriesByWord[wordIndex++] = word.getValue().stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Breadth-first flattening keeps every node's children in one contiguous run
+        List<BuilderNode> order = new ArrayList<>();
+        order.add(root);
+        for (int i = 0; i < order.size(); i++) {
+            order.addAll(order.get(i).children.values());
+        }
+        int nodeCount = order.size();
+        char[] labels = new char[nodeCount];
+        int[] firstChild = new int[nodeCount];
+        int[] childCount = new int[nodeCount];
+        int[] wordAt = new int[nodeCount];
+        int next = 1;
+        for (int i = 0; i < nodeCount; i++) {
+            BuilderNode node = order.get(i);
+            wordAt[i] = node.word;
+            firstChild[i] = next;
+            childCount[i] = node.children.size();
+            for (Map.Entry<Character, BuilderNode> child : node.children.entrySet()) {
+                labels[next++] = child.getKey();
+            }
+        }
+        return new AutocompleteIndex<>(labels, firstChild, childCount, wordAt, entriesByWord, entries);
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Best phrases for a partially typed query. Phrases must match every token unless none
+     * do, in which case phrases matching the most tokens are returned. At most one phrase
+     * per {@link Entry#group} is returned.
+     */
+    public List<Match<T>> complete(String query, int limit) {
+        List<String> tokens = SearchIndex.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0 || entries.length == 0) {
+            return List.of();
+        }
+
+        // Matched token count and total cost per phrase, only for the phrases some token reached
+        Map<Integer, int[]> matches = new HashMap<>();
+        for (String token : tokens) {
+            Map<Integer, Integer> costByWord = matchWords(token, maxEdits(token.length()));
+            // Cheapest word of this token in each phrase
+            Map<Integer, Integer> bestCost = new HashMap<>();
+            for (Map.Entry<Integer, Integer> word : costByWord.entrySet()) {
+                for (int entry : entriesByWord[word.getKey()]) {
+                    bestCost.merge(entry, word.getValue(), Math::min);
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : bestCost.entrySet()) {
+                int[] match = matches.computeIfAbsent(entry.getKey(), e -> new int[2]);
+                match[0]++;
+                match[1] += entry.getValue();
+            }
+        }
+
+        int required = 0;
+        for (int[] match : matches.values()) {
+            required = Math.max(required, match[0]);
+        }
+        if (required == 0) {
+            return List.of();
+        }
+
+        // Phrase order, so ties keep ranking the same way whatever the map's order
+        int[] matched = matches.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        List<Match<T>> candidates = new ArrayList<>();
+        for (int entry : matched) {
+            int[] match = matches.get(entry);
+            if (match[0] == required) {
+                double score = entries[entry].weight * required / tokens.size() - 0.1 * match[1];
+                candidates.add(new Match<>(entries[entry], score, match[1]));
+            }
+        }
+        candidates.sort((a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Integer.compare(a.entry.text.length(), b.entry.text.length());
+        });
+
+        Map<Long, Boolean> seenGroups = new HashMap<>();
+        List<Match<T>> results = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (Match<T> match : candidates) {
+            if (seenGroups.putIfAbsent(match.entry.group, Boolean.TRUE) == null) {
+                results.add(match);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    // Allowed typos grow with the token length: none for 1-2 characters, then one, then two
+    static int maxEdits(int length) {
+        if (length <= 2) {
+            return 0;
+        }
+        return length <= 5 ? 1 : 2;
+    }
+
+    // Words having a prefix within maxEdits of the token, with the edit distance to that prefix
+    private Map<Integer, Integer> matchWords(String token, int maxEdits) {
+        Map<Integer, Integer> costByWord = new HashMap<>();
+        char[] chars = token.toCharArray();
+        int[] row = new int[chars.length + 1];
+        for (int j = 0; j <= chars.length; j++) {
+            row[j] = j;
+        }
+        search(0, chars, row, maxEdits, costByWord);
+        return costByWord;
+    }
+
+    private void search(int node, char[] token, int[] row, int maxEdits, Map<Integer, Integer> costByWord) {
+        int start = firstChild[node];
+        int end = start + childCount[node];
+        for (int child = start; child < end && costByWord.size() < MAX_WORDS_PER_TOKEN; child++) {
+            char label = labels[child];
+            int[] nextRow = new int[row.length];
+            nextRow[0] = row[0] + 1;
+            int rowMinimum = nextRow[0];
+            for (int j = 1; j < row.length; j++) {
+                int substitution = row[j - 1] + (token[j - 1] == label ? 0 : 1);
+                nextRow[j] = Math.min(substitution, Math.min(row[j] + 1, nextRow[j - 1] + 1));
+                rowMinimum = Math.min(rowMinimum, nextRow[j]);
+            }
+            int prefixCost = nextRow[token.length];
+            if (prefixCost <= maxEdits && prefixCost == rowMinimum) {
+                // Row minimums never decrease with depth, so the whole subtree matches at this cost
+                collectWords(child, prefixCost, costByWord);
+            } else if (rowMinimum <= maxEdits) {
+                if (prefixCost <= maxEdits && wordAt[child] >= 0) {
+                    costByWord.merge(wordAt[child], prefixCost, Math::min);
+                }
+                search(child, token, nextRow, maxEdits, costByWord);
+            }
+        }
+    }
+
+    private void collectWords(int node, int cost, Map<Integer, Integer> costByWord) {
+        if (costByWord.size() >= MAX_WORDS_PER_TOKEN) {
+            return;
+        }
+        if (wordAt[node] >= 0) {
+            costByWord.merge(wordAt[node], cost, Math::min);
+        }
+        int start = firstChild[node];
+        for (int child = start; child < start + childCount[node]; child++) {
+            collectWords(child, cost, costByWord);
+        }
+    }
+
+    /**
+     * A phrase that can be suggested. {@code group} identifies what the phrase refers to
+     * (e.g. a location id) so that a name and an alias of the same place are not both
+     * returned; {@code weight} ranks kinds of phrases against each other.
+     */
+    public static final class Entry<T> {
+        private final String text;
+        private final long group;
+        private final double weight;
+        private final T payload;
+
+        public Entry(String text, long group, double weight, T payload) {
+            this.text = text;
+            this.group = group;
+            this.weight = weight;
+            this.payload = payload;
+        }
+
+        public String getText() { return text; }
+
+        public long getGroup() { return group; }
+
+        public double getWeight() { return weight; }
+
+        public T getPayload() { return payload; }
+    }
+
+    public static final class Match<T> {
+        private final Entry<T> entry;
+        private final double score;
+        private final int edits;
+
+        Match(Entry<T> entry, double score, int edits) {
+            this.entry = entry;
+            this.score = score;
+            this.edits = edits;
+        }
+
+        public Entry<T> getEntry() { return entry; }
+
+        public double getScore() { return score; }
+
+        // Total typos corrected to reach this phrase
+        public int getEdits() { return edits; }
+    }
+
+    private static final class BuilderNode {
+        final TreeMap<Character, BuilderNode> children = new TreeMap<>();
+        int word = -1;
+    }
+}
@@ -0,0 +1,288 @@
+package com.ugmaps.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical point clusters for map viewports, one level per zoom.
+ *
+ * At every zoom level the Web Mercator plane is cut into square cells of {@code radius}
+ * screen pixels and each cell aggregates the points inside it (count, centroid and a count
+ * per category). A point lives in exactly one cell per level, so inserts, moves and removals
+ * cost one cell update per level. A viewport query only visits the cells it overlaps, which
+ * is bounded by the screen size rather than the number of points. Beyond {@code maxZoom}
+ * points are returned individually.
+ *
+ * Like {@link SpatialIndex} it has no locking: one thread changes it, then any number read
+ * it. {@link #copy()} shares the cells and points with the original until the copy changes
+ * them, so it costs a constant per zoom level however many points there are.
+ */
+public class ClusterIndex {
+
+    private static final int TILE_SIZE = 256;
+
+    private final int maxZoom;
+    private final int categoryCount;
+    private final double[] cellSizes;
+    private final List<LongTrieMap<Cell>> levels = new ArrayList<>();
+    private final LongTrieMap<Point> points;
+    // Marks the cells this index may change in place; a bare object, so that they do not keep
+    // an earlier version alive
+    private Object owner = new Object();
+
+    private ClusterIndex(ClusterIndex original) {
+        this.maxZoom = original.maxZoom;
+        this.categoryCount = original.categoryCount;
+        this.cellSizes = original.cellSizes;
+        for (LongTrieMap<Cell> cells : original.levels) {
+            levels.add(cells.copy());
+        }
+        this.points = original.points.copy();
+    }
+
+    public ClusterIndex(int maxZoom, double radiusPixels, int categoryCount) {
+        if (maxZoom < 0 || maxZoom > 20) {
+            throw new IllegalArgumentException("Max zoom must be between 0 and 20: " + maxZoom);
+        }
+        if (!(radiusPixels > 0)) {
+            throw new IllegalArgumentException("Cluster radius must be positive: " + radiusPixels);
+        }
+        this.maxZoom = maxZoom;
+        this.categoryCount = categoryCount;
+        this.cellSizes = new double[maxZoom + 1];
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            cellSizes[zoom] = radiusPixels / (TILE_SIZE * Math.pow(2, zoom));
+            levels.add(new LongTrieMap<>());
+        }
+        this.points = new LongTrieMap<>();
+    }
+
+    // Independent index with the same points; cells are copied when the copy first changes them
+    public ClusterIndex copy() {
+        // The shared cells now belong to neither index, so each copies them before a change
+        owner = new Object();
+        return new ClusterIndex(this);
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    // Insert a point, or move/recategorise it if the id is already indexed
+    public void put(long id, double latitude, double longitude, int category) {
+        if (category < 0 || category >= categoryCount) {
+            throw new IllegalArgumentException("Unknown category: " + category);
+        }
+        Point point = new Point(latitude, longitude, WebMercator.x(longitude), WebMercator.y(latitude), category);
+        Point previous = points.put(id, point);
+        if (previous != null) {
+            update(id, previous, -1);
+        }
+        update(id, point, 1);
+    }
+
+    public boolean remove(long id) {
+        Point previous = points.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        update(id, previous, -1);
+        return true;
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Clusters whose cell overlaps the given box at the given zoom. Zooms above
+     * {@code maxZoom} return the individual points.
+     */
+    public List<Cluster> clusters(double west, double south, double east, double north, int zoom) {
+        int level = Math.max(0, Math.min(zoom, maxZoom));
+        boolean expand = zoom > maxZoom;
+        double cellSize = cellSizes[level];
+        long minX = (long) Math.floor(WebMercator.x(west) / cellSize);
+        long maxX = (long) Math.floor(WebMercator.x(east) / cellSize);
+        // Mercator y grows southwards
+        long minY = (long) Math.floor(WebMercator.y(north) / cellSize);
+        long maxY = (long) Math.floor(WebMercator.y(south) / cellSize);
+
+        LongTrieMap<Cell> cells = levels.get(level);
+        List<Cluster> clusters = new ArrayList<>();
+        long width = maxX - minX + 1;
+        long height = maxY - minY + 1;
+        if (width * height <= cells.size()) {
+            for (long x = minX; x <= maxX; x++) {
+                for (long y = minY; y <= maxY; y++) {
+                    Cell cell = cells.get(cellKey(x, y));
+                    if (cell != null) {
+                        collect(cell, expand, west, south, east, north, clusters);
+                    }
+                }
+            }
+        } else {
+            // Box larger than the occupied area: scanning the occupied cells is cheaper
+            cells.forEach((cell, key) -> {
+                long x = key >> 32;
+                long y = (int) key;
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    collect(cell, expand, west, south, east, north, clusters);
+                }
+            });
+        }
+        return clusters;
+    }
+
+    private void update(long id, Point point, int sign) {
+        for (int level = 0; level < levels.size(); level++) {
+            LongTrieMap<Cell> cells = levels.get(level);
+            long key = cellKey((long) Math.floor(point.x / cellSizes[level]), (long) Math.floor(point.y / cellSizes[level]));
+            Cell cell = cells.get(key);
+            if (cell == null || cell.owner != owner) {
+                cell = cell == null ? new Cell(owner, categoryCount) : cell.copy(owner);
+                cells.put(key, cell);
+            }
+            cell.add(id, point, sign, level == maxZoom);
+            if (cell.count == 0) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    // The cell as one cluster, or its points one by one when zoomed in past maxZoom
+    private void collect(Cell cell, boolean expand, double west, double south, double east, double north,
+                         List<Cluster> clusters) {
+        if (!expand || cell.count == 1) {
+            clusters.add(toCluster(cell));
+            return;
+        }
+        for (int i = 0; i < cell.count; i++) {
+            long id = cell.members[i];
+            Point point = points.get(id);
+            if (point.latitude >= south && point.latitude <= north && point.longitude >= west && point.longitude <= east) {
+                int[] categoryCounts = new int[categoryCount];
+                categoryCounts[point.category] = 1;
+                clusters.add(new Cluster(point.latitude, point.longitude, 1, categoryCounts, id));
+            }
+        }
+    }
+
+    // A lone point is reported at its exact position rather than the running-sum centroid
+    private Cluster toCluster(Cell cell) {
+        if (cell.count == 1) {
+            Point point = points.get(cell.idSum);
+            if (point != null) {
+                return new Cluster(point.latitude, point.longitude, 1, cell.categoryCounts.clone(), cell.idSum);
+            }
+        }
+        return new Cluster(cell.latitudeSum / cell.count, cell.longitudeSum / cell.count, cell.count,
+                cell.categoryCounts.clone(), -1);
+    }
+
+    private static long cellKey(long cellX, long cellY) {
+        return (cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private static final class Point {
+        final double latitude;
+        final double longitude;
+        final double x;
+        final double y;
+        final int category;
+
+        Point(double latitude, double longitude, double x, double y, int category) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.x = x;
+            this.y = y;
+            this.category = category;
+        }
+    }
+
+    // Running sums of the points in one cell; with a single point the id sum is its id.
+    // Cells of the finest level also list their members so they can be expanded.
+    // Only the owning index changes a cell; copies of the index clone it first.
+    private static final class Cell {
+        final Object owner;
+        final int[] categoryCounts;
+        int count;
+        double latitudeSum;
+        double longitudeSum;
+        long idSum;
+        long[] members;
+
+        Cell(Object owner, int categoryCount) {
+            this.owner = owner;
+            this.categoryCounts = new int[categoryCount];
+        }
+
+        private Cell(Object owner, Cell original) {
+            this.owner = owner;
+            this.categoryCounts = original.categoryCounts.clone();
+            this.count = original.count;
+            this.latitudeSum = original.latitudeSum;
+            this.longitudeSum = original.longitudeSum;
+            this.idSum = original.idSum;
+            this.members = original.members != null ? original.members.clone() : null;
+        }
+
+        Cell copy(Object newOwner) {
+            return new Cell(newOwner, this);
+        }
+
+        void add(long id, Point point, int sign, boolean trackMembers) {
+            if (trackMembers) {
+                if (sign > 0) {
+                    if (members == null) {
+                        members = new long[4];
+                    } else if (count == members.length) {
+                        members = Arrays.copyOf(members, count * 2);
+                    }
+                    members[count] = id;
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        if (members[i] == id) {
+                            members[i] = members[count - 1];
+                            break;
+                        }
+                    }
+                }
+            }
+            count += sign;
+            latitudeSum += sign * point.latitude;
+            longitudeSum += sign * point.longitude;
+            idSum += sign * id;
+            categoryCounts[point.category] += sign;
+        }
+    }
+
+    public static final class Cluster {
+        private final double latitude;
+        private final double longitude;
+        private final int count;
+        private final int[] categoryCounts;
+        private final long pointId;
+
+        Cluster(double latitude, double longitude, int count, int[] categoryCounts, long pointId) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.count = count;
+            this.categoryCounts = categoryCounts;
+            this.pointId = pointId;
+        }
+
+        // Centroid of the clustered points
+        public double getLatitude() { return latitude; }
+
+        public double getLongitude() { return longitude; }
+
+        public int getCount() { return count; }
+
+        public int[] getCategoryCounts() { return categoryCounts; }
+
+        // Id of the only point in the cluster, or -1 when it holds several
+        public long getPointId() { return pointId; }
+    }
+}
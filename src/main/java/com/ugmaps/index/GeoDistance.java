@@ -0,0 +1,34 @@
+package com.ugmaps.index;
+
+/**
+ * Great-circle distances on the WGS84 mean sphere, in metres.
+ *
+ * {@link #haversine} is exact on the sphere. The equirectangular kernel flattens the
+ * sphere around the query latitude; at campus scale (a few kilometres) they stay well
+ * under a metre off while costing one multiply-add per axis, which is what the
+ * nearest-neighbour scan needs. Comparisons should use the squared form to skip the root.
+ */
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_METRES = 6_371_008.8;
+    public static final double METRES_PER_DEGREE = Math.toRadians(1.0) * EARTH_RADIUS_METRES;
+
+    private GeoDistance() {
+    }
+
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinDLat = Math.sin((phi2 - phi1) * 0.5);
+        double sinDLon = Math.sin(Math.toRadians(lon2 - lon1) * 0.5);
+        double a = sinDLat * sinDLat + Math.cos(phi1) * Math.cos(phi2) * sinDLon * sinDLon;
+        return 2 * EARTH_RADIUS_METRES * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // Squared distance with the cosine of lat1 precomputed by the caller
+    public static double equirectangularSquared(double lat1, double lon1, double cosLat1, double lat2, double lon2) {
+        double dLat = (lat2 - lat1) * METRES_PER_DEGREE;
+        double dLon = (lon2 - lon1) * METRES_PER_DEGREE * cosLat1;
+        return dLat * dLat + dLon * dLon;
+    }
+}
@@ -0,0 +1,276 @@
+package com.ugmaps.index;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Hash trie from primitive long keys to non-null values whose copies share structure.
+ *
+ * Keys are spread by a multiplicative hash whose bits, five at a time, pick one of 32 slots
+ * in a node. A slot holds either one entry inline or a child node for the keys that share
+ * the slot; nodes store only their occupied slots, compacted behind two bitmaps, so a node
+ * costs what it holds rather than 32 references. {@link #copy()} takes constant time: the
+ * copy shares every node with the original and a change copies only the nodes on the path
+ * to the entry it touches, so the next version of a large map costs what its changes touch
+ * rather than its size. Lookups never box keys.
+ *
+ * Like the indexes built on it there is no locking: one thread changes a map and, once it is
+ * no longer changed, any number of threads read it. After a copy either map may be changed
+ * without the other seeing it.
+ */
+public final class LongTrieMap<V> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final long[] NO_KEYS = new long[0];
+    private static final Object[] NO_OBJECTS = new Object[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    // Marks the nodes this map may change in place; a bare object, so that they do not keep
+    // an earlier version alive
+    private Object owner = new Object();
+    private Node root = new Node(null);
+    private int size;
+
+    // Same entries, sharing every node until one of the two maps changes it
+    public LongTrieMap<V> copy() {
+        // The shared nodes now belong to neither map, so each copies them before a change
+        owner = new Object();
+        LongTrieMap<V> copy = new LongTrieMap<>();
+        copy.root = root;
+        copy.size = size;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = hash(key);
+        Node node = root;
+        for (int depth = 0; ; depth++) {
+            int bit = bit(hash, depth);
+            if ((node.dataMap & bit) != 0) {
+                int at = node.dataIndex(bit);
+                return node.keys[at] == key ? (V) node.values[at] : null;
+            }
+            if ((node.nodeMap & bit) == 0) {
+                return null;
+            }
+            node = node.children[node.childIndex(bit)];
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    // Previous value under the key, or null
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Values must not be null");
+        }
+        Object[] previous = new Object[1];
+        root = insert(root, key, hash(key), 0, value, previous);
+        if (previous[0] == null) {
+            size++;
+        }
+        return (V) previous[0];
+    }
+
+    // Removed value, or null when the key was absent
+    public V remove(long key) {
+        V previous = get(key);
+        if (previous != null) {
+            root = delete(root, key, hash(key), 0);
+            size--;
+        }
+        return previous;
+    }
+
+    // Every entry as (value, key), in no particular order
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjLongConsumer<? super V> action) {
+        forEach(root, (ObjLongConsumer<Object>) action);
+    }
+
+    private static void forEach(Node node, ObjLongConsumer<Object> action) {
+        for (int i = 0; i < node.keys.length; i++) {
+            action.accept(node.values[i], node.keys[i]);
+        }
+        for (Node child : node.children) {
+            forEach(child, action);
+        }
+    }
+
+    // The node with the entry set, its path owned by this map
+    private Node insert(Node node, long key, long hash, int depth, Object value, Object[] previous) {
+        int bit = bit(hash, depth);
+        if ((node.dataMap & bit) != 0) {
+            int at = node.dataIndex(bit);
+            if (node.keys[at] == key) {
+                previous[0] = node.values[at];
+                node = writable(node);
+                node.values[at] = value;
+                return node;
+            }
+            // Two keys in one slot: both move into a child node
+            Node child = pair(node.keys[at], node.values[at], hash(node.keys[at]), key, value, hash, depth + 1);
+            node = writable(node);
+            node.removeData(bit);
+            node.insertChild(bit, child);
+            return node;
+        }
+        if ((node.nodeMap & bit) != 0) {
+            int at = node.childIndex(bit);
+            Node child = insert(node.children[at], key, hash, depth + 1, value, previous);
+            if (child != node.children[at]) {
+                node = writable(node);
+                node.children[at] = child;
+            }
+            return node;
+        }
+        node = writable(node);
+        node.insertData(bit, key, value);
+        return node;
+    }
+
+    // A node holding two entries whose hashes agree up to the given depth
+    private Node pair(long key1, Object value1, long hash1, long key2, Object value2, long hash2, int depth) {
+        Node node = new Node(owner);
+        int bit1 = bit(hash1, depth);
+        int bit2 = bit(hash2, depth);
+        if (bit1 == bit2) {
+            node.insertChild(bit1, pair(key1, value1, hash1, key2, value2, hash2, depth + 1));
+        } else {
+            node.insertData(bit1, key1, value1);
+            node.insertData(bit2, key2, value2);
+        }
+        return node;
+    }
+
+    // The node without the (present) key; a child left with a single entry is folded back into its parent
+    private Node delete(Node node, long key, long hash, int depth) {
+        int bit = bit(hash, depth);
+        node = writable(node);
+        if ((node.dataMap & bit) != 0) {
+            node.removeData(bit);
+            return node;
+        }
+        int at = node.childIndex(bit);
+        Node child = delete(node.children[at], key, hash, depth + 1);
+        if (child.nodeMap == 0 && child.keys.length == 1) {
+            node.removeChild(bit);
+            node.insertData(bit, child.keys[0], child.values[0]);
+        } else {
+            node.children[at] = child;
+        }
+        return node;
+    }
+
+    private Node writable(Node node) {
+        return node.owner == owner ? node : new Node(owner, node);
+    }
+
+    // Bijective on longs, so two keys always differ in some hash bit
+    private static long hash(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    // Slot of a node at the given depth: the hash bits from the top down, the last level
+    // taking the remaining low bits
+    private static int bit(long hash, int depth) {
+        int shift = Math.max(0, 64 - BITS * (depth + 1));
+        return 1 << ((int) (hash >>> shift) & (WIDTH - 1));
+    }
+
+    // Occupied slots in slot order: entries in keys/values, child nodes in children.
+    // Only the owning map changes a node; other maps copy it first.
+    private static final class Node {
+        final Object owner;
+        int dataMap;
+        int nodeMap;
+        long[] keys;
+        Object[] values;
+        Node[] children;
+
+        Node(Object owner) {
+            this.owner = owner;
+            this.keys = NO_KEYS;
+            this.values = NO_OBJECTS;
+            this.children = NO_CHILDREN;
+        }
+
+        Node(Object owner, Node original) {
+            this.owner = owner;
+            this.dataMap = original.dataMap;
+            this.nodeMap = original.nodeMap;
+            this.keys = original.keys.clone();
+            this.values = original.values.clone();
+            this.children = original.children.clone();
+        }
+
+        int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        int childIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        void insertData(int bit, long key, Object value) {
+            int at = dataIndex(bit);
+            int count = keys.length;
+            long[] newKeys = new long[count + 1];
+            Object[] newValues = new Object[count + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(values, 0, newValues, 0, at);
+            newKeys[at] = key;
+            newValues[at] = value;
+            System.arraycopy(keys, at, newKeys, at + 1, count - at);
+            System.arraycopy(values, at, newValues, at + 1, count - at);
+            keys = newKeys;
+            values = newValues;
+            dataMap |= bit;
+        }
+
+        void removeData(int bit) {
+            int at = dataIndex(bit);
+            int count = keys.length;
+            long[] newKeys = new long[count - 1];
+            Object[] newValues = new Object[count - 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(values, 0, newValues, 0, at);
+            System.arraycopy(keys, at + 1, newKeys, at, count - at - 1);
+            System.arraycopy(values, at + 1, newValues, at, count - at - 1);
+            keys = newKeys;
+            values = newValues;
+            dataMap &= ~bit;
+        }
+
+        void insertChild(int bit, Node child) {
+            int at = childIndex(bit);
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newChildren[at] = child;
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            children = newChildren;
+            nodeMap |= bit;
+        }
+
+        void removeChild(int bit) {
+            int at = childIndex(bit);
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(children, at + 1, newChildren, at, children.length - at - 1);
+            children = newChildren;
+            nodeMap &= ~bit;
+        }
+    }
+}
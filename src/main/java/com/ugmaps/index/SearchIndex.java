@@ -0,0 +1,473 @@
+package com.ugmaps.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over a name and a description field with BM25 ranking.
+ *
+ * Query tokens match whole terms, terms they are a prefix of (typeahead) and, failing
+ * both, terms that contain them (found through a trigram index over the dictionary), so
+ * "lib", "library" and "wealth" all behave the way users expect from the search box.
+ * Documents are added, replaced and removed one at a time.
+ *
+ * Like {@link SpatialIndex} it has no locking: one thread changes it, then any number read
+ * it. {@link #copy()} shares everything with the original until the copy changes it, and
+ * every structure is split so that a change copies only the part it touches: the sorted
+ * dictionary into chunks of at most {@code MAX_CHUNK} terms, postings into blocks, and
+ * documents and the terms of each trigram into hash tries.
+ */
+public class SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_BOOST = 2.0;
+    private static final double PREFIX_WEIGHT = 0.7;
+    private static final double INFIX_WEIGHT = 0.4;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int MAX_CHUNK = 256;
+    private static final int BLOCK_SHIFT = 7;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    // Consecutive runs of the sorted dictionary, each under its first term
+    private TreeMap<String, Chunk> dictionary = new TreeMap<>();
+    // Terms containing each trigram, by term id
+    private LongTrieMap<TermSet> termsByTrigram = new LongTrieMap<>();
+    private LongTrieMap<Document> documents = new LongTrieMap<>();
+    // Marks the chunks, postings and term sets this index may change in place; a bare object, so that they do not keep
+    // an earlier version alive
+    private Object owner = new Object();
+    private long nextTermId;
+    private long totalNameLength;
+    private long totalDescriptionLength;
+
+    // Independent index with the same documents; chunks, postings and term sets are copied when the copy first changes them
+    public SearchIndex copy() {
+        // The shared chunks, postings and term sets now belong to neither index, so each copies them before a change
+        owner = new Object();
+        SearchIndex copy = new SearchIndex();
+        copy.dictionary = new TreeMap<>(dictionary);
+        copy.termsByTrigram = termsByTrigram.copy();
+        copy.documents = documents.copy();
+        copy.nextTermId = nextTermId;
+        copy.totalNameLength = totalNameLength;
+        copy.totalDescriptionLength = totalDescriptionLength;
+        return copy;
+    }
+
+    // Index a document, replacing any previous version with the same id
+    public void put(long id, String name, String description) {
+        List<String> nameTokens = tokenize(name);
+        List<String> descriptionTokens = tokenize(description);
+
+        Map<String, int[]> frequencies = new HashMap<>();
+        for (String token : nameTokens) {
+            frequencies.computeIfAbsent(token, t -> new int[2])[0]++;
+        }
+        for (String token : descriptionTokens) {
+            frequencies.computeIfAbsent(token, t -> new int[2])[1]++;
+        }
+
+        removeDocument(id);
+        for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+            String term = entry.getKey();
+            Chunk chunk = writableChunk(term);
+            Postings postings = chunk.get(term);
+            if (postings == null) {
+                postings = new Postings(owner, nextTermId++);
+                chunk.put(term, postings);
+                for (long trigram : trigrams(term)) {
+                    writableTerms(trigram).terms.put(postings.termId, term);
+                }
+                splitIfFull(chunk);
+            } else if (postings.owner != owner) {
+                postings = new Postings(owner, postings);
+                chunk.put(term, postings);
+            }
+            postings.add(id, entry.getValue()[0], entry.getValue()[1]);
+        }
+        documents.put(id, new Document(frequencies.keySet().toArray(new String[0]),
+                nameTokens.size(), descriptionTokens.size()));
+        totalNameLength += nameTokens.size();
+        totalDescriptionLength += descriptionTokens.size();
+    }
+
+    public boolean remove(long id) {
+        return removeDocument(id);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Ids of the documents matching any query token, best BM25 score first, at most
+     * {@code limit} of them.
+     */
+    public long[] search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+
+        int documentCount = documents.size();
+        if (documentCount == 0) {
+            return new long[0];
+        }
+        double averageNameLength = Math.max(1.0, (double) totalNameLength / documentCount);
+        double averageDescriptionLength = Math.max(1.0, (double) totalDescriptionLength / documentCount);
+
+        Map<Long, double[]> scores = new HashMap<>();
+        for (String token : new LinkedHashSet<>(tokens)) {
+            for (Map.Entry<String, Double> match : expand(token).entrySet()) {
+                Postings postings = postings(match.getKey());
+                double idf = Math.log(1 + (documentCount - postings.size + 0.5) / (postings.size + 0.5));
+                double weight = idf * match.getValue();
+                for (int i = 0; i < postings.size; i++) {
+                    Block block = postings.blocks[i >> BLOCK_SHIFT];
+                    int at = i & (BLOCK_SIZE - 1);
+                    Document document = documents.get(block.documentIds[at]);
+                    double score = NAME_BOOST * saturate(block.nameFrequencies[at], document.nameLength, averageNameLength)
+                            + saturate(block.descriptionFrequencies[at], document.descriptionLength, averageDescriptionLength);
+                    scores.computeIfAbsent(block.documentIds[at], d -> new double[1])[0] += weight * score;
+                }
+            }
+        }
+
+        List<Map.Entry<Long, double[]>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Double.compare(b.getValue()[0], a.getValue()[0]);
+            return byScore != 0 ? byScore : Long.compare(a.getKey(), b.getKey());
+        });
+        long[] ids = new long[Math.min(limit, ranked.size())];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ranked.get(i).getKey();
+        }
+        return ids;
+    }
+
+    // Lower-cased, accent-free alphanumeric runs
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Dictionary terms matched by a query token, with the weight of each kind of match
+    private Map<String, Double> expand(String token) {
+        Map<String, Double> matches = new HashMap<>();
+        // Terms with the token as prefix are consecutive, starting in the token's chunk
+        String start = dictionary.floorKey(token);
+        search:
+        for (Chunk chunk : dictionary.tailMap(start != null ? start : token).values()) {
+            for (String term : chunk.tailMap(token).keySet()) {
+                if (!term.startsWith(token)) {
+                    break search;
+                }
+                matches.put(term, term.equals(token) ? 1.0 : PREFIX_WEIGHT);
+                if (matches.size() == MAX_EXPANSIONS) {
+                    break search;
+                }
+            }
+        }
+        if (matches.isEmpty() && token.length() >= 3) {
+            // Every term containing the token is among the terms of its rarest trigram
+            TermSet rarest = null;
+            for (long trigram : trigrams(token)) {
+                TermSet terms = termsByTrigram.get(trigram);
+                if (terms == null) {
+                    return matches;
+                }
+                if (rarest == null || terms.terms.size() < rarest.terms.size()) {
+                    rarest = terms;
+                }
+            }
+            List<String> containing = new ArrayList<>();
+            rarest.terms.forEach((term, termId) -> {
+                if (term.contains(token)) {
+                    containing.add(term);
+                }
+            });
+            // The first in term order, so the expansion does not depend on how the index was built
+            containing.sort(null);
+            for (String term : containing.subList(0, Math.min(containing.size(), MAX_EXPANSIONS))) {
+                matches.put(term, INFIX_WEIGHT);
+            }
+        }
+        return matches;
+    }
+
+    private static double saturate(int frequency, int length, double averageLength) {
+        if (frequency == 0) {
+            return 0;
+        }
+        return frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    // Every trigram of the term packed into a long, one char per 16 bits
+    private static long[] trigrams(String term) {
+        long[] trigrams = new long[Math.max(0, term.length() - 2)];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (long) term.charAt(i) << 32 | (long) term.charAt(i + 1) << 16 | term.charAt(i + 2);
+        }
+        return trigrams;
+    }
+
+    // The chunk that holds, or would hold, the term
+    private Map.Entry<String, Chunk> chunkEntry(String term) {
+        Map.Entry<String, Chunk> entry = dictionary.floorEntry(term);
+        return entry != null ? entry : dictionary.firstEntry();
+    }
+
+    private Postings postings(String term) {
+        Map.Entry<String, Chunk> entry = chunkEntry(term);
+        return entry != null ? entry.getValue().get(term) : null;
+    }
+
+    private boolean removeDocument(long id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return false;
+        }
+        for (String term : document.terms) {
+            if (postings(term) == null) {
+                continue;
+            }
+            Chunk chunk = writableChunk(term);
+            Postings postings = chunk.get(term);
+            if (postings.owner != owner) {
+                postings = new Postings(owner, postings);
+                chunk.put(term, postings);
+            }
+            if (postings.remove(id) && postings.size == 0) {
+                removeTerm(chunk, term);
+                for (long trigram : trigrams(term)) {
+                    if (termsByTrigram.containsKey(trigram)) {
+                        TermSet terms = writableTerms(trigram);
+                        if (terms.terms.remove(postings.termId) != null && terms.terms.isEmpty()) {
+                            termsByTrigram.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+        totalNameLength -= document.nameLength;
+        totalDescriptionLength -= document.descriptionLength;
+        return true;
+    }
+
+    // The chunk for the term owned by this index, created or copied from a shared one as needed;
+    // a term before every chunk goes into the first one, which is then filed under it
+    private Chunk writableChunk(String term) {
+        Map.Entry<String, Chunk> entry = chunkEntry(term);
+        if (entry == null) {
+            Chunk chunk = new Chunk(owner);
+            dictionary.put(term, chunk);
+            return chunk;
+        }
+        Chunk chunk = entry.getValue();
+        if (chunk.owner != owner) {
+            chunk = new Chunk(owner, chunk);
+        }
+        if (term.compareTo(entry.getKey()) < 0) {
+            dictionary.remove(entry.getKey());
+            dictionary.put(term, chunk);
+        } else {
+            dictionary.put(entry.getKey(), chunk);
+        }
+        return chunk;
+    }
+
+    // Moves the upper half of an overfull chunk into a chunk of its own
+    private void splitIfFull(Chunk chunk) {
+        if (chunk.size() <= MAX_CHUNK) {
+            return;
+        }
+        Chunk upper = new Chunk(owner);
+        int keep = chunk.size() / 2;
+        while (chunk.size() > keep) {
+            Map.Entry<String, Postings> last = chunk.pollLastEntry();
+            upper.put(last.getKey(), last.getValue());
+        }
+        dictionary.put(upper.firstKey(), upper);
+    }
+
+    // Removes the term from its (writable) chunk, refiling or dropping the chunk as needed
+    private void removeTerm(Chunk chunk, String term) {
+        String key = chunkEntry(term).getKey();
+        chunk.remove(term);
+        if (chunk.isEmpty() || key.equals(term)) {
+            dictionary.remove(key);
+            if (!chunk.isEmpty()) {
+                dictionary.put(chunk.firstKey(), chunk);
+            }
+        }
+    }
+
+    // Terms containing the trigram owned by this index, created or copied from a shared set as needed
+    private TermSet writableTerms(long trigram) {
+        TermSet terms = termsByTrigram.get(trigram);
+        if (terms == null || terms.owner != owner) {
+            terms = terms == null ? new TermSet(owner) : new TermSet(owner, terms);
+            termsByTrigram.put(trigram, terms);
+        }
+        return terms;
+    }
+
+    private static final class Document {
+        final String[] terms;
+        final int nameLength;
+        final int descriptionLength;
+
+        Document(String[] terms, int nameLength, int descriptionLength) {
+            this.terms = terms;
+            this.nameLength = nameLength;
+            this.descriptionLength = descriptionLength;
+        }
+    }
+
+    // Dictionary terms containing one trigram, by term id; only the owning index changes it
+    private static final class TermSet {
+        final Object owner;
+        final LongTrieMap<String> terms;
+
+        TermSet(Object owner) {
+            this.owner = owner;
+            this.terms = new LongTrieMap<>();
+        }
+
+        TermSet(Object owner, TermSet original) {
+            this.owner = owner;
+            this.terms = original.terms.copy();
+        }
+    }
+
+    // A run of consecutive dictionary terms, in order; only the owning index changes it
+    private static final class Chunk extends TreeMap<String, Postings> {
+        final Object owner;
+
+        Chunk(Object owner) {
+            this.owner = owner;
+        }
+
+        Chunk(Object owner, Chunk original) {
+            super(original);
+            this.owner = owner;
+        }
+    }
+
+    // Documents containing one term with the term frequency in each field, in blocks of BLOCK_SIZE
+    // entries; a copy shares the blocks until it changes them. Only the owning index changes it.
+    private static final class Postings {
+        final Object owner;
+        // Key of the term in the trigram sets
+        final long termId;
+        Block[] blocks;
+        int size;
+
+        Postings(Object owner, long termId) {
+            this.owner = owner;
+            this.termId = termId;
+            this.blocks = new Block[1];
+        }
+
+        Postings(Object owner, Postings original) {
+            this.owner = owner;
+            this.termId = original.termId;
+            this.blocks = original.blocks.clone();
+            this.size = original.size;
+        }
+
+        void add(long id, int nameFrequency, int descriptionFrequency) {
+            int index = size >> BLOCK_SHIFT;
+            if (index == blocks.length) {
+                blocks = Arrays.copyOf(blocks, index * 2);
+            }
+            Block block = writableBlock(index, (size & (BLOCK_SIZE - 1)) + 1);
+            block.set(size & (BLOCK_SIZE - 1), id, nameFrequency, descriptionFrequency);
+            size++;
+        }
+
+        // The last entry takes the place of the removed one
+        boolean remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (blocks[i >> BLOCK_SHIFT].documentIds[i & (BLOCK_SIZE - 1)] == id) {
+                    size--;
+                    Block last = blocks[size >> BLOCK_SHIFT];
+                    int from = size & (BLOCK_SIZE - 1);
+                    writableBlock(i >> BLOCK_SHIFT, 0).set(i & (BLOCK_SIZE - 1), last.documentIds[from],
+                            last.nameFrequencies[from], last.descriptionFrequencies[from]);
+                    if (from == 0) {
+                        blocks[size >> BLOCK_SHIFT] = null;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // The block owned by this postings' index, with room for at least `entries`
+        private Block writableBlock(int index, int entries) {
+            Block block = blocks[index];
+            if (block == null) {
+                block = new Block(owner, 4);
+            } else if (block.owner != owner || block.documentIds.length < entries) {
+                int capacity = block.documentIds.length < entries ? block.documentIds.length * 2 : block.documentIds.length;
+                block = new Block(owner, block, capacity);
+            } else {
+                return block;
+            }
+            blocks[index] = block;
+            return block;
+        }
+    }
+
+    // Up to BLOCK_SIZE postings entries; only the owning index changes it
+    private static final class Block {
+        final Object owner;
+        final long[] documentIds;
+        final int[] nameFrequencies;
+        final int[] descriptionFrequencies;
+
+        Block(Object owner, int capacity) {
+            this.owner = owner;
+            this.documentIds = new long[capacity];
+            this.nameFrequencies = new int[capacity];
+            this.descriptionFrequencies = new int[capacity];
+        }
+
+        Block(Object owner, Block original, int capacity) {
+            this.owner = owner;
+            this.documentIds = Arrays.copyOf(original.documentIds, capacity);
+            this.nameFrequencies = Arrays.copyOf(original.nameFrequencies, capacity);
+            this.descriptionFrequencies = Arrays.copyOf(original.descriptionFrequencies, capacity);
+        }
+
+        void set(int index, long id, int nameFrequency, int descriptionFrequency) {
+            documentIds[index] = id;
+            nameFrequencies[index] = nameFrequency;
+            descriptionFrequencies[index] = descriptionFrequency;
+        }
+    }
+}
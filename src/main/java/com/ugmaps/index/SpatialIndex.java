@@ -0,0 +1,401 @@
+package com.ugmaps.index;
+
+import java.util.Arrays;
+
+/**
+ * In-memory uniform grid over latitude/longitude used for nearest-neighbour lookups.
+ *
+ * Every grid cell keeps the ids, coordinates and categories of the points inside it in
+ * contiguous primitive arrays (struct of arrays), so scanning a cell walks plain arrays and
+ * never boxes or dereferences per point. Cells are found through a primitive-keyed hash trie.
+ * Inserts and removals touch a single cell, so the index can be kept current on every
+ * save/delete. The index keeps no id lookup of its own: a point is removed, or moved, with the
+ * position it was added at, which callers already hold. Queries that write into
+ * caller-provided buffers do not allocate.
+ *
+ * There is no locking: an index is changed by one thread and, once it is no longer changed,
+ * read by any number of threads. {@link #copy()} starts the next version in constant time; it
+ * shares every cell with the original until the copy changes it, so the original must not be
+ * changed after it has been copied.
+ */
+public class SpatialIndex {
+
+    // Category filter value that matches every point
+    public static final int ANY_CATEGORY = -1;
+
+    private static final double METRES_PER_DEGREE = GeoDistance.METRES_PER_DEGREE;
+
+    private final double cellSize;
+
+    // Marks the cells this index may change in place; a bare object, so that they do not keep
+    // an earlier version alive
+    private Object owner = new Object();
+    private LongTrieMap<Cell> cells = new LongTrieMap<>();
+    private int size;
+
+    // Extent of every cell that has ever been occupied; bounds the ring search
+    private int minCellX = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+
+    public SpatialIndex(double cellSizeDegrees) {
+        if (!(cellSizeDegrees > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSizeDegrees);
+        }
+        this.cellSize = cellSizeDegrees;
+    }
+
+    // Independent index with the same points; cells are copied when the copy first changes them
+    public SpatialIndex copy() {
+        // The shared cells now belong to neither index, so each copies them before a change
+        owner = new Object();
+        SpatialIndex copy = new SpatialIndex(cellSize);
+        copy.cells = cells.copy();
+        copy.size = size;
+        copy.minCellX = minCellX;
+        copy.maxCellX = maxCellX;
+        copy.minCellY = minCellY;
+        copy.maxCellY = maxCellY;
+        return copy;
+    }
+
+    public void put(long id, double latitude, double longitude) {
+        put(id, latitude, longitude, 0);
+    }
+
+    // Add a point; to move or recategorise an indexed point, remove it first
+    public void put(long id, double latitude, double longitude, int category) {
+        if (category < 0 || category > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Category must be between 0 and 127: " + category);
+        }
+        int cellX = cellX(longitude);
+        int cellY = cellY(latitude);
+        writableCell(cellKey(cellX, cellY)).add(id, latitude, longitude, (byte) category);
+        size++;
+
+        minCellX = Math.min(minCellX, cellX);
+        maxCellX = Math.max(maxCellX, cellX);
+        minCellY = Math.min(minCellY, cellY);
+        maxCellY = Math.max(maxCellY, cellY);
+    }
+
+    // Remove a point added at the given position
+    public boolean remove(long id, double latitude, double longitude) {
+        long cellKey = cellKey(cellX(longitude), cellY(latitude));
+        Cell cell = cells.get(cellKey);
+        if (cell == null || cell.indexOf(id) < 0) {
+            return false;
+        }
+        cell = writableCell(cellKey);
+        cell.remove(cell.indexOf(id));
+        if (cell.count == 0) {
+            cells.remove(cellKey);
+        }
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        cells = new LongTrieMap<>();
+        size = 0;
+        minCellX = Integer.MAX_VALUE;
+        maxCellX = Integer.MIN_VALUE;
+        minCellY = Integer.MAX_VALUE;
+        maxCellY = Integer.MIN_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ids of the {@code k} points closest to the given coordinate, nearest first.
+     * Points further than {@code maxRadiusMetres} are ignored.
+     */
+    public long[] nearest(double latitude, double longitude, int k, double maxRadiusMetres) {
+        if (k <= 0) {
+            return new long[0];
+        }
+        int capacity = Math.min(k, size());
+        long[] found = new long[capacity];
+        int count = nearest(latitude, longitude, capacity, maxRadiusMetres, ANY_CATEGORY, found, new double[capacity]);
+        return count == capacity ? found : Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Allocation-free form of {@link #nearest(double, double, int, double)}: writes up to
+     * {@code k} ids and their distances in metres into the given buffers, nearest first,
+     * and returns how many were written. Only points of {@code category} are considered
+     * unless it is {@link #ANY_CATEGORY}.
+     *
+     * The grid is scanned in square rings around the query cell while the buffers hold a
+     * bounded max-heap of squared distances; the scan stops as soon as the next ring cannot
+     * contain anything closer than the current k-th candidate.
+     */
+    public int nearest(double latitude, double longitude, int k, double maxRadiusMetres, int category,
+                       long[] idsOut, double[] distancesOut) {
+        int capacity = Math.min(k, Math.min(idsOut.length, distancesOut.length));
+        if (capacity <= 0) {
+            return 0;
+        }
+        if (cells.isEmpty()) {
+            return 0;
+        }
+
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        double maxSquared = maxRadiusMetres * maxRadiusMetres;
+        int count = 0;
+        int centreX = cellX(longitude);
+        int centreY = cellY(latitude);
+        // Rings inside the gap between the query and the occupied extent are empty, so a query far
+        // outside it starts at the first ring reaching an occupied cell
+        long firstRing = Math.max(
+                Math.max(Math.max((long) minCellX - centreX, (long) centreX - maxCellX), 0),
+                Math.max((long) minCellY - centreY, (long) centreY - maxCellY));
+        long lastRing = Math.max(
+                Math.max((long) centreX - minCellX, (long) maxCellX - centreX),
+                Math.max((long) centreY - minCellY, (long) maxCellY - centreY));
+        long probed = 0;
+
+        for (long ring = firstRing; ring <= lastRing; ring++) {
+            double reach = ring == 0 ? 0 : distanceToBlockEdge(latitude, longitude, cosLat, centreX, centreY, ring - 1);
+            if (reach > maxRadiusMetres || (count == capacity && reach * reach >= distancesOut[0])) {
+                break;
+            }
+            // Probing more cells than are occupied costs more than visiting every occupied cell
+            probed += ring == 0 ? 1 : 8 * ring;
+            if (probed > cells.size()) {
+                count = scanOutsideBlock(latitude, longitude, cosLat, maxSquared, category, centreX, centreY, ring,
+                        idsOut, distancesOut, count, capacity);
+                break;
+            }
+
+            for (long x = centreX - ring; x <= centreX + ring; x++) {
+                boolean edgeColumn = x == centreX - ring || x == centreX + ring;
+                long step = edgeColumn ? 1 : Math.max(1, 2 * ring);
+                for (long y = centreY - ring; y <= centreY + ring; y += step) {
+                    Cell cell = cells.get(cellKey((int) x, (int) y));
+                    if (cell != null) {
+                        count = scanCell(cell, latitude, longitude, cosLat, maxSquared, category,
+                                idsOut, distancesOut, count, capacity);
+                    }
+                }
+            }
+        }
+
+        // Heap-sort the candidates so the nearest comes first, then take the roots
+        for (int end = count - 1; end > 0; end--) {
+            swap(idsOut, distancesOut, 0, end);
+            siftDown(idsOut, distancesOut, 0, end);
+        }
+        for (int i = 0; i < count; i++) {
+            distancesOut[i] = Math.sqrt(distancesOut[i]);
+        }
+        return count;
+    }
+
+    // Distance kernel over one cell's contiguous arrays, feeding the bounded heap
+    private int scanCell(Cell cell, double latitude, double longitude, double cosLat, double maxSquared, int category,
+                         long[] heapIds, double[] heapDistances, int count, int capacity) {
+        long[] cellIds = cell.ids;
+        double[] cellLats = cell.lats;
+        double[] cellLons = cell.lons;
+        byte[] cellCategories = cell.categories;
+        for (int i = 0; i < cell.count; i++) {
+            double squared = GeoDistance.equirectangularSquared(latitude, longitude, cosLat, cellLats[i], cellLons[i]);
+            if (squared > maxSquared || (category != ANY_CATEGORY && cellCategories[i] != category)) {
+                continue;
+            }
+            if (count < capacity) {
+                heapIds[count] = cellIds[i];
+                heapDistances[count] = squared;
+                siftUp(heapIds, heapDistances, count++);
+            } else if (squared < heapDistances[0]) {
+                heapIds[0] = cellIds[i];
+                heapDistances[0] = squared;
+                siftDown(heapIds, heapDistances, 0, count);
+            }
+        }
+        return count;
+    }
+
+    // Every occupied cell at least `ring` rings away from the centre cell, i.e. not scanned by the rings before it
+    private int scanOutsideBlock(double latitude, double longitude, double cosLat, double maxSquared, int category,
+                                 int centreX, int centreY, long ring, long[] heapIds, double[] heapDistances,
+                                 int count, int capacity) {
+        int[] found = {count};
+        cells.forEach((cell, cellKey) -> {
+            long x = cellKey >> 32;
+            long y = (int) cellKey;
+            if (Math.max(Math.abs(x - centreX), Math.abs(y - centreY)) >= ring) {
+                found[0] = scanCell(cell, latitude, longitude, cosLat, maxSquared, category,
+                        heapIds, heapDistances, found[0], capacity);
+            }
+        });
+        return found[0];
+    }
+
+    // Ids of the points inside the box, in no particular order
+    public long[] within(double south, double west, double north, double east) {
+        if (cells.isEmpty() || south > north || west > east) {
+            return new long[0];
+        }
+        int fromX = Math.max(cellX(west), minCellX);
+        int toX = Math.min(cellX(east), maxCellX);
+        int fromY = Math.max(cellY(south), minCellY);
+        int toY = Math.min(cellY(north), maxCellY);
+
+        long[] found = new long[16];
+        int count = 0;
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                Cell cell = cells.get(cellKey(x, y));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.count; i++) {
+                    if (cell.lats[i] >= south && cell.lats[i] <= north && cell.lons[i] >= west && cell.lons[i] <= east) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = cell.ids[i];
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // Lower bound on the distance from the query point to anything outside the (2r+1)^2 block of cells
+    private double distanceToBlockEdge(double latitude, double longitude, double cosLat,
+                                       int centreX, int centreY, long radius) {
+        double south = (centreY - radius) * cellSize;
+        double north = (centreY + radius + 1) * cellSize;
+        double west = (centreX - radius) * cellSize;
+        double east = (centreX + radius + 1) * cellSize;
+        double toLatEdge = Math.min(latitude - south, north - latitude) * METRES_PER_DEGREE;
+        double toLonEdge = Math.min(longitude - west, east - longitude) * METRES_PER_DEGREE * cosLat;
+        return Math.max(0, Math.min(toLatEdge, toLonEdge));
+    }
+
+    // The cell under the key owned by this index, created or copied from a shared one as needed
+    private Cell writableCell(long cellKey) {
+        Cell cell = cells.get(cellKey);
+        if (cell == null || cell.owner != owner) {
+            cell = cell == null ? new Cell(owner) : new Cell(owner, cell);
+            cells.put(cellKey, cell);
+        }
+        return cell;
+    }
+
+    private int cellX(double longitude) {
+        return (int) Math.floor(longitude / cellSize);
+    }
+
+    private int cellY(double latitude) {
+        return (int) Math.floor(latitude / cellSize);
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private static void siftUp(long[] heapIds, double[] heapDistances, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heapDistances[parent] >= heapDistances[index]) {
+                return;
+            }
+            swap(heapIds, heapDistances, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heapIds, double[] heapDistances, int index, int size) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heapDistances[left] > heapDistances[largest]) {
+                largest = left;
+            }
+            if (right < size && heapDistances[right] > heapDistances[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(heapIds, heapDistances, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(long[] heapIds, double[] heapDistances, int a, int b) {
+        long id = heapIds[a];
+        heapIds[a] = heapIds[b];
+        heapIds[b] = id;
+        double distance = heapDistances[a];
+        heapDistances[a] = heapDistances[b];
+        heapDistances[b] = distance;
+    }
+
+    // Points inside one grid cell as parallel arrays: id, latitude, longitude, category.
+    // Only the owning index changes a cell; copies of the index clone it first.
+    private static final class Cell {
+        final Object owner;
+        long[] ids;
+        double[] lats;
+        double[] lons;
+        byte[] categories;
+        int count;
+
+        Cell(Object owner) {
+            this.owner = owner;
+            this.ids = new long[4];
+            this.lats = new double[4];
+            this.lons = new double[4];
+            this.categories = new byte[4];
+        }
+
+        Cell(Object owner, Cell original) {
+            this.owner = owner;
+            this.ids = original.ids.clone();
+            this.lats = original.lats.clone();
+            this.lons = original.lons.clone();
+            this.categories = original.categories.clone();
+            this.count = original.count;
+        }
+
+        void add(long id, double latitude, double longitude, byte category) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                lats = Arrays.copyOf(lats, count * 2);
+                lons = Arrays.copyOf(lons, count * 2);
+                categories = Arrays.copyOf(categories, count * 2);
+            }
+            ids[count] = id;
+            lats[count] = latitude;
+            lons[count] = longitude;
+            categories[count] = category;
+            count++;
+        }
+
+        int indexOf(long id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void remove(int index) {
+            count--;
+            ids[index] = ids[count];
+            lats[index] = lats[count];
+            lons[index] = lons[count];
+            categories[index] = categories[count];
+        }
+    }
+}
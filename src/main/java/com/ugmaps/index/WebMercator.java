@@ -0,0 +1,44 @@
+package com.ugmaps.index;
+
+/**
+ * Spherical (Web) Mercator projection onto the unit square used by slippy-map tiles:
+ * x runs from 0 at 180°W to 1 at 180°E and y from 0 in the north to 1 in the south.
+ */
+public final class WebMercator {
+
+    public static final double MAX_LATITUDE = 85.05112878;
+
+    private WebMercator() {
+    }
+
+    public static double x(double longitude) {
+        return (longitude + 180.0) / 360.0;
+    }
+
+    public static double y(double latitude) {
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+        double sin = Math.sin(Math.toRadians(clamped));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    public static double longitude(double x) {
+        return x * 360.0 - 180.0;
+    }
+
+    public static double latitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    // Column of the zoom-level tile containing the longitude, clamped to the grid
+    public static int tileX(double longitude, int zoom) {
+        return clampTile((long) Math.floor(x(longitude) * (1L << zoom)), zoom);
+    }
+
+    public static int tileY(double latitude, int zoom) {
+        return clampTile((long) Math.floor(y(latitude) * (1L << zoom)), zoom);
+    }
+
+    private static int clampTile(long tile, int zoom) {
+        return (int) Math.max(0, Math.min((1L << zoom) - 1, tile));
+    }
+}
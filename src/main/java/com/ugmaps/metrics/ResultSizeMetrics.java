@@ -0,0 +1,59 @@
+package com.ugmaps.metrics;
+
+import com.ugmaps.controller.LocationController;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collection;
+
+/**
+ * Distribution of the number of rows each {@link LocationController} endpoint returns, as the
+ * {@code locations.results} summary tagged with the same {@code uri} as {@code http.server.requests}.
+ * Collection bodies are counted here; streamed responses report their row count through {@link #record}.
+ */
+@ControllerAdvice(assignableTypes = LocationController.class)
+public class ResultSizeMetrics implements ResponseBodyAdvice<Object> {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    public void record(String uri, long rows) {
+        DistributionSummary.builder("locations.results")
+                .description("Rows returned per request")
+                .baseUnit("rows")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1_000_000.0)
+                .register(meterRegistry)
+                .record(rows);
+    }
+    
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+    
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof Collection<?> collection && request instanceof ServletServerHttpRequest servletRequest) {
+            Object pattern = servletRequest.getServletRequest().getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                record(pattern.toString(), collection.size());
+            }
+        }
+        return body;
+    }
+}
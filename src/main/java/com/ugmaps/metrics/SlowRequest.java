@@ -0,0 +1,34 @@
+package com.ugmaps.metrics;
+
+import java.time.Instant;
+
+public class SlowRequest {
+    
+    private final String method;
+    private final String path;
+    private final String query;
+    private final int status;
+    private final double durationMillis;
+    private final Instant timestamp;
+    
+    public SlowRequest(String method, String path, String query, int status, double durationMillis, Instant timestamp) {
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.status = status;
+        this.durationMillis = durationMillis;
+        this.timestamp = timestamp;
+    }
+    
+    public String getMethod() { return method; }
+    
+    public String getPath() { return path; }
+    
+    public String getQuery() { return query; }
+    
+    public int getStatus() { return status; }
+    
+    public double getDurationMillis() { return durationMillis; }
+    
+    public Instant getTimestamp() { return timestamp; }
+}
@@ -0,0 +1,118 @@
+package com.ugmaps.metrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Keeps the slowest requests seen, with their query strings, for the {@code slowrequests}
+ * actuator endpoint. Requests faster than the threshold or than the current sample cost one
+ * volatile read; only candidates for the sample take the lock. For streamed responses the time
+ * until the handler returns is measured, not the whole transfer.
+ *
+ * The endpoint is as public as the rest of the actuator, so parameter values are replaced by
+ * {@code *} unless metrics.slow-requests.query-values lists the parameter: a sample must not
+ * expose where users stood (lat/lon) or what they searched for.
+ */
+@Component
+public class SlowRequestSampler extends OncePerRequestFilter {
+    
+    @Value("${metrics.slow-requests.sample-size:20}")
+    private int sampleSize;
+    
+    @Value("${metrics.slow-requests.threshold:100ms}")
+    private Duration threshold;
+    
+    // Parameters whose values are kept, e.g. limit or zoom; every other value is masked
+    @Value("${metrics.slow-requests.query-values:}")
+    private Set<String> queryValues;
+    
+    // Fastest sampled request first, so it is the one replaced
+    private final PriorityQueue<SlowRequest> slowest =
+            new PriorityQueue<>(Comparator.comparingDouble(SlowRequest::getDurationMillis));
+    
+    // Shortest duration that can still enter the sample
+    private volatile long admissionNanos;
+    
+    @PostConstruct
+    public void init() {
+        admissionNanos = threshold.toNanos();
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= admissionNanos) {
+                offer(new SlowRequest(request.getMethod(), request.getRequestURI(), masked(request.getQueryString()),
+                        response.getStatus(), elapsed / 1_000_000.0, Instant.now()));
+            }
+        }
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+    
+    // Query string with the values of unlisted parameters replaced by *
+    String masked(String query) {
+        if (query == null || query.isEmpty()) {
+            return query;
+        }
+        StringBuilder masked = new StringBuilder(query.length());
+        for (String parameter : query.split("&")) {
+            if (masked.length() > 0) {
+                masked.append('&');
+            }
+            int equals = parameter.indexOf('=');
+            String name = equals >= 0 ? parameter.substring(0, equals) : parameter;
+            masked.append(name);
+            if (equals >= 0) {
+                masked.append('=').append(queryValues.contains(name) ? parameter.substring(equals + 1) : "*");
+            }
+        }
+        return masked.toString();
+    }
+    
+    // Slowest first
+    public synchronized List<SlowRequest> getSlowest() {
+        List<SlowRequest> sample = new ArrayList<>(slowest);
+        sample.sort(Comparator.comparingDouble(SlowRequest::getDurationMillis).reversed());
+        return sample;
+    }
+    
+    public synchronized void reset() {
+        slowest.clear();
+        admissionNanos = threshold.toNanos();
+    }
+    
+    private synchronized void offer(SlowRequest request) {
+        if (slowest.size() < sampleSize) {
+            slowest.add(request);
+        } else if (request.getDurationMillis() > slowest.peek().getDurationMillis()) {
+            slowest.poll();
+            slowest.add(request);
+        }
+        long fastestSampled = slowest.size() < sampleSize ? 0 : (long) (slowest.peek().getDurationMillis() * 1_000_000);
+        admissionNanos = Math.max(threshold.toNanos(), fastestSampled);
+    }
+}
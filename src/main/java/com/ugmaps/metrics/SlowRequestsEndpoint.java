@@ -0,0 +1,31 @@
+package com.ugmaps.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/slowrequests} lists the slowest requests with their parameters;
+ * {@code DELETE} starts a new sample.
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestsEndpoint {
+    
+    @Autowired
+    private SlowRequestSampler sampler;
+    
+    @ReadOperation
+    public List<SlowRequest> slowest() {
+        return sampler.getSlowest();
+    }
+    
+    @DeleteOperation
+    public void reset() {
+        sampler.reset();
+    }
+}
@@ -0,0 +1,92 @@
+package com.ugmaps.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+
+// One entry of a POST /api/batch request; which fields apply depends on the query kind
+public class BatchQuery {
+    
+    public enum Kind {
+        @JsonProperty("nearest") NEAREST,
+        @JsonProperty("bounds") BOUNDS,
+        @JsonProperty("search") SEARCH,
+        @JsonProperty("byId") BY_ID,
+        @JsonProperty("route") ROUTE
+    }
+    
+    @NotNull(message = "Query kind is required")
+    private Kind query;
+    
+    // nearest: origin, optional type filter, limit and radius in metres; an unknown type fails only this query
+    private Double lat;
+    private Double lon;
+    private String type;
+    private Integer limit;
+    private Double maxRadius;
+    
+    // bounds
+    private Double minLat;
+    private Double maxLat;
+    private Double minLon;
+    private Double maxLon;
+    
+    // search (limit applies too)
+    private String q;
+    
+    // byId
+    private Long id;
+    
+    // route: from a location or from fromLat/fromLon, to a location
+    private Long from;
+    private Long to;
+    private Double fromLat;
+    private Double fromLon;
+    
+    public Kind getQuery() { return query; }
+    public void setQuery(Kind query) { this.query = query; }
+    
+    public Double getLat() { return lat; }
+    public void setLat(Double lat) { this.lat = lat; }
+    
+    public Double getLon() { return lon; }
+    public void setLon(Double lon) { this.lon = lon; }
+    
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+    
+    public Double getMaxRadius() { return maxRadius; }
+    public void setMaxRadius(Double maxRadius) { this.maxRadius = maxRadius; }
+    
+    public Double getMinLat() { return minLat; }
+    public void setMinLat(Double minLat) { this.minLat = minLat; }
+    
+    public Double getMaxLat() { return maxLat; }
+    public void setMaxLat(Double maxLat) { this.maxLat = maxLat; }
+    
+    public Double getMinLon() { return minLon; }
+    public void setMinLon(Double minLon) { this.minLon = minLon; }
+    
+    public Double getMaxLon() { return maxLon; }
+    public void setMaxLon(Double maxLon) { this.maxLon = maxLon; }
+    
+    public String getQ() { return q; }
+    public void setQ(String q) { this.q = q; }
+    
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getFrom() { return from; }
+    public void setFrom(Long from) { this.from = from; }
+    
+    public Long getTo() { return to; }
+    public void setTo(Long to) { this.to = to; }
+    
+    public Double getFromLat() { return fromLat; }
+    public void setFromLat(Double fromLat) { this.fromLat = fromLat; }
+    
+    public Double getFromLon() { return fromLon; }
+    public void setFromLon(Double fromLon) { this.fromLon = fromLon; }
+}
@@ -0,0 +1,42 @@
+package com.ugmaps.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Result of one batch query, at the same position as the query; exactly one of the payloads is set
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+    
+    private final BatchQuery.Kind query;
+    private final List<Location> locations;
+    private final Route route;
+    private final String error;
+    
+    private BatchResult(BatchQuery.Kind query, List<Location> locations, Route route, String error) {
+        this.query = query;
+        this.locations = locations;
+        this.route = route;
+        this.error = error;
+    }
+    
+    public static BatchResult ofLocations(BatchQuery.Kind query, List<Location> locations) {
+        return new BatchResult(query, locations, null, null);
+    }
+    
+    public static BatchResult ofRoute(Route route) {
+        return new BatchResult(BatchQuery.Kind.ROUTE, null, route, null);
+    }
+    
+    public static BatchResult ofError(BatchQuery.Kind query, String error) {
+        return new BatchResult(query, null, null, error);
+    }
+    
+    public BatchQuery.Kind getQuery() { return query; }
+    
+    public List<Location> getLocations() { return locations; }
+    
+    public Route getRoute() { return route; }
+    
+    public String getError() { return error; }
+}
@@ -0,0 +1,38 @@
+package com.ugmaps.model;
+
+import java.util.List;
+
+// Outcome of a bulk import
+public class ImportResult {
+    
+    private final long imported;
+    private final long failed;
+    private final List<String> errors;
+    private final long durationMillis;
+    
+    public ImportResult(long imported, long failed, List<String> errors, long durationMillis) {
+        this.imported = imported;
+        this.failed = failed;
+        this.errors = errors;
+        this.durationMillis = durationMillis;
+    }
+    
+    public long getImported() { return imported; }
+    
+    public long getFailed() { return failed; }
+    
+    // First few row errors, prefixed with the record number
+    public List<String> getErrors() { return errors; }
+    
+    public long getDurationMillis() { return durationMillis; }
+    
+    public double getRowsPerSecond() {
+        return durationMillis > 0 ? imported * 1000.0 / durationMillis : imported;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Imported %d locations (%d failed) in %d ms (%.0f rows/s)",
+                imported, failed, durationMillis, getRowsPerSecond());
+    }
+}
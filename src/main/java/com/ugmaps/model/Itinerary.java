@@ -0,0 +1,34 @@
+package com.ugmaps.model;
+
+import java.util.List;
+
+// Response of POST /api/itinerary: the stops in walking order with per-leg and total distances
+public class Itinerary {
+    
+    private final List<ItineraryVisit> visits;
+    private final double distance;
+    private final long duration;
+    private final boolean optimal;
+    private final long computeMillis;
+    
+    public Itinerary(List<ItineraryVisit> visits, double distance, long duration, boolean optimal, long computeMillis) {
+        this.visits = visits;
+        this.distance = distance;
+        this.duration = duration;
+        this.optimal = optimal;
+        this.computeMillis = computeMillis;
+    }
+    
+    public List<ItineraryVisit> getVisits() { return visits; }
+    
+    // Total walking distance in metres
+    public double getDistance() { return distance; }
+    
+    // Estimated total walking time in seconds
+    public long getDuration() { return duration; }
+    
+    // True when the order is proven shortest, false when it is the best found within the time budget
+    public boolean isOptimal() { return optimal; }
+    
+    public long getComputeMillis() { return computeMillis; }
+}
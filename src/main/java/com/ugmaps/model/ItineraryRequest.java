@@ -0,0 +1,33 @@
+package com.ugmaps.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Body of POST /api/itinerary: a start and the stops to visit in whatever order is shortest
+public class ItineraryRequest {
+    
+    // Start at a location, or at fromLat/fromLon (e.g. the user's GPS position)
+    private Long from;
+    private Double fromLat;
+    private Double fromLon;
+    
+    private List<ItineraryStop> stops = new ArrayList<>();
+    
+    // Walk back to the start after the last stop
+    private boolean returnToStart;
+    
+    public Long getFrom() { return from; }
+    public void setFrom(Long from) { this.from = from; }
+    
+    public Double getFromLat() { return fromLat; }
+    public void setFromLat(Double fromLat) { this.fromLat = fromLat; }
+    
+    public Double getFromLon() { return fromLon; }
+    public void setFromLon(Double fromLon) { this.fromLon = fromLon; }
+    
+    public List<ItineraryStop> getStops() { return stops; }
+    public void setStops(List<ItineraryStop> stops) { this.stops = stops; }
+    
+    public boolean isReturnToStart() { return returnToStart; }
+    public void setReturnToStart(boolean returnToStart) { this.returnToStart = returnToStart; }
+}
@@ -0,0 +1,54 @@
+package com.ugmaps.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Map;
+
+// One stop of a POST /api/itinerary request: a location id (5) or "any location of a type" ("ATM")
+public class ItineraryStop {
+    
+    private final Long id;
+    private final LocationType type;
+    
+    private ItineraryStop(Long id, LocationType type) {
+        this.id = id;
+        this.type = type;
+    }
+    
+    public static ItineraryStop ofLocation(long id) {
+        return new ItineraryStop(id, null);
+    }
+    
+    public static ItineraryStop ofType(LocationType type) {
+        return new ItineraryStop(null, type);
+    }
+    
+    // Accepts 5, "5", "ATM" and the object forms {"id": 5} and {"type": "ATM"}
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static ItineraryStop parse(Object value) {
+        if (value instanceof Map<?, ?> fields) {
+            value = fields.get("id") != null ? fields.get("id") : fields.get("type");
+        }
+        if (value instanceof Number number) {
+            return ofLocation(number.longValue());
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            String trimmed = text.trim();
+            if (trimmed.chars().allMatch(Character::isDigit)) {
+                return ofLocation(Long.parseLong(trimmed));
+            }
+            return ofType(LocationType.valueOf(trimmed.toUpperCase()));
+        }
+        throw new IllegalArgumentException("A stop is a location id or a location type");
+    }
+    
+    public Long getId() { return id; }
+    
+    public LocationType getType() { return type; }
+    
+    @JsonValue
+    public Object toJson() {
+        return id != null ? id : type;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ugmaps.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One leg of an itinerary: the walk from the previous stop (or the start) to a location
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItineraryVisit {
+    
+    private final Integer stop;
+    private final Location location;
+    private final double latitude;
+    private final double longitude;
+    private final double distance;
+    private final long duration;
+    private final boolean straightLine;
+    
+    public ItineraryVisit(Integer stop, Location location, double latitude, double longitude, double distance,
+                          long duration, boolean straightLine) {
+        this.stop = stop;
+        this.location = location;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distance = distance;
+        this.duration = duration;
+        this.straightLine = straightLine;
+    }
+    
+    // Index of the request stop this visit satisfies; omitted for the walk back to the start
+    public Integer getStop() { return stop; }
+    
+    // The location visited; omitted when walking back to a start given as coordinates
+    public Location getLocation() { return location; }
+    
+    // Where the leg ends: the location visited or the start coordinates
+    public double getLatitude() { return latitude; }
+    
+    public double getLongitude() { return longitude; }
+    
+    // Walking distance of the leg in metres
+    public double getDistance() { return distance; }
+    
+    // Estimated walking time of the leg in seconds
+    public long getDuration() { return duration; }
+    
+    // True when no footpath connects the two ends, so the distance is the straight line
+    public boolean isStraightLine() { return straightLine; }
+}
@@ -0,0 +1,34 @@
+package com.ugmaps.model;
+
+import java.util.List;
+
+// Response of /api/locations/changes: everything that changed after the client's version
+public class LocationChanges {
+    
+    private final long epoch;
+    private final long version;
+    private final boolean reset;
+    private final List<Location> upserts;
+    private final List<Long> deletions;
+    
+    public LocationChanges(long epoch, long version, boolean reset, List<Location> upserts, List<Long> deletions) {
+        this.epoch = epoch;
+        this.version = version;
+        this.reset = reset;
+        this.upserts = upserts;
+        this.deletions = deletions;
+    }
+    
+    // Identifies the change log; a different epoch means versions are not comparable
+    public long getEpoch() { return epoch; }
+    
+    // Pass this back as "since" on the next request
+    public long getVersion() { return version; }
+    
+    // True when the client must drop its copy and apply upserts as the full data set
+    public boolean isReset() { return reset; }
+    
+    public List<Location> getUpserts() { return upserts; }
+    
+    public List<Long> getDeletions() { return deletions; }
+}
@@ -0,0 +1,35 @@
+package com.ugmaps.model;
+
+import java.util.Map;
+
+// Aggregated map marker returned by /api/locations/clusters
+public class LocationCluster {
+    
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+    private final Map<LocationType, Integer> countsByType;
+    private final Long locationId;
+    
+    public LocationCluster(double latitude, double longitude, int count,
+                           Map<LocationType, Integer> countsByType, Long locationId) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.countsByType = countsByType;
+        this.locationId = locationId;
+    }
+    
+    // Centroid of the clustered locations
+    public double getLatitude() { return latitude; }
+    
+    public double getLongitude() { return longitude; }
+    
+    public int getCount() { return count; }
+    
+    // Only the types present in the cluster
+    public Map<LocationType, Integer> getCountsByType() { return countsByType; }
+    
+    // Set when the cluster is a single location
+    public Long getLocationId() { return locationId; }
+}
@@ -0,0 +1,59 @@
+package com.ugmaps.model;
+
+import org.springframework.http.MediaType;
+
+// Wire formats supported by bulk import/export and streaming responses
+public enum LocationFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv"),
+    GEOJSON("application/geo+json", "geojson");
+    
+    private final MediaType mediaType;
+    private final String extension;
+    
+    LocationFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+    
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    // Accepts a format name ("csv") or a media type ("text/csv")
+    public static LocationFormat fromName(String name) {
+        for (LocationFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name) || format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return fromMediaType(MediaType.parseMediaType(name));
+    }
+    
+    public static LocationFormat fromMediaType(MediaType mediaType) {
+        for (LocationFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(mediaType) && !mediaType.isWildcardType()) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported location format: " + mediaType);
+    }
+    
+    public static LocationFormat fromFileName(String fileName) {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".csv")) {
+            return CSV;
+        }
+        if (lower.endsWith(".geojson") || lower.endsWith(".json")) {
+            return GEOJSON;
+        }
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Cannot tell the format of " + fileName);
+    }
+}
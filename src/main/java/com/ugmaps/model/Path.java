@@ -0,0 +1,83 @@
+package com.ugmaps.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "paths")
+public class Path {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    private String name;
+    
+    @NotNull(message = "Start location is required")
+    @Column(name = "from_location_id", nullable = false)
+    private Long fromLocationId;
+    
+    @NotNull(message = "End location is required")
+    @Column(name = "to_location_id", nullable = false)
+    private Long toLocationId;
+    
+    // Walking length in metres; the straight-line distance is used when not set
+    @Positive(message = "Distance must be positive")
+    private Double distance;
+    
+    // Placeholder link (e.g. a straight line from the demo seed data) rather than a surveyed footpath
+    @Column(nullable = false)
+    private boolean synthetic;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    // Default constructor
+    public Path() {
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Constructor with parameters
+    public Path(String name, Long fromLocationId, Long toLocationId) {
+        this();
+        this.name = name;
+        this.fromLocationId = fromLocationId;
+        this.toLocationId = toLocationId;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public Long getFromLocationId() { return fromLocationId; }
+    public void setFromLocationId(Long fromLocationId) { this.fromLocationId = fromLocationId; }
+    
+    public Long getToLocationId() { return toLocationId; }
+    public void setToLocationId(Long toLocationId) { this.toLocationId = toLocationId; }
+    
+    public Double getDistance() { return distance; }
+    public void setDistance(Double distance) { this.distance = distance; }
+    
+    public boolean isSynthetic() { return synthetic; }
+    public void setSynthetic(boolean synthetic) { this.synthetic = synthetic; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    @Override
+    public String toString() {
+        return "Path{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", fromLocationId=" + fromLocationId +
+                ", toLocationId=" + toLocationId +
+                ", distance=" + distance +
+                ", synthetic=" + synthetic +
+                '}';
+    }
+}
@@ -0,0 +1,30 @@
+package com.ugmaps.model;
+
+import java.util.List;
+import java.util.Map;
+
+// Locations within a walking time of an origin, grouped by type and nearest first within each type
+public class Reachability {
+    
+    private final double latitude;
+    private final double longitude;
+    private final int minutes;
+    private final Map<LocationType, List<ReachableLocation>> locationsByType;
+    
+    public Reachability(double latitude, double longitude, int minutes,
+                        Map<LocationType, List<ReachableLocation>> locationsByType) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.minutes = minutes;
+        this.locationsByType = locationsByType;
+    }
+    
+    // Origin the times were measured from: the queried point
+    public double getLatitude() { return latitude; }
+    
+    public double getLongitude() { return longitude; }
+    
+    public int getMinutes() { return minutes; }
+    
+    public Map<LocationType, List<ReachableLocation>> getLocationsByType() { return locationsByType; }
+}
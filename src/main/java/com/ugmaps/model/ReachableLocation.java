@@ -0,0 +1,28 @@
+package com.ugmaps.model;
+
+// A location within walking reach of an origin, as returned by /api/locations/reachable
+public class ReachableLocation {
+    
+    private final Location location;
+    private final double distance;
+    private final long duration;
+    private final boolean straightLine;
+    
+    public ReachableLocation(Location location, double distance, long duration, boolean straightLine) {
+        this.location = location;
+        this.distance = distance;
+        this.duration = duration;
+        this.straightLine = straightLine;
+    }
+    
+    public Location getLocation() { return location; }
+    
+    // Walking distance from the origin in metres
+    public double getDistance() { return distance; }
+    
+    // Estimated walking time in seconds
+    public long getDuration() { return duration; }
+    
+    // True when no footpath leads to the location, so the distance is the straight line to it
+    public boolean isStraightLine() { return straightLine; }
+}
@@ -0,0 +1,54 @@
+package com.ugmaps.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Location as the read model holds it. Every reader of a published version shares the same
+ * instance, so it cannot be changed: the setters throw. Not an entity; to save an edit, send
+ * a new Location.
+ */
+public final class ReadOnlyLocation extends Location {
+    
+    public ReadOnlyLocation(Long id, String name, String description, Double latitude, Double longitude,
+                            LocationType type, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        super.setId(id);
+        super.setName(name);
+        super.setDescription(description);
+        super.setLatitude(latitude);
+        super.setLongitude(longitude);
+        super.setType(type);
+        super.setCreatedAt(createdAt);
+        super.setUpdatedAt(updatedAt);
+    }
+    
+    @Override
+    public void preUpdate() { throw readOnly(); }
+    
+    @Override
+    public void setId(Long id) { throw readOnly(); }
+    
+    @Override
+    public void setName(String name) { throw readOnly(); }
+    
+    @Override
+    public void setDescription(String description) { throw readOnly(); }
+    
+    @Override
+    public void setLatitude(Double latitude) { throw readOnly(); }
+    
+    @Override
+    public void setLongitude(Double longitude) { throw readOnly(); }
+    
+    @Override
+    public void setType(LocationType type) { throw readOnly(); }
+    
+    @Override
+    public void setCreatedAt(LocalDateTime createdAt) { throw readOnly(); }
+    
+    @Override
+    public void setUpdatedAt(LocalDateTime updatedAt) { throw readOnly(); }
+    
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Locations of the read model cannot be changed");
+    }
+}
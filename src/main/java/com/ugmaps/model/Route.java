@@ -0,0 +1,45 @@
+package com.ugmaps.model;
+
+import java.util.List;
+
+// Walking route between two locations, as returned by /api/routes
+public class Route {
+    
+    private final Long fromLocationId;
+    private final Long toLocationId;
+    private final double distance;
+    private final long duration;
+    private final List<Long> locationIds;
+    private final List<double[]> polyline;
+    private final boolean synthetic;
+    
+    public Route(Long fromLocationId, Long toLocationId, double distance, long duration,
+                 List<Long> locationIds, List<double[]> polyline, boolean synthetic) {
+        this.fromLocationId = fromLocationId;
+        this.toLocationId = toLocationId;
+        this.distance = distance;
+        this.duration = duration;
+        this.locationIds = locationIds;
+        this.polyline = polyline;
+        this.synthetic = synthetic;
+    }
+    
+    public Long getFromLocationId() { return fromLocationId; }
+    
+    public Long getToLocationId() { return toLocationId; }
+    
+    // Total walking distance in metres
+    public double getDistance() { return distance; }
+    
+    // Estimated walking time in seconds
+    public long getDuration() { return duration; }
+    
+    // Locations passed through, start and end included
+    public List<Long> getLocationIds() { return locationIds; }
+    
+    // [latitude, longitude] pairs
+    public List<double[]> getPolyline() { return polyline; }
+    
+    // Whether any step follows a placeholder path instead of a surveyed footpath
+    public boolean isSynthetic() { return synthetic; }
+}
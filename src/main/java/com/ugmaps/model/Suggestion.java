@@ -0,0 +1,43 @@
+package com.ugmaps.model;
+
+// Autocomplete suggestion returned by /api/locations/autocomplete
+public class Suggestion {
+    
+    public static final String KIND_LOCATION = "location";
+    public static final String KIND_ALIAS = "alias";
+    public static final String KIND_TYPE = "type";
+    
+    private final String text;
+    private final String kind;
+    private final Long locationId;
+    private final String locationName;
+    private final LocationType type;
+    private final double score;
+    
+    public Suggestion(String text, String kind, Long locationId, String locationName, LocationType type, double score) {
+        this.text = text;
+        this.kind = kind;
+        this.locationId = locationId;
+        this.locationName = locationName;
+        this.type = type;
+        this.score = score;
+    }
+    
+    public Suggestion withScore(double score) {
+        return new Suggestion(text, kind, locationId, locationName, type, score);
+    }
+    
+    // The matched phrase: a location name, an alias such as 'Vandals' or a type name
+    public String getText() { return text; }
+    
+    public String getKind() { return kind; }
+    
+    // Null for type suggestions
+    public Long getLocationId() { return locationId; }
+    
+    public String getLocationName() { return locationName; }
+    
+    public LocationType getType() { return type; }
+    
+    public double getScore() { return score; }
+}
@@ -2,12 +2,17 @@ package com.ugmaps.repository;
 
 import com.ugmaps.model.Location;
 import com.ugmaps.model.LocationType;
+import com.ugmaps.storage.TableFingerprint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long> {
@@ -32,4 +37,27 @@ public interface LocationRepository extends JpaRepository<Location, Long> {
     
     // Find all locations (nearest calculation will be done in service layer)
     List<Location> findAll();
+    
+    // Row count, highest id and latest update, to tell whether a read model snapshot is current
+    @Query("SELECT new com.ugmaps.storage.TableFingerprint(COUNT(l), MAX(l.id), MAX(l.updatedAt)) FROM Location l")
+    TableFingerprint fingerprint();
+    
+    // Cursor over all locations for exports; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l FROM Location l ORDER BY l.id")
+    Stream<Location> streamAll();
+    
+    // Cursor over a bounding box for streaming responses; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l FROM Location l WHERE l.latitude BETWEEN :minLat AND :maxLat AND l.longitude BETWEEN :minLon AND :maxLon ORDER BY l.id")
+    Stream<Location> streamWithinBounds(@Param("minLat") Double minLat,
+                                        @Param("maxLat") Double maxLat,
+                                        @Param("minLon") Double minLon,
+                                        @Param("maxLon") Double maxLon);
 }
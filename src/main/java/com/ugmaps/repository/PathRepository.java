@@ -0,0 +1,19 @@
+package com.ugmaps.repository;
+
+import com.ugmaps.model.Path;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface PathRepository extends JpaRepository<Path, Long> {
+    
+    // Remove every path touching a location (used when the location is deleted)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Path p WHERE p.fromLocationId = :locationId OR p.toLocationId = :locationId")
+    int deleteByLocationId(@Param("locationId") Long locationId);
+}
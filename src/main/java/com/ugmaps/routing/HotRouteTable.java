@@ -0,0 +1,92 @@
+package com.ugmaps.routing;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed shortest-path trees rooted at the busiest destinations of one
+ * {@link WalkingGraph}. A route to or from a hot destination becomes a table lookup
+ * plus unpacking of the tree's next-hop chain instead of a search. When the graph changes,
+ * {@link #update} recomputes only the trees the changed edges can affect.
+ */
+public final class HotRouteTable {
+
+    private static final HotRouteTable EMPTY = new HotRouteTable(new HashMap<>(), 0);
+
+    private final Map<Integer, WalkingGraph.ShortestPathTree> treesByRoot;
+    // Trees computed rather than carried over when this table was made
+    private final int computed;
+
+    private HotRouteTable(Map<Integer, WalkingGraph.ShortestPathTree> treesByRoot, int computed) {
+        this.treesByRoot = treesByRoot;
+        this.computed = computed;
+    }
+
+    public static HotRouteTable empty() {
+        return EMPTY;
+    }
+
+    public static HotRouteTable build(WalkingGraph graph, Collection<Long> hotLocationIds) {
+        Map<Integer, WalkingGraph.ShortestPathTree> trees = new HashMap<>();
+        for (Long locationId : hotLocationIds) {
+            int root = graph.indexOf(locationId);
+            if (root >= 0 && !trees.containsKey(root)) {
+                trees.put(root, graph.shortestPathTree(root));
+            }
+        }
+        return new HotRouteTable(trees, trees.size());
+    }
+
+    /**
+     * Table for the next version of the graph: trees of destinations still hot are carried over
+     * unless the changes affect them (see {@link WalkingGraph.ShortestPathTree#affectedBy}), the
+     * others are computed on the new graph.
+     */
+    public HotRouteTable update(WalkingGraph graph, WalkingGraph.EdgeChanges changes, Collection<Long> hotLocationIds) {
+        Map<Integer, WalkingGraph.ShortestPathTree> trees = new HashMap<>();
+        int recomputed = 0;
+        for (Long locationId : hotLocationIds) {
+            int root = graph.indexOf(locationId);
+            if (root < 0 || trees.containsKey(root)) {
+                continue;
+            }
+            WalkingGraph.ShortestPathTree tree = treesByRoot.get(root);
+            if (tree == null || tree.affectedBy(changes)) {
+                tree = graph.shortestPathTree(root);
+                recomputed++;
+            }
+            trees.put(root, tree);
+        }
+        return new HotRouteTable(trees, recomputed);
+    }
+
+    public int size() {
+        return treesByRoot.size();
+    }
+
+    public int getComputed() {
+        return computed;
+    }
+
+    WalkingGraph.ShortestPathTree tree(int root) {
+        return treesByRoot.get(root);
+    }
+
+    // Shortest path between two node indices if either end is a hot destination, otherwise null
+    public WalkingGraph.ShortestPath find(int source, int target) {
+        WalkingGraph.ShortestPathTree tree = treesByRoot.get(target);
+        if (tree != null) {
+            return tree.pathToRoot(source);
+        }
+        tree = treesByRoot.get(source);
+        if (tree != null) {
+            return tree.pathFromRoot(target);
+        }
+        return null;
+    }
+
+    public boolean covers(int source, int target) {
+        return treesByRoot.containsKey(target) || treesByRoot.containsKey(source);
+    }
+}
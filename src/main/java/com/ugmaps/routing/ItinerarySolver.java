@@ -0,0 +1,422 @@
+package com.ugmaps.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Orders the stops of a walk over a symmetric distance matrix. Node 0 is the fixed start;
+ * every other node belongs to exactly one group, and the walk visits one node of each group
+ * (a group of one for a given location, several candidates for "any location of a type").
+ * The walk either ends at its last stop or returns to the start.
+ *
+ * Up to {@code exactMaxGroups} groups are solved exactly by Held-Karp dynamic programming over
+ * subsets of groups. Larger instances run independent local searches on a fork-join pool:
+ * 2-opt, Or-opt moves of up to three stops and re-choosing each group's node, restarted with
+ * random double-bridge kicks until the deadline. The shortest walk found wins.
+ */
+public final class ItinerarySolver {
+
+    // Held-Karp steps (subsets x nodes x nodes) above which the exact solver is not used
+    private static final long MAX_EXACT_STEPS = 1L << 24;
+    // Kicks per search without improvement before a search gives up early
+    private static final int MAX_IDLE_KICKS = 50;
+    private static final int MAX_SEGMENT = 3;
+
+    private final double[][] distances;
+    private final int[][] groups;
+    private final int[] groupOf;
+    private final boolean closed;
+
+    private ItinerarySolver(double[][] distances, int[][] groups, boolean closed) {
+        this.distances = distances;
+        this.groups = groups;
+        this.closed = closed;
+        this.groupOf = new int[distances.length];
+        Arrays.fill(groupOf, -1);
+        for (int group = 0; group < groups.length; group++) {
+            for (int node : groups[group]) {
+                groupOf[node] = group;
+            }
+        }
+    }
+
+    /**
+     * Returns the visiting order, one node per group. {@code closed} adds the walk back to the
+     * start. Searches on {@code pool} stop at {@code deadlineNanos} (a System.nanoTime value).
+     */
+    public static Solution solve(double[][] distances, int[][] groups, boolean closed, int exactMaxGroups,
+                                 ForkJoinPool pool, int searches, long deadlineNanos) {
+        ItinerarySolver solver = new ItinerarySolver(distances, groups, closed);
+        if (groups.length == 0) {
+            return new Solution(new int[0], 0, true);
+        }
+        if (groups.length <= exactMaxGroups && (1L << groups.length) * distances.length * distances.length <= MAX_EXACT_STEPS) {
+            return solver.heldKarp();
+        }
+        return solver.localSearch(pool, Math.max(1, searches), deadlineNanos);
+    }
+
+    // Exact: shortest walk over every subset of groups ending at each node
+    private Solution heldKarp() {
+        int g = groups.length;
+        int n = distances.length;
+        int full = (1 << g) - 1;
+        double[][] best = new double[1 << g][];
+        int[][] previous = new int[1 << g][];
+        for (int group = 0; group < g; group++) {
+            int mask = 1 << group;
+            best[mask] = newRow(n);
+            previous[mask] = new int[n];
+            for (int node : groups[group]) {
+                best[mask][node] = distances[0][node];
+                previous[mask][node] = 0;
+            }
+        }
+
+        for (int mask = 1; mask < full; mask++) {
+            if (best[mask] == null) {
+                continue;
+            }
+            for (int last = 0; last < g; last++) {
+                if ((mask & (1 << last)) == 0) {
+                    continue;
+                }
+                for (int node : groups[last]) {
+                    double length = best[mask][node];
+                    if (length == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    for (int group = 0; group < g; group++) {
+                        if ((mask & (1 << group)) != 0) {
+                            continue;
+                        }
+                        int next = mask | (1 << group);
+                        if (best[next] == null) {
+                            best[next] = newRow(n);
+                            previous[next] = new int[n];
+                        }
+                        for (int candidate : groups[group]) {
+                            double extended = length + distances[node][candidate];
+                            if (extended < best[next][candidate]) {
+                                best[next][candidate] = extended;
+                                previous[next][candidate] = node;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        int end = -1;
+        double shortest = Double.POSITIVE_INFINITY;
+        for (int node = 1; node < n; node++) {
+            double length = best[full][node] + (closed ? distances[node][0] : 0);
+            if (length < shortest) {
+                shortest = length;
+                end = node;
+            }
+        }
+        int[] order = new int[g];
+        for (int i = g - 1, node = end, mask = full; i >= 0; i--) {
+            order[i] = node;
+            int before = previous[mask][node];
+            mask &= ~(1 << groupOf[node]);
+            node = before;
+        }
+        return new Solution(order, shortest, true);
+    }
+
+    private Solution localSearch(ForkJoinPool pool, int searches, long deadlineNanos) {
+        List<Callable<int[]>> tasks = new ArrayList<>(searches);
+        for (int i = 0; i < searches; i++) {
+            long seed = i;
+            tasks.add(() -> search(new SplittableRandom(seed), seed == 0, deadlineNanos));
+        }
+        int[] bestOrder = null;
+        double bestLength = Double.POSITIVE_INFINITY;
+        try {
+            for (Future<int[]> result : pool.invokeAll(tasks)) {
+                int[] order = result.get();
+                double length = length(order);
+                if (length < bestLength) {
+                    bestLength = length;
+                    bestOrder = order;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while ordering stops", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ordering stops failed", e.getCause());
+        }
+        return new Solution(bestOrder, bestLength, false);
+    }
+
+    // One iterated local search: a start tour, then improve and kick until the deadline
+    private int[] search(SplittableRandom random, boolean nearestNeighbour, long deadlineNanos) {
+        int[] order = nearestNeighbour ? nearestNeighbourTour() : randomTour(random);
+        improve(order, deadlineNanos);
+        int[] best = order.clone();
+        double bestLength = length(best);
+        int idle = 0;
+        while (order.length > 1 && idle < MAX_IDLE_KICKS && System.nanoTime() - deadlineNanos < 0) {
+            order = kick(best, random);
+            improve(order, deadlineNanos);
+            double length = length(order);
+            if (length < bestLength - 1e-9) {
+                best = order.clone();
+                bestLength = length;
+                idle = 0;
+            } else {
+                idle++;
+            }
+        }
+        return best;
+    }
+
+    // First-improvement descent over 2-opt, Or-opt and group re-choice until none applies;
+    // at least one round runs even when the deadline has passed
+    private void improve(int[] order, long deadlineNanos) {
+        boolean improved;
+        do {
+            improved = twoOpt(order) | orOpt(order) | rechoose(order);
+        } while (improved && System.nanoTime() - deadlineNanos < 0);
+    }
+
+    // Reverses order[i..j] when that shortens the walk
+    private boolean twoOpt(int[] order) {
+        boolean improved = false;
+        int g = order.length;
+        for (int i = 0; i < g - 1; i++) {
+            for (int j = i + 1; j < g; j++) {
+                int before = i == 0 ? 0 : order[i - 1];
+                double removed = distances[before][order[i]] + after(order, j, order[j]);
+                double added = distances[before][order[j]] + after(order, j, order[i]);
+                if (added < removed - 1e-9) {
+                    reverse(order, i, j);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    // Moves a run of up to MAX_SEGMENT stops, possibly reversed, to a better place
+    private boolean orOpt(int[] order) {
+        boolean improved = false;
+        int g = order.length;
+        for (int length = 1; length <= Math.min(MAX_SEGMENT, g - 1); length++) {
+            for (int i = 0; i + length <= g; i++) {
+                int first = order[i];
+                int last = order[i + length - 1];
+                int before = i == 0 ? 0 : order[i - 1];
+                double gain = distances[before][first] + after(order, i + length - 1, last)
+                        - (i + length < g ? distances[before][order[i + length]] : closed ? distances[before][0] : 0);
+
+                // Insert between position p-1 and p of the walk without the run
+                int bestPosition = -1;
+                boolean bestReversed = false;
+                double bestDelta = -1e-9;
+                for (int p = 0; p <= g; p++) {
+                    if (p >= i && p <= i + length) {
+                        continue;
+                    }
+                    int left = p == 0 ? 0 : order[p - 1];
+                    boolean atEnd = p == g;
+                    int right = atEnd ? 0 : order[p];
+                    double bridge = atEnd ? (closed ? distances[left][0] : 0) : distances[left][right];
+                    double forward = distances[left][first] + (atEnd && !closed ? 0 : distances[last][right]) - bridge;
+                    double backward = distances[left][last] + (atEnd && !closed ? 0 : distances[first][right]) - bridge;
+                    if (forward - gain < bestDelta) {
+                        bestDelta = forward - gain;
+                        bestPosition = p;
+                        bestReversed = false;
+                    }
+                    if (backward - gain < bestDelta) {
+                        bestDelta = backward - gain;
+                        bestPosition = p;
+                        bestReversed = true;
+                    }
+                }
+                if (bestPosition >= 0) {
+                    move(order, i, length, bestPosition, bestReversed);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    // Visits another node of the same group where that is shorter
+    private boolean rechoose(int[] order) {
+        boolean improved = false;
+        for (int i = 0; i < order.length; i++) {
+            int[] candidates = groups[groupOf[order[i]]];
+            if (candidates.length == 1) {
+                continue;
+            }
+            int before = i == 0 ? 0 : order[i - 1];
+            double current = distances[before][order[i]] + after(order, i, order[i]);
+            for (int candidate : candidates) {
+                double length = distances[before][candidate] + after(order, i, candidate);
+                if (length < current - 1e-9) {
+                    current = length;
+                    order[i] = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    // Distance from `node` standing at position i to whatever follows position i
+    private double after(int[] order, int i, int node) {
+        if (i + 1 < order.length) {
+            return distances[node][order[i + 1]];
+        }
+        return closed ? distances[node][0] : 0;
+    }
+
+    private int[] nearestNeighbourTour() {
+        int g = groups.length;
+        int[] order = new int[g];
+        boolean[] visited = new boolean[g];
+        int current = 0;
+        for (int i = 0; i < g; i++) {
+            int bestNode = -1;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int group = 0; group < g; group++) {
+                if (visited[group]) {
+                    continue;
+                }
+                for (int node : groups[group]) {
+                    if (bestNode < 0 || distances[current][node] < bestDistance) {
+                        bestDistance = distances[current][node];
+                        bestNode = node;
+                    }
+                }
+            }
+            visited[groupOf[bestNode]] = true;
+            order[i] = bestNode;
+            current = bestNode;
+        }
+        return order;
+    }
+
+    private int[] randomTour(SplittableRandom random) {
+        int g = groups.length;
+        int[] order = new int[g];
+        for (int group = 0; group < g; group++) {
+            order[group] = groups[group][random.nextInt(groups[group].length)];
+        }
+        for (int i = g - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int node = order[i];
+            order[i] = order[j];
+            order[j] = node;
+        }
+        return order;
+    }
+
+    // A perturbed copy for the next descent: a double bridge with one stop visited at another
+    // candidate of its group, or a fresh random walk when there are too few stops for a bridge
+    private int[] kick(int[] best, SplittableRandom random) {
+        if (best.length < 8) {
+            return randomTour(random);
+        }
+        int[] order = best.clone();
+        doubleBridge(order, random);
+        int i = random.nextInt(order.length);
+        int[] candidates = groups[groupOf[order[i]]];
+        order[i] = candidates[random.nextInt(candidates.length)];
+        return order;
+    }
+
+    // Cuts the walk into four runs A B C D and reconnects them as A C B D
+    private static void doubleBridge(int[] order, SplittableRandom random) {
+        int g = order.length;
+        int a = 1 + random.nextInt(g / 4);
+        int b = a + 1 + random.nextInt(g / 4);
+        int c = b + 1 + random.nextInt(g / 4);
+        int[] kicked = new int[g];
+        int k = 0;
+        for (int i = 0; i < a; i++) {
+            kicked[k++] = order[i];
+        }
+        for (int i = b; i < c; i++) {
+            kicked[k++] = order[i];
+        }
+        for (int i = a; i < b; i++) {
+            kicked[k++] = order[i];
+        }
+        for (int i = c; i < g; i++) {
+            kicked[k++] = order[i];
+        }
+        System.arraycopy(kicked, 0, order, 0, g);
+    }
+
+    private static void reverse(int[] order, int i, int j) {
+        for (; i < j; i++, j--) {
+            int node = order[i];
+            order[i] = order[j];
+            order[j] = node;
+        }
+    }
+
+    // Moves order[i .. i + length) so it starts before position p of the original order
+    private static void move(int[] order, int i, int length, int p, boolean reversed) {
+        int[] run = Arrays.copyOfRange(order, i, i + length);
+        if (reversed) {
+            reverse(run, 0, run.length - 1);
+        }
+        int[] rest = new int[order.length - length];
+        System.arraycopy(order, 0, rest, 0, i);
+        System.arraycopy(order, i + length, rest, i, order.length - i - length);
+        int at = p > i ? p - length : p;
+        System.arraycopy(rest, 0, order, 0, at);
+        System.arraycopy(run, 0, order, at, length);
+        System.arraycopy(rest, at, order, at + length, rest.length - at);
+    }
+
+    private double length(int[] order) {
+        double length = 0;
+        int current = 0;
+        for (int node : order) {
+            length += distances[current][node];
+            current = node;
+        }
+        return closed ? length + distances[current][0] : length;
+    }
+
+    private static double[] newRow(int n) {
+        double[] row = new double[n];
+        Arrays.fill(row, Double.POSITIVE_INFINITY);
+        return row;
+    }
+
+    // Nodes in visiting order (the start excluded) and the walk's length
+    public static final class Solution {
+        private final int[] order;
+        private final double length;
+        private final boolean optimal;
+
+        Solution(int[] order, double length, boolean optimal) {
+            this.order = order;
+            this.length = length;
+            this.optimal = optimal;
+        }
+
+        public int[] getOrder() { return order; }
+
+        public double getLength() { return length; }
+
+        // Whether the exact solver produced it
+        public boolean isOptimal() { return optimal; }
+    }
+}
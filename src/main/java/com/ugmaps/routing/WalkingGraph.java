@@ -0,0 +1,804 @@
+package com.ugmaps.routing;
+
+import com.ugmaps.index.GeoDistance;
+import com.ugmaps.index.LongTrieMap;
+import com.ugmaps.index.SpatialIndex;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.Path;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable walking graph over campus locations in compressed sparse row layout.
+ *
+ * The outgoing edges of node {@code n} are {@code targets[offsets[n] .. offsets[n + 1])}
+ * with lengths in metres in the matching {@code weights} slots. Paths are walkable in
+ * both directions, so every {@link Path} contributes two edges. Nodes with at least one edge
+ * are also kept in a spatial index, which is where a walk from an arbitrary point joins the
+ * network.
+ *
+ * {@link #withChanges} derives the next version in memory from an {@link Update}. Node indices
+ * are stable across versions: a removed location keeps its index, without edges, and new
+ * locations are appended, so results computed on one version (such as shortest-path trees)
+ * can be checked against the {@link EdgeChanges} and kept when no change affects them.
+ */
+public final class WalkingGraph {
+
+    // Grid cell size of the connected-node index in degrees (~110 m)
+    private static final double CELL_SIZE = 0.001;
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    // Unique per graph and increasing with every build or change, for caches of derived results
+    private final long version = VERSIONS.incrementAndGet();
+    private final long[] nodeIds;
+    private final double[] lats;
+    private final double[] lons;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    // Undirected edge behind each slot of targets
+    private final int[] edgeOf;
+    private final Edges edges;
+    // Nodes of present locations only
+    private final LongTrieMap<Integer> indexById;
+    // Node indices of the nodes that have edges
+    private final SpatialIndex connected;
+
+    private WalkingGraph(long[] nodeIds, double[] lats, double[] lons, Edges edges,
+                         LongTrieMap<Integer> indexById, SpatialIndex connected) {
+        int nodeCount = nodeIds.length;
+        int[] degree = new int[nodeCount];
+        for (int e = 0; e < edges.count; e++) {
+            degree[edges.from[e]]++;
+            degree[edges.to[e]]++;
+        }
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] = offsets[i] + degree[i];
+        }
+        int[] targets = new int[offsets[nodeCount]];
+        double[] weights = new double[offsets[nodeCount]];
+        int[] edgeOf = new int[offsets[nodeCount]];
+        int[] cursor = Arrays.copyOf(offsets, nodeCount);
+        for (int e = 0; e < edges.count; e++) {
+            int forward = cursor[edges.from[e]]++;
+            targets[forward] = edges.to[e];
+            weights[forward] = edges.weight[e];
+            edgeOf[forward] = e;
+            int backward = cursor[edges.to[e]]++;
+            targets[backward] = edges.from[e];
+            weights[backward] = edges.weight[e];
+            edgeOf[backward] = e;
+        }
+        this.nodeIds = nodeIds;
+        this.lats = lats;
+        this.lons = lons;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.edgeOf = edgeOf;
+        this.edges = edges;
+        this.indexById = indexById;
+        this.connected = connected;
+    }
+
+    public static WalkingGraph build(List<Location> locations, List<Path> paths) {
+        int nodeCount = locations.size();
+        long[] nodeIds = new long[nodeCount];
+        double[] lats = new double[nodeCount];
+        double[] lons = new double[nodeCount];
+        LongTrieMap<Integer> indexById = new LongTrieMap<>();
+        for (int i = 0; i < nodeCount; i++) {
+            Location location = locations.get(i);
+            nodeIds[i] = location.getId();
+            lats[i] = location.getLatitude();
+            lons[i] = location.getLongitude();
+            indexById.put(location.getId(), i);
+        }
+
+        // Resolve endpoints once; paths pointing at unknown locations are skipped
+        Edges edges = new Edges(paths.size());
+        boolean[] hasEdges = new boolean[nodeCount];
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            Integer a = indexById.get(path.getFromLocationId());
+            Integer b = indexById.get(path.getToLocationId());
+            if (a == null || b == null || a.equals(b)) {
+                continue;
+            }
+            // Paths not saved yet get keys of their own
+            long key = path.getId() != null ? path.getId() : -1 - i;
+            double declared = path.getDistance() != null ? path.getDistance() : Double.NaN;
+            edges.add(key, a, b, declared, length(declared, lats, lons, a, b), path.isSynthetic());
+            hasEdges[a] = true;
+            hasEdges[b] = true;
+        }
+
+        SpatialIndex connected = new SpatialIndex(CELL_SIZE);
+        for (int i = 0; i < nodeCount; i++) {
+            if (hasEdges[i]) {
+                connected.put(i, lats[i], lons[i]);
+            }
+        }
+        return new WalkingGraph(nodeIds, lats, lons, edges, indexById, connected);
+    }
+
+    /**
+     * Next version with the update applied; this one stays as it is. Costs a pass over the
+     * node and edge arrays but no database access; the connected-node index is copied and
+     * changed only where nodes moved or gained or lost their last edge.
+     */
+    public Patch withChanges(Update update) {
+        int oldCount = nodeIds.length;
+        LongTrieMap<Integer> nextIndex = indexById.copy();
+        int added = 0;
+        for (Map.Entry<Long, double[]> node : update.nodes.entrySet()) {
+            if (node.getValue() != null && !indexById.containsKey(node.getKey())) {
+                added++;
+            }
+        }
+        long[] nextIds = Arrays.copyOf(nodeIds, oldCount + added);
+        double[] nextLats = Arrays.copyOf(lats, oldCount + added);
+        double[] nextLons = Arrays.copyOf(lons, oldCount + added);
+        // Nodes whose position or presence changed
+        boolean[] touched = new boolean[nextIds.length];
+        int appended = oldCount;
+        for (Map.Entry<Long, double[]> node : update.nodes.entrySet()) {
+            long id = node.getKey();
+            double[] position = node.getValue();
+            if (position == null) {
+                Integer removed = nextIndex.remove(id);
+                if (removed != null) {
+                    touched[removed] = true;
+                }
+                continue;
+            }
+            Integer existing = nextIndex.get(id);
+            int slot = existing != null ? existing : appended++;
+            if (existing == null) {
+                nextIds[slot] = id;
+                nextIndex.put(id, slot);
+            }
+            if (existing == null || nextLats[slot] != position[0] || nextLons[slot] != position[1]) {
+                nextLats[slot] = position[0];
+                nextLons[slot] = position[1];
+                touched[slot] = true;
+            }
+        }
+
+        EdgeChanges changes = new EdgeChanges();
+        Edges nextEdges = new Edges(edges.count + update.paths.size());
+        for (int e = 0; e < edges.count; e++) {
+            int a = edges.from[e];
+            int b = edges.to[e];
+            boolean present = nextIndex.containsKey(nextIds[a]) && nextIndex.containsKey(nextIds[b]);
+            if (!present || update.paths.containsKey(edges.key[e])) {
+                // A replaced path comes back below as a new edge
+                changes.add(a, b, edges.weight[e], Double.NaN);
+                continue;
+            }
+            double weight = edges.weight[e];
+            if (touched[a] || touched[b]) {
+                weight = length(edges.declared[e], nextLats, nextLons, a, b);
+                if (weight != edges.weight[e]) {
+                    changes.add(a, b, edges.weight[e], weight);
+                }
+            }
+            nextEdges.add(edges.key[e], a, b, edges.declared[e], weight, edges.synthetic[e]);
+        }
+        for (Map.Entry<Long, Path> entry : update.paths.entrySet()) {
+            Path path = entry.getValue();
+            if (path == null) {
+                continue;
+            }
+            Integer a = nextIndex.get(path.getFromLocationId());
+            Integer b = nextIndex.get(path.getToLocationId());
+            if (a == null || b == null || a.equals(b)) {
+                continue;
+            }
+            double declared = path.getDistance() != null ? path.getDistance() : Double.NaN;
+            double weight = length(declared, nextLats, nextLons, a, b);
+            nextEdges.add(entry.getKey(), a, b, declared, weight, path.isSynthetic());
+            changes.add(a, b, Double.NaN, weight);
+        }
+
+        // Only nodes that moved or whose edges changed can enter or leave the connected index
+        boolean[] hadEdges = new boolean[nextIds.length];
+        for (int node = 0; node < oldCount; node++) {
+            hadEdges[node] = hasEdges(node);
+        }
+        boolean[] hasEdges = new boolean[nextIds.length];
+        for (int e = 0; e < nextEdges.count; e++) {
+            hasEdges[nextEdges.from[e]] = true;
+            hasEdges[nextEdges.to[e]] = true;
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            touched[changes.from(i)] = true;
+            touched[changes.to(i)] = true;
+        }
+        SpatialIndex nextConnected = connected.copy();
+        for (int node = 0; node < nextIds.length; node++) {
+            if (touched[node]) {
+                if (hadEdges[node]) {
+                    nextConnected.remove(node, lats[node], lons[node]);
+                }
+                if (hasEdges[node]) {
+                    nextConnected.put(node, nextLats[node], nextLons[node]);
+                }
+            }
+        }
+        return new Patch(new WalkingGraph(nextIds, nextLats, nextLons, nextEdges, nextIndex, nextConnected), changes);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Node indices, removed locations' included; node arrays are this long
+    public int nodeCount() {
+        return nodeIds.length;
+    }
+
+    // Locations present in the graph
+    public int locationCount() {
+        return indexById.size();
+    }
+
+    // Directed edges, two per path
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    // Node index for a location id, or -1 if the location is not part of the graph
+    public int indexOf(long locationId) {
+        Integer index = indexById.get(locationId);
+        return index != null ? index : -1;
+    }
+
+    public long nodeId(int node) {
+        return nodeIds[node];
+    }
+
+    public double latitude(int node) {
+        return lats[node];
+    }
+
+    public double longitude(int node) {
+        return lons[node];
+    }
+
+    // Whether any path starts or ends at the node
+    public boolean hasEdges(int node) {
+        return offsets[node + 1] > offsets[node];
+    }
+
+    // Closest node with footpaths to an arbitrary coordinate, or -1 when no node has any
+    public int nearestConnectedNode(double latitude, double longitude) {
+        int[] nodes = nearestConnectedNodes(latitude, longitude, 1, Double.POSITIVE_INFINITY);
+        return nodes.length > 0 ? nodes[0] : -1;
+    }
+
+    // Up to `limit` nodes with footpaths within maxRadiusMetres of a coordinate, nearest first
+    public int[] nearestConnectedNodes(double latitude, double longitude, int limit, double maxRadiusMetres) {
+        long[] nodes = connected.nearest(latitude, longitude, limit, maxRadiusMetres);
+        int[] result = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            result[i] = (int) nodes[i];
+        }
+        return result;
+    }
+
+    // Whether a walk along the given nodes uses a placeholder path for any step
+    public boolean isSynthetic(int[] nodes) {
+        for (int i = 1; i < nodes.length; i++) {
+            // The search took the shortest of any parallel edges
+            int best = -1;
+            for (int e = offsets[nodes[i - 1]]; e < offsets[nodes[i - 1] + 1]; e++) {
+                if (targets[e] == nodes[i] && (best < 0 || weights[e] < weights[best])) {
+                    best = e;
+                }
+            }
+            if (best >= 0 && edges.synthetic[edgeOf[best]]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A* search between two node indices using the haversine distance to the target as
+     * heuristic. Returns null when the target cannot be reached.
+     */
+    public ShortestPath shortestPath(int source, int target) {
+        int n = nodeIds.length;
+        double[] distances = new double[n];
+        int[] parents = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(parents, -1);
+
+        NodeHeap open = new NodeHeap(16);
+        distances[source] = 0;
+        open.push(source, heuristic(source, target));
+
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (settled[node]) {
+                continue;
+            }
+            if (node == target) {
+                return new ShortestPath(unpack(parents, target), distances[target]);
+            }
+            settled[node] = true;
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int next = targets[e];
+                double candidate = distances[node] + weights[e];
+                if (!settled[next] && candidate < distances[next]) {
+                    distances[next] = candidate;
+                    parents[next] = node;
+                    open.push(next, candidate + heuristic(next, target));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Full Dijkstra from {@code root}. Since every path is walkable both ways, the resulting
+     * tree answers "shortest path from any node to root" as well as "from root to any node".
+     */
+    public ShortestPathTree shortestPathTree(int root) {
+        int n = nodeIds.length;
+        double[] distances = new double[n];
+        int[] next = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(next, -1);
+
+        NodeHeap open = new NodeHeap(16);
+        distances[root] = 0;
+        open.push(root, 0);
+
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (settled[node]) {
+                continue;
+            }
+            settled[node] = true;
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int neighbour = targets[e];
+                double candidate = distances[node] + weights[e];
+                if (!settled[neighbour] && candidate < distances[neighbour]) {
+                    distances[neighbour] = candidate;
+                    next[neighbour] = node;
+                    open.push(neighbour, candidate);
+                }
+            }
+        }
+        return new ShortestPathTree(root, distances, next);
+    }
+
+    /**
+     * Dijkstra from several sources at once, each starting at its own distance (e.g. the walk
+     * from an arbitrary point to it), stopped as soon as the closest open node is further than
+     * {@code maxDistance} metres. Returns the settled nodes, nearest first.
+     */
+    public Reachable reachableWithin(int[] sources, double[] startDistances, double maxDistance) {
+        int n = nodeIds.length;
+        double[] distances = new double[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+
+        NodeHeap open = new NodeHeap(16);
+        for (int i = 0; i < sources.length; i++) {
+            if (startDistances[i] <= maxDistance && startDistances[i] < distances[sources[i]]) {
+                distances[sources[i]] = startDistances[i];
+                open.push(sources[i], startDistances[i]);
+            }
+        }
+
+        int[] reachedNodes = new int[16];
+        double[] reachedDistances = new double[16];
+        int count = 0;
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (settled[node]) {
+                continue;
+            }
+            if (distances[node] > maxDistance) {
+                break;
+            }
+            settled[node] = true;
+            if (count == reachedNodes.length) {
+                reachedNodes = Arrays.copyOf(reachedNodes, count * 2);
+                reachedDistances = Arrays.copyOf(reachedDistances, count * 2);
+            }
+            reachedNodes[count] = node;
+            reachedDistances[count] = distances[node];
+            count++;
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int neighbour = targets[e];
+                double candidate = distances[node] + weights[e];
+                if (!settled[neighbour] && candidate < distances[neighbour]) {
+                    distances[neighbour] = candidate;
+                    open.push(neighbour, candidate);
+                }
+            }
+        }
+        return new Reachable(Arrays.copyOf(reachedNodes, count), Arrays.copyOf(reachedDistances, count));
+    }
+
+    /**
+     * Dijkstra from {@code source} that stops as soon as every node in {@code wantedNodes} is
+     * settled. Returns their distances in metres in the order given, infinity for targets in
+     * another component.
+     */
+    public double[] distancesTo(int source, int[] wantedNodes) {
+        int n = nodeIds.length;
+        double[] distances = new double[n];
+        boolean[] settled = new boolean[n];
+        boolean[] wanted = new boolean[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        int remaining = 0;
+        for (int target : wantedNodes) {
+            if (!wanted[target]) {
+                wanted[target] = true;
+                remaining++;
+            }
+        }
+
+        NodeHeap open = new NodeHeap(16);
+        distances[source] = 0;
+        open.push(source, 0);
+        while (remaining > 0 && !open.isEmpty()) {
+            int node = open.pop();
+            if (settled[node]) {
+                continue;
+            }
+            settled[node] = true;
+            if (wanted[node]) {
+                remaining--;
+            }
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int neighbour = targets[e];
+                double candidate = distances[node] + weights[e];
+                if (!settled[neighbour] && candidate < distances[neighbour]) {
+                    distances[neighbour] = candidate;
+                    open.push(neighbour, candidate);
+                }
+            }
+        }
+
+        double[] result = new double[wantedNodes.length];
+        for (int i = 0; i < wantedNodes.length; i++) {
+            result[i] = settled[wantedNodes[i]] ? distances[wantedNodes[i]] : Double.POSITIVE_INFINITY;
+        }
+        return result;
+    }
+
+    // Walking length of a path: its declared length (NaN for none), but never shorter than the
+    // straight line, which keeps the A* heuristic admissible
+    private static double length(double declared, double[] lats, double[] lons, int a, int b) {
+        double straightLine = GeoDistance.haversine(lats[a], lons[a], lats[b], lons[b]);
+        return Double.isNaN(declared) ? straightLine : Math.max(declared, straightLine);
+    }
+
+    private double heuristic(int node, int target) {
+        return GeoDistance.haversine(lats[node], lons[node], lats[target], lons[target]);
+    }
+
+    private static int[] unpack(int[] parents, int target) {
+        int length = 1;
+        for (int node = target; parents[node] != -1; node = parents[node]) {
+            length++;
+        }
+        int[] nodes = new int[length];
+        for (int node = target, i = length - 1; i >= 0; node = parents[node], i--) {
+            nodes[i] = node;
+        }
+        return nodes;
+    }
+
+    /**
+     * Changes for {@link #withChanges}: locations added, moved or removed and paths saved or
+     * deleted. The last change recorded for a location or path wins; a removed location takes
+     * its paths with it.
+     */
+    public static final class Update {
+        // Position by location id, null for a removal
+        private final Map<Long, double[]> nodes = new LinkedHashMap<>();
+        // Path by path id, null for a deletion
+        private final Map<Long, Path> paths = new LinkedHashMap<>();
+
+        public void putNode(long locationId, double latitude, double longitude) {
+            nodes.put(locationId, new double[] {latitude, longitude});
+        }
+
+        public void removeNode(long locationId) {
+            nodes.put(locationId, null);
+        }
+
+        public void putPath(Path path) {
+            paths.put(path.getId(), path);
+        }
+
+        public void removePath(long pathId) {
+            paths.put(pathId, null);
+        }
+
+        public boolean isEmpty() {
+            return nodes.isEmpty() && paths.isEmpty();
+        }
+
+        // Records the changes of `later` after the ones already here
+        public void addAll(Update later) {
+            for (Map.Entry<Long, double[]> node : later.nodes.entrySet()) {
+                nodes.remove(node.getKey());
+                nodes.put(node.getKey(), node.getValue());
+            }
+            for (Map.Entry<Long, Path> path : later.paths.entrySet()) {
+                paths.remove(path.getKey());
+                paths.put(path.getKey(), path.getValue());
+            }
+        }
+    }
+
+    // The next version of a graph and the undirected edges that differ from the version it came from
+    public static final class Patch {
+        private final WalkingGraph graph;
+        private final EdgeChanges changes;
+
+        Patch(WalkingGraph graph, EdgeChanges changes) {
+            this.graph = graph;
+            this.changes = changes;
+        }
+
+        public WalkingGraph getGraph() { return graph; }
+
+        public EdgeChanges getChanges() { return changes; }
+    }
+
+    // Undirected edges between two versions; a weight is NaN where the edge does not exist in that version
+    public static final class EdgeChanges {
+        private int[] from = new int[8];
+        private int[] to = new int[8];
+        private double[] before = new double[8];
+        private double[] after = new double[8];
+        private int size;
+
+        void add(int a, int b, double weightBefore, double weightAfter) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                before = Arrays.copyOf(before, size * 2);
+                after = Arrays.copyOf(after, size * 2);
+            }
+            from[size] = a;
+            to[size] = b;
+            before[size] = weightBefore;
+            after[size] = weightAfter;
+            size++;
+        }
+
+        public int size() { return size; }
+
+        public int from(int i) { return from[i]; }
+
+        public int to(int i) { return to[i]; }
+
+        public double before(int i) { return before[i]; }
+
+        public double after(int i) { return after[i]; }
+    }
+
+    // One entry per path: its key, end nodes, declared length (NaN for none) and walking length
+    private static final class Edges {
+        long[] key;
+        int[] from;
+        int[] to;
+        double[] declared;
+        double[] weight;
+        boolean[] synthetic;
+        int count;
+
+        Edges(int capacity) {
+            capacity = Math.max(capacity, 1);
+            key = new long[capacity];
+            from = new int[capacity];
+            to = new int[capacity];
+            declared = new double[capacity];
+            weight = new double[capacity];
+            synthetic = new boolean[capacity];
+        }
+
+        void add(long pathKey, int a, int b, double declaredLength, double walkingLength, boolean placeholder) {
+            if (count == key.length) {
+                int capacity = count * 2;
+                key = Arrays.copyOf(key, capacity);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                declared = Arrays.copyOf(declared, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                synthetic = Arrays.copyOf(synthetic, capacity);
+            }
+            key[count] = pathKey;
+            from[count] = a;
+            to[count] = b;
+            declared[count] = declaredLength;
+            weight[count] = walkingLength;
+            synthetic[count] = placeholder;
+            count++;
+        }
+    }
+
+    // Node indices from source to target and the total length in metres
+    public static final class ShortestPath {
+        private final int[] nodes;
+        private final double distance;
+
+        ShortestPath(int[] nodes, double distance) {
+            this.nodes = nodes;
+            this.distance = distance;
+        }
+
+        public int[] getNodes() { return nodes; }
+
+        public double getDistance() { return distance; }
+    }
+
+    // Shortest paths from every node towards one root; next[n] is the following hop from n
+    public static final class ShortestPathTree {
+        private final int root;
+        private final double[] distances;
+        private final int[] next;
+
+        ShortestPathTree(int root, double[] distances, int[] next) {
+            this.root = root;
+            this.distances = distances;
+            this.next = next;
+        }
+
+        public int getRoot() { return root; }
+
+        // Distance from the node to the root; nodes added after the tree was computed are unreachable
+        public double distance(int node) {
+            return node < distances.length ? distances[node] : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Whether the tree may no longer hold shortest paths once the changes are applied: a
+         * tree edge got longer or went away, or a new or shorter edge is a shortcut. Any other
+         * change leaves every distance and next hop as it is.
+         */
+        public boolean affectedBy(EdgeChanges changes) {
+            for (int i = 0; i < changes.size(); i++) {
+                int a = changes.from(i);
+                int b = changes.to(i);
+                double before = changes.before(i);
+                double after = changes.after(i);
+                boolean treeEdge = (a < next.length && next[a] == b) || (b < next.length && next[b] == a);
+                if (!Double.isNaN(before) && (Double.isNaN(after) || after > before) && treeEdge) {
+                    return true;
+                }
+                if (!Double.isNaN(after) && (Double.isNaN(before) || after < before)
+                        && (distance(a) + after < distance(b) || distance(b) + after < distance(a))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Path from source to the root, or null when the root is unreachable
+        public ShortestPath pathToRoot(int source) {
+            if (distance(source) == Double.POSITIVE_INFINITY) {
+                return null;
+            }
+            int length = 1;
+            for (int node = source; node != root; node = next[node]) {
+                length++;
+            }
+            int[] nodes = new int[length];
+            for (int node = source, i = 0; i < length; node = next[node], i++) {
+                nodes[i] = node;
+            }
+            return new ShortestPath(nodes, distances[source]);
+        }
+
+        // Path from the root to target (the reverse of pathToRoot)
+        public ShortestPath pathFromRoot(int target) {
+            ShortestPath toRoot = pathToRoot(target);
+            if (toRoot == null) {
+                return null;
+            }
+            int[] nodes = toRoot.getNodes();
+            for (int i = 0, j = nodes.length - 1; i < j; i++, j--) {
+                int node = nodes[i];
+                nodes[i] = nodes[j];
+                nodes[j] = node;
+            }
+            return toRoot;
+        }
+    }
+
+    // Nodes within a walking distance and their distances in metres, nearest first
+    public static final class Reachable {
+        private final int[] nodes;
+        private final double[] distances;
+
+        Reachable(int[] nodes, double[] distances) {
+            this.nodes = nodes;
+            this.distances = distances;
+        }
+
+        public int size() { return nodes.length; }
+
+        public int node(int i) { return nodes[i]; }
+
+        public double distance(int i) { return distances[i]; }
+    }
+
+    // Binary min-heap of node indices keyed by a priority; stale entries are skipped by the caller
+    private static final class NodeHeap {
+        private int[] nodes;
+        private double[] keys;
+        private int size;
+
+        NodeHeap(int capacity) {
+            nodes = new int[capacity];
+            keys = new double[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int node, double key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[index] = nodes[parent];
+                keys[index] = keys[parent];
+                index = parent;
+            }
+            nodes[index] = node;
+            keys[index] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            double lastKey = keys[size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                nodes[index] = nodes[child];
+                keys[index] = keys[child];
+                index = child;
+            }
+            nodes[index] = lastNode;
+            keys[index] = lastKey;
+            return top;
+        }
+    }
+}
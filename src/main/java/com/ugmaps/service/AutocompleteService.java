@@ -0,0 +1,129 @@
+package com.ugmaps.service;
+
+import com.ugmaps.index.AutocompleteIndex;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+import com.ugmaps.model.Suggestion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class AutocompleteService {
+    
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteService.class);
+    
+    // Nicknames are quoted in descriptions, e.g. "Male residential hall known as 'Vandals'"
+    private static final Pattern QUOTED_ALIAS = Pattern.compile("['\"‘“]([^'\"’”]{2,40})['\"’”]");
+    
+    private static final double NAME_WEIGHT = 1.0;
+    private static final double ALIAS_WEIGHT = 0.9;
+    private static final double TYPE_WEIGHT = 0.8;
+    
+    @Autowired
+    private LocationService locationService;
+    
+    private volatile AutocompleteIndex<Suggestion> index;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private ExecutorService rebuildExecutor;
+    
+    @PostConstruct
+    public void startRebuildExecutor() {
+        rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autocomplete-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void stopRebuildExecutor() {
+        rebuildExecutor.shutdownNow();
+    }
+    
+    public List<Suggestion> autocomplete(String query, int limit) {
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (query == null || query.isBlank()) {
+            return suggestions;
+        }
+        for (AutocompleteIndex.Match<Suggestion> match : getIndex().complete(query, limit)) {
+            suggestions.add(match.getEntry().getPayload().withScore(match.getScore()));
+        }
+        return suggestions;
+    }
+    
+    // Queries never wait for a rebuild; only the very first one builds synchronously
+    private AutocompleteIndex<Suggestion> getIndex() {
+        AutocompleteIndex<Suggestion> current = index;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (index == null) {
+                index = buildIndex();
+            }
+            return index;
+        }
+    }
+    
+    // Coalesces bursts of edits into a single background rebuild
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    index = buildIndex();
+                } catch (RuntimeException e) {
+                    log.warn("Rebuilding the autocomplete index failed, keeping the previous one", e);
+                }
+            });
+        }
+    }
+    
+    private AutocompleteIndex<Suggestion> buildIndex() {
+        return AutocompleteIndex.build(collectPhrases(locationService.getAllLocations()));
+    }
+    
+    private List<AutocompleteIndex.Entry<Suggestion>> collectPhrases(List<Location> locations) {
+        List<AutocompleteIndex.Entry<Suggestion>> phrases = new ArrayList<>();
+        for (Location location : locations) {
+            phrases.add(new AutocompleteIndex.Entry<>(location.getName(), location.getId(), NAME_WEIGHT,
+                    new Suggestion(location.getName(), Suggestion.KIND_LOCATION, location.getId(),
+                            location.getName(), location.getType(), 0)));
+            
+            if (location.getDescription() != null) {
+                Matcher matcher = QUOTED_ALIAS.matcher(location.getDescription());
+                while (matcher.find()) {
+                    String alias = matcher.group(1).trim();
+                    phrases.add(new AutocompleteIndex.Entry<>(alias, location.getId(), ALIAS_WEIGHT,
+                            new Suggestion(alias, Suggestion.KIND_ALIAS, location.getId(),
+                                    location.getName(), location.getType(), 0)));
+                }
+            }
+        }
+        
+        // Type groups use negative ids so they never collide with location ids
+        for (LocationType type : LocationType.values()) {
+            phrases.add(new AutocompleteIndex.Entry<>(type.getDisplayName(), -1L - type.ordinal(), TYPE_WEIGHT,
+                    new Suggestion(type.getDisplayName(), Suggestion.KIND_TYPE, null, null, type, 0)));
+        }
+        return phrases;
+    }
+    
+    @EventListener
+    public void onLocationChanged(LocationChangedEvent event) {
+        scheduleRebuild();
+    }
+}
@@ -0,0 +1,207 @@
+package com.ugmaps.service;
+
+import com.ugmaps.model.BatchQuery;
+import com.ugmaps.model.BatchResult;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+import com.ugmaps.model.Route;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Answers a list of heterogeneous queries against one consistent state of the location data;
+ * routes are checked against the same pinned version (see {@link RouteService}).
+ * Overlapping work is shared: identical nearest queries and identical searches run once, typed
+ * nearest queries only visit their type's spatial partition, and the locations of every result
+ * are loaded with one bulk lookup.
+ */
+@Service
+public class BatchQueryService {
+    
+    private static final int DEFAULT_NEAREST_LIMIT = 10;
+    
+    @Autowired
+    private LocationService locationService;
+    
+    @Autowired
+    private RouteService routeService;
+    
+    public List<BatchResult> execute(List<BatchQuery> queries) {
+        return locationService.readConsistent(() -> run(queries));
+    }
+    
+    private List<BatchResult> run(List<BatchQuery> queries) {
+        int count = queries.size();
+        long[][] resultIds = new long[count][];
+        BatchResult[] results = new BatchResult[count];
+        
+        // Nearest queries memoised by origin, radius and type, with the largest limit asked for
+        Map<List<Object>, long[]> nearestResults = new HashMap<>();
+        Map<String, long[]> searches = new HashMap<>();
+        
+        for (int i = 0; i < count; i++) {
+            BatchQuery query = queries.get(i);
+            String error = validate(query);
+            if (error != null) {
+                results[i] = BatchResult.ofError(query != null ? query.getQuery() : null, error);
+                continue;
+            }
+            switch (query.getQuery()) {
+                case NEAREST:
+                    long[] nearest = nearestResults.computeIfAbsent(nearestKey(query),
+                            key -> locationService.findNearestLocationIds(query.getLat(), query.getLon(), typeOf(query),
+                                    maxNearestLimit(queries, key), query.getMaxRadius()));
+                    resultIds[i] = truncate(nearest, limitOf(query, DEFAULT_NEAREST_LIMIT));
+                    break;
+                case BOUNDS:
+                    long[] within = locationService.findLocationIdsWithinBounds(
+                            query.getMinLat(), query.getMinLon(), query.getMaxLat(), query.getMaxLon());
+                    Arrays.sort(within);
+                    resultIds[i] = within;
+                    break;
+                case SEARCH:
+                    String term = query.getQ().trim();
+                    int searchLimit = limitOf(query, Integer.MAX_VALUE);
+                    long[] ranked = searches.computeIfAbsent(term,
+                            key -> locationService.searchLocationIds(key, maxSearchLimit(queries, key)));
+                    resultIds[i] = truncate(ranked, searchLimit);
+                    break;
+                case BY_ID:
+                    resultIds[i] = new long[] {query.getId()};
+                    break;
+                case ROUTE:
+                    Optional<Route> route = query.getFrom() != null
+                            ? routeService.findRoute(query.getFrom(), query.getTo())
+                            : routeService.findRoute(query.getFromLat(), query.getFromLon(), query.getTo());
+                    results[i] = route.map(BatchResult::ofRoute)
+                            .orElse(BatchResult.ofError(BatchQuery.Kind.ROUTE, "No route found"));
+                    break;
+            }
+        }
+        
+        // One bulk load for the locations of every result
+        Set<Long> allIds = new LinkedHashSet<>();
+        for (long[] ids : resultIds) {
+            if (ids != null) {
+                for (long id : ids) {
+                    allIds.add(id);
+                }
+            }
+        }
+        Map<Long, Location> locationsById = new HashMap<>();
+        for (Location location : locationService.getLocationsByIds(allIds.stream().mapToLong(Long::longValue).toArray())) {
+            locationsById.put(location.getId(), location);
+        }
+        
+        List<BatchResult> assembled = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (results[i] != null) {
+                assembled.add(results[i]);
+                continue;
+            }
+            BatchQuery query = queries.get(i);
+            List<Location> locations = new ArrayList<>(resultIds[i].length);
+            for (long id : resultIds[i]) {
+                Location location = locationsById.get(id);
+                if (location != null) {
+                    locations.add(location);
+                }
+            }
+            if (query.getQuery() == BatchQuery.Kind.BY_ID && locations.isEmpty()) {
+                assembled.add(BatchResult.ofError(BatchQuery.Kind.BY_ID, "Location not found: " + query.getId()));
+            } else {
+                assembled.add(BatchResult.ofLocations(query.getQuery(), locations));
+            }
+        }
+        return assembled;
+    }
+    
+    // Problem with the query's parameters, or null when it can run
+    private static String validate(BatchQuery query) {
+        if (query == null || query.getQuery() == null) {
+            return "Query kind is required";
+        }
+        if (query.getLimit() != null && query.getLimit() <= 0) {
+            return "limit must be positive";
+        }
+        switch (query.getQuery()) {
+            case NEAREST:
+                if (query.getLat() == null || query.getLon() == null) {
+                    return "lat and lon are required";
+                }
+                try {
+                    typeOf(query);
+                    return null;
+                } catch (IllegalArgumentException e) {
+                    return "Unknown location type: " + query.getType();
+                }
+            case BOUNDS:
+                return query.getMinLat() == null || query.getMaxLat() == null
+                        || query.getMinLon() == null || query.getMaxLon() == null
+                        ? "minLat, maxLat, minLon and maxLon are required" : null;
+            case SEARCH:
+                return query.getQ() == null || query.getQ().trim().isEmpty() ? "q is required" : null;
+            case BY_ID:
+                return query.getId() == null ? "id is required" : null;
+            case ROUTE:
+                if (query.getTo() == null) {
+                    return "to is required";
+                }
+                return query.getFrom() == null && (query.getFromLat() == null || query.getFromLon() == null)
+                        ? "from or fromLat and fromLon are required" : null;
+            default:
+                return null;
+        }
+    }
+    
+    // Type filter of a nearest query, or null for every type
+    private static LocationType typeOf(BatchQuery query) {
+        String type = query.getType();
+        return type == null || type.isBlank() ? null : LocationType.valueOf(type.trim().toUpperCase());
+    }
+    
+    private static int limitOf(BatchQuery query, int defaultLimit) {
+        return query.getLimit() != null ? query.getLimit() : defaultLimit;
+    }
+    
+    private static List<Object> nearestKey(BatchQuery query) {
+        return Arrays.asList(query.getLat(), query.getLon(), query.getMaxRadius(), typeOf(query));
+    }
+    
+    // Largest limit any nearest query with the same key asks for, so the key is searched once
+    private static int maxNearestLimit(List<BatchQuery> queries, List<Object> key) {
+        int limit = 0;
+        for (BatchQuery query : queries) {
+            if (query != null && query.getQuery() == BatchQuery.Kind.NEAREST && validate(query) == null
+                    && key.equals(nearestKey(query))) {
+                limit = Math.max(limit, limitOf(query, DEFAULT_NEAREST_LIMIT));
+            }
+        }
+        return limit;
+    }
+    
+    // Largest limit any search for the same term asks for, so the term is searched once
+    private static int maxSearchLimit(List<BatchQuery> queries, String term) {
+        int limit = 0;
+        for (BatchQuery query : queries) {
+            if (query != null && query.getQuery() == BatchQuery.Kind.SEARCH && query.getQ() != null
+                    && term.equals(query.getQ().trim())) {
+                limit = Math.max(limit, limitOf(query, Integer.MAX_VALUE));
+            }
+        }
+        return limit;
+    }
+    
+    private static long[] truncate(long[] ids, int limit) {
+        return ids.length <= limit ? ids : Arrays.copyOf(ids, limit);
+    }
+}
@@ -0,0 +1,309 @@
+package com.ugmaps.service;
+
+import com.ugmaps.index.GeoDistance;
+import com.ugmaps.model.Itinerary;
+import com.ugmaps.model.ItineraryRequest;
+import com.ugmaps.model.ItineraryStop;
+import com.ugmaps.model.ItineraryVisit;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+import com.ugmaps.routing.ItinerarySolver;
+import com.ugmaps.routing.WalkingGraph;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Orders the stops of a walk so the total walking distance is shortest. A stop is either a
+ * location or "any location of a type"; the latter becomes a handful of candidate locations
+ * near the start and near the other stops, and the solver picks one of them. Candidate sets
+ * leave out the start and fixed stops and do not overlap, so no location is visited twice.
+ *
+ * Distances are walked along footpaths, one bounded Dijkstra per point computed in parallel;
+ * points no footpath connects fall back to the straight line. The ordering itself is exact up
+ * to itinerary.exact-max-stops stops and a time-budgeted parallel local search beyond.
+ */
+@Service
+public class ItineraryService {
+    
+    @Autowired
+    private LocationService locationService;
+    
+    @Autowired
+    private RouteService routeService;
+    
+    // Average walking speed in metres per second
+    @Value("${routing.walking-speed:1.4}")
+    private double walkingSpeed;
+    
+    @Value("${itinerary.max-stops:200}")
+    private int maxStops;
+    
+    // Held-Karp needs O(2^n * n^2) time, so it is only used up to this many stops
+    @Value("${itinerary.exact-max-stops:12}")
+    private int exactMaxStops;
+    
+    // Candidate locations per type stop, taken near the start and near the other stops each
+    @Value("${itinerary.type-candidates:4}")
+    private int typeCandidates;
+    
+    // Wall-clock budget of a request, distance matrix included
+    @Value("${itinerary.time-budget:40ms}")
+    private Duration timeBudget;
+    
+    // Threads for distance rows and parallel searches; 0 means one per processor
+    @Value("${itinerary.parallelism:0}")
+    private int parallelism;
+    
+    private ForkJoinPool pool;
+    
+    @PostConstruct
+    public void startPool() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+    
+    @PreDestroy
+    public void stopPool() {
+        pool.shutdownNow();
+    }
+    
+    public Itinerary plan(ItineraryRequest request) {
+        long started = System.nanoTime();
+        long deadline = started + timeBudget.toNanos();
+        WalkingGraph graph = routeService.getGraph();
+        Points points = locationService.readConsistent(() -> resolve(request, graph));
+        
+        double[][] distances = new double[points.size()][];
+        boolean[][] straightLine = new boolean[points.size()][];
+        int[] connected = points.connectedNodes();
+        pool.submit(() -> IntStream.range(0, points.size()).parallel()
+                .forEach(i -> row(graph, points, connected, i, distances, straightLine))).join();
+        
+        int[][] groups = points.groups.stream().map(nodes -> nodes.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        ItinerarySolver.Solution solution = ItinerarySolver.solve(distances, groups, request.isReturnToStart(),
+                exactMaxStops, pool, pool.getParallelism(), deadline);
+        
+        List<ItineraryVisit> visits = new ArrayList<>(groups.length + 1);
+        int previous = 0;
+        for (int node : solution.getOrder()) {
+            visits.add(visit(points, points.stopOf.get(node), distances, straightLine, previous, node));
+            previous = node;
+        }
+        if (request.isReturnToStart()) {
+            visits.add(visit(points, null, distances, straightLine, previous, 0));
+        }
+        double distance = solution.getLength();
+        return new Itinerary(visits, distance, Math.round(distance / walkingSpeed), solution.isOptimal(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    // Start and candidate locations with their graph nodes; runs against one version of the locations
+    private Points resolve(ItineraryRequest request, WalkingGraph graph) {
+        List<ItineraryStop> stops = request.getStops();
+        if (stops == null || stops.isEmpty() || stops.size() > maxStops) {
+            throw new IllegalArgumentException("Between 1 and " + maxStops + " stops are required");
+        }
+        Points points = new Points();
+        double startLatitude;
+        double startLongitude;
+        if (request.getFrom() != null) {
+            Location start = locationService.getLocationById(request.getFrom())
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown start location " + request.getFrom()));
+            startLatitude = start.getLatitude();
+            startLongitude = start.getLongitude();
+            points.add(start, startLatitude, startLongitude, graph, null);
+        } else if (request.getFromLat() != null && request.getFromLon() != null) {
+            startLatitude = request.getFromLat();
+            startLongitude = request.getFromLon();
+            points.add(null, startLatitude, startLongitude, graph,
+                    graph.nearestConnectedNode(startLatitude, startLongitude));
+        } else {
+            throw new IllegalArgumentException("A start location or fromLat/fromLon is required");
+        }
+        
+        // Fixed stops first; their centroid (with the start) is where type candidates are also looked for
+        double latitudeSum = startLatitude;
+        double longitudeSum = startLongitude;
+        int fixed = 1;
+        Map<Integer, Location> fixedStops = new HashMap<>();
+        // A location listed twice, or as both start and stop, would be walked to twice
+        Set<Long> fixedIds = new HashSet<>();
+        for (int i = 0; i < stops.size(); i++) {
+            ItineraryStop stop = stops.get(i);
+            if (stop == null) {
+                throw new IllegalArgumentException("Stop " + i + " is empty");
+            }
+            if (stop.getId() != null) {
+                if (stop.getId().equals(request.getFrom())) {
+                    throw new IllegalArgumentException("Stop " + i + " is the start location " + stop.getId());
+                }
+                if (!fixedIds.add(stop.getId())) {
+                    throw new IllegalArgumentException("Location " + stop.getId() + " is listed more than once");
+                }
+                Location location = locationService.getLocationById(stop.getId())
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown location " + stop.getId()));
+                fixedStops.put(i, location);
+                latitudeSum += location.getLatitude();
+                longitudeSum += location.getLongitude();
+                fixed++;
+            }
+        }
+        double centroidLatitude = latitudeSum / fixed;
+        double centroidLongitude = longitudeSum / fixed;
+        
+        // Candidates per type stop, none of them a fixed stop, the start or another type stop's
+        Set<Long> taken = new HashSet<>(fixedIds);
+        if (request.getFrom() != null) {
+            taken.add(request.getFrom());
+        }
+        Map<LocationType, List<Integer>> typeStops = new LinkedHashMap<>();
+        for (int i = 0; i < stops.size(); i++) {
+            if (!fixedStops.containsKey(i)) {
+                typeStops.computeIfAbsent(stops.get(i).getType(), type -> new ArrayList<>()).add(i);
+            }
+        }
+        Map<Integer, List<Long>> candidatesByStop = new HashMap<>();
+        typeStops.forEach((type, indices) -> {
+            int wanted = indices.size() * typeCandidates;
+            List<Long> candidates = nearestCandidates(type, wanted, taken, startLatitude, startLongitude,
+                    centroidLatitude, centroidLongitude);
+            if (candidates.size() < indices.size()) {
+                throw new IllegalArgumentException(indices.size() + " stops of type " + type + " but only "
+                        + candidates.size() + " such locations besides the other stops");
+            }
+            // Dealt out in turn, so each stop of the type gets some of the closest ones
+            for (int k = 0; k < candidates.size(); k++) {
+                candidatesByStop.computeIfAbsent(indices.get(k % indices.size()), stop -> new ArrayList<>())
+                        .add(candidates.get(k));
+            }
+        });
+        
+        for (int i = 0; i < stops.size(); i++) {
+            List<Integer> group = new ArrayList<>();
+            Location location = fixedStops.get(i);
+            if (location != null) {
+                group.add(points.add(location, location.getLatitude(), location.getLongitude(), graph, null));
+            } else {
+                for (Location candidate : locationService.getLocationsByIds(
+                        candidatesByStop.get(i).stream().mapToLong(Long::longValue).toArray())) {
+                    group.add(points.add(candidate, candidate.getLatitude(), candidate.getLongitude(), graph, null));
+                }
+            }
+            points.stopOf.addAll(Collections.nCopies(group.size(), i));
+            points.groups.add(group);
+        }
+        return points;
+    }
+    
+    // Up to wanted locations of the type nearest the start and the centroid, alternately, skipping taken ones
+    private List<Long> nearestCandidates(LocationType type, int wanted, Set<Long> taken,
+                                         double startLatitude, double startLongitude,
+                                         double centroidLatitude, double centroidLongitude) {
+        int limit = wanted + taken.size();
+        long[] nearStart = locationService.findNearestLocationIds(startLatitude, startLongitude, type, limit, null);
+        long[] nearCentroid = locationService.findNearestLocationIds(centroidLatitude, centroidLongitude, type, limit, null);
+        Set<Long> candidates = new LinkedHashSet<>();
+        for (int k = 0; k < Math.max(nearStart.length, nearCentroid.length) && candidates.size() < wanted; k++) {
+            if (k < nearStart.length && !taken.contains(nearStart[k])) {
+                candidates.add(nearStart[k]);
+            }
+            if (k < nearCentroid.length && !taken.contains(nearCentroid[k]) && candidates.size() < wanted) {
+                candidates.add(nearCentroid[k]);
+            }
+        }
+        return new ArrayList<>(candidates);
+    }
+    
+    // Walking distances from point i to every point; straight line where no footpath connects them
+    private static void row(WalkingGraph graph, Points points, int[] connected, int i, double[][] distances,
+                            boolean[][] straightLine) {
+        int n = points.size();
+        double[] walked = points.nodes[i] >= 0 ? graph.distancesTo(points.nodes[i], connected) : null;
+        distances[i] = new double[n];
+        straightLine[i] = new boolean[n];
+        for (int j = 0, k = 0; j < n; j++) {
+            double path = Double.POSITIVE_INFINITY;
+            if (points.nodes[j] >= 0) {
+                if (walked != null) {
+                    path = points.approach[i] + walked[k] + points.approach[j];
+                }
+                k++;
+            }
+            if (i == j) {
+                distances[i][j] = 0;
+            } else if (path < Double.POSITIVE_INFINITY) {
+                distances[i][j] = path;
+            } else {
+                distances[i][j] = GeoDistance.haversine(points.latitudes[i], points.longitudes[i],
+                        points.latitudes[j], points.longitudes[j]);
+                straightLine[i][j] = true;
+            }
+        }
+    }
+    
+    private ItineraryVisit visit(Points points, Integer stop, double[][] distances, boolean[][] straightLine,
+                                 int from, int to) {
+        double distance = distances[from][to];
+        return new ItineraryVisit(stop, points.locations.get(to), points.latitudes[to], points.longitudes[to],
+                distance, Math.round(distance / walkingSpeed), straightLine[from][to]);
+    }
+    
+    // Matrix points: 0 is the start, then one point per candidate location of each stop
+    private static final class Points {
+        final List<Location> locations = new ArrayList<>();
+        final List<List<Integer>> groups = new ArrayList<>();
+        // Request stop index per point (unused for the start)
+        final List<Integer> stopOf = new ArrayList<>(List.of(-1));
+        int[] nodes = new int[16];
+        double[] approach = new double[16];
+        double[] latitudes = new double[16];
+        double[] longitudes = new double[16];
+        
+        int size() {
+            return locations.size();
+        }
+        
+        // Adds a point at a location (or at bare coordinates with the given graph node) and returns its index
+        int add(Location location, double latitude, double longitude, WalkingGraph graph, Integer startNode) {
+            int i = locations.size();
+            if (i == nodes.length) {
+                nodes = Arrays.copyOf(nodes, i * 2);
+                approach = Arrays.copyOf(approach, i * 2);
+                latitudes = Arrays.copyOf(latitudes, i * 2);
+                longitudes = Arrays.copyOf(longitudes, i * 2);
+            }
+            int node = startNode != null ? startNode : graph.indexOf(location.getId());
+            if (node >= 0 && !graph.hasEdges(node)) {
+                node = -1;
+            }
+            nodes[i] = node;
+            approach[i] = node >= 0 ? GeoDistance.haversine(latitude, longitude, graph.latitude(node), graph.longitude(node)) : 0;
+            latitudes[i] = latitude;
+            longitudes[i] = longitude;
+            locations.add(location);
+            return i;
+        }
+        
+        // Graph nodes of the points that have one, in point order
+        int[] connectedNodes() {
+            return IntStream.range(0, size()).map(i -> nodes[i]).filter(node -> node >= 0).toArray();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.ugmaps.service;
+
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationChanges;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Monotonic, compacted log of location changes used for delta sync.
+ *
+ * Every save or delete gets the next version number. Only the latest change per location is
+ * kept, so the log never holds more than one entry per location plus tombstones for deleted
+ * ones; tombstones are dropped after a retention period (or beyond a maximum count), and
+ * clients whose version predates a dropped tombstone are told to reset.
+ * Locations present at startup are seeded as upserts, so syncing from version 0 yields
+ * the full data set.
+ */
+@Service
+public class LocationChangeLog {
+    
+    @Autowired
+    private LocationService locationService;
+    
+    @Value("${changes.tombstone-retention:7d}")
+    private Duration tombstoneRetention;
+    
+    @Value("${changes.max-tombstones:10000}")
+    private int maxTombstones;
+    
+    private final long epoch = System.currentTimeMillis();
+    private long version;
+    private long compactedThrough;
+    
+    private final Map<Long, Entry> latestById = new HashMap<>();
+    private final TreeMap<Long, Entry> entriesByVersion = new TreeMap<>();
+    private final ArrayDeque<Entry> tombstones = new ArrayDeque<>();
+    
+    @PostConstruct
+    public void seed() {
+        for (Location location : locationService.getAllLocations()) {
+            record(location.getId(), false);
+        }
+    }
+    
+    @EventListener
+    public void onLocationChanged(LocationChangedEvent event) {
+        record(event.getLocationId(), event.isDeletion());
+    }
+    
+    public long getEpoch() {
+        return epoch;
+    }
+    
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    public LocationChanges getChangesSince(long since, Long clientEpoch) {
+        List<Long> upsertIds = new ArrayList<>();
+        List<Long> deletions = new ArrayList<>();
+        long currentVersion;
+        boolean reset;
+        synchronized (this) {
+            pruneTombstones(System.currentTimeMillis());
+            currentVersion = version;
+            reset = (clientEpoch != null && clientEpoch != epoch) || since < compactedThrough || since > version;
+            for (Entry entry : entriesByVersion.tailMap(reset ? 0 : since, false).values()) {
+                if (!entry.deleted) {
+                    upsertIds.add(entry.locationId);
+                } else if (!reset) {
+                    deletions.add(entry.locationId);
+                }
+            }
+        }
+        
+        long[] ids = upsertIds.stream().mapToLong(Long::longValue).toArray();
+        List<Location> upserts = locationService.getLocationsByIds(ids);
+        return new LocationChanges(epoch, currentVersion, reset, upserts, deletions);
+    }
+    
+    private synchronized void record(long locationId, boolean deleted) {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(++version, locationId, deleted, now);
+        
+        // Compaction: a newer change replaces the previous entry for the same location
+        Entry replaced = latestById.put(locationId, entry);
+        if (replaced != null) {
+            entriesByVersion.remove(replaced.version);
+        }
+        entriesByVersion.put(entry.version, entry);
+        if (deleted) {
+            tombstones.addLast(entry);
+        }
+        pruneTombstones(now);
+    }
+    
+    private void pruneTombstones(long now) {
+        long cutoff = now - tombstoneRetention.toMillis();
+        while (!tombstones.isEmpty()) {
+            Entry oldest = tombstones.peekFirst();
+            boolean superseded = latestById.get(oldest.locationId) != oldest;
+            if (!superseded && oldest.recordedAt >= cutoff && tombstones.size() <= maxTombstones) {
+                break;
+            }
+            tombstones.removeFirst();
+            if (!superseded) {
+                latestById.remove(oldest.locationId);
+                entriesByVersion.remove(oldest.version);
+                compactedThrough = Math.max(compactedThrough, oldest.version);
+            }
+        }
+    }
+    
+    private static final class Entry {
+        final long version;
+        final long locationId;
+        final boolean deleted;
+        final long recordedAt;
+        
+        Entry(long version, long locationId, boolean deleted, long recordedAt) {
+            this.version = version;
+            this.locationId = locationId;
+            this.deleted = deleted;
+            this.recordedAt = recordedAt;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.ugmaps.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ugmaps.model.LocationChanges;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent events for /api/locations/stream. Every event is a {@link LocationChanges} delta
+ * from the {@link LocationChangeLog}, and its id is the change log epoch and version, so
+ * {@code Last-Event-ID} resumes exactly where a client left off. Bursts of edits within
+ * stream.coalesce-window become one event.
+ *
+ * A single fan-out thread encodes each event once and hands it to every subscriber. Writes
+ * use the servlet non-blocking API, so a slow subscriber only fills its own queue. When the
+ * queue exceeds stream.max-pending-bytes, the queue is replaced by one catch-up delta. If the
+ * catch-up is not delivered before the next overflow, the connection is closed and the client
+ * reconnects with its last event id. The last stream.replay-events events are kept to resume
+ * reconnects cheaply; older ids get a catch-up delta (or a reset) from the change log.
+ */
+@Service
+public class LocationChangeStream {
+    
+    private static final Logger log = LoggerFactory.getLogger(LocationChangeStream.class);
+    
+    private static final Frame HEARTBEAT = new Frame(-1, -1, false, ":\n\n".getBytes(StandardCharsets.UTF_8));
+    
+    @Autowired
+    private LocationChangeLog changeLog;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${stream.coalesce-window:250ms}")
+    private Duration coalesceWindow;
+    
+    @Value("${stream.replay-events:256}")
+    private int replayEvents;
+    
+    @Value("${stream.max-pending-bytes:1MB}")
+    private DataSize maxPendingBytes;
+    
+    @Value("${stream.heartbeat:15s}")
+    private Duration heartbeat;
+    
+    // Reconnect delay suggested to EventSource clients
+    @Value("${stream.retry:3s}")
+    private Duration retry;
+    
+    // Connections are closed after this long; clients reconnect and resume
+    @Value("${stream.max-duration:30m}")
+    private Duration maxDuration;
+    
+    @Value("${stream.max-subscribers:10000}")
+    private int maxSubscribers;
+    
+    private ScheduledExecutorService fanOut;
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private Counter catchUps;
+    private Counter dropped;
+    
+    // Confined to the fan-out thread
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private Frame[] recent;
+    private int recentStart;
+    private int recentCount;
+    private long lastVersion;
+    
+    @PostConstruct
+    public void start() {
+        recent = new Frame[Math.max(1, replayEvents)];
+        lastVersion = changeLog.getVersion();
+        fanOut = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "location-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fanOut.scheduleWithFixedDelay(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        
+        Gauge.builder("locations.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open /api/locations/stream connections")
+                .register(meterRegistry);
+        catchUps = Counter.builder("locations.stream.catchups")
+                .description("Subscribers whose queued events were replaced by one catch-up delta")
+                .register(meterRegistry);
+        dropped = Counter.builder("locations.stream.dropped")
+                .description("Subscribers disconnected for not keeping up")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        fanOut.shutdownNow();
+        fanOut.awaitTermination(1, TimeUnit.SECONDS);
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            subscriber.close();
+        }
+    }
+    
+    // Starts an event stream on the request; lastEventId is the client's Last-Event-ID, if any
+    public void subscribe(HttpServletRequest request, HttpServletResponse response, String lastEventId) throws IOException {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many stream subscribers");
+            return;
+        }
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        // Keep reverse proxies from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+        
+        AsyncContext async = request.startAsync();
+        async.setTimeout(maxDuration.toMillis());
+        Subscriber subscriber = new Subscriber(async, response.getOutputStream());
+        async.addListener(subscriber);
+        subscriber.output.setWriteListener(subscriber);
+        fanOut.execute(() -> register(subscriber, lastEventId));
+    }
+    
+    @EventListener
+    public void onLocationChanged(LocationChangedEvent event) {
+        if (flushPending.compareAndSet(false, true)) {
+            fanOut.schedule(this::flush, coalesceWindow.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    // Everything the change log recorded since the last event, as one event to every subscriber
+    private void flush() {
+        flushPending.set(false);
+        if (changeLog.getVersion() == lastVersion) {
+            return;
+        }
+        try {
+            LocationChanges changes = changeLog.getChangesSince(lastVersion, changeLog.getEpoch());
+            Frame frame = encode(lastVersion, changes, false);
+            lastVersion = changes.getVersion();
+            remember(frame);
+            for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+                subscriber.offer(frame);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Pushing location changes after version {} failed", lastVersion, e);
+        }
+    }
+    
+    // Keeps idle connections open through proxies and notices closed ones
+    private void heartbeat() {
+        // Also picks up a change whose event arrived before the change log recorded it
+        flush();
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            subscriber.offer(HEARTBEAT);
+        }
+    }
+    
+    private void register(Subscriber subscriber, String lastEventId) {
+        if (subscriber.closed) {
+            return;
+        }
+        subscribers.add(subscriber);
+        subscriber.offer(new Frame(-1, -1, false, ("retry: " + retry.toMillis() + "\n\n").getBytes(StandardCharsets.UTF_8)));
+        if (lastEventId == null || lastEventId.isBlank()) {
+            // Nothing to resume: start from now, and give the client an id to resume from
+            subscriber.clientVersion = lastVersion;
+            subscriber.offer(new Frame(-1, lastVersion, false, (eventId(lastVersion) + "\n\n").getBytes(StandardCharsets.UTF_8)));
+            return;
+        }
+        
+        long since = 0;
+        long epoch = -1;
+        int separator = lastEventId.indexOf('-');
+        try {
+            epoch = Long.parseLong(lastEventId.substring(0, Math.max(separator, 0)).trim());
+            since = Long.parseLong(lastEventId.substring(separator + 1).trim());
+        } catch (NumberFormatException e) {
+            // Not an id of ours: treated like an id from an earlier epoch, so the client resets
+        }
+        subscriber.clientVersion = since;
+        if (epoch == changeLog.getEpoch() && since == lastVersion) {
+            return;
+        }
+        if (epoch == changeLog.getEpoch() && replay(subscriber, since)) {
+            return;
+        }
+        subscriber.offer(catchUp(since, epoch));
+    }
+    
+    // Offers the retained events after `since`; false when they no longer start there
+    private boolean replay(Subscriber subscriber, long since) {
+        for (int i = 0; i < recentCount; i++) {
+            if (recent[(recentStart + i) % recent.length].since == since) {
+                for (int j = i; j < recentCount; j++) {
+                    subscriber.offer(recent[(recentStart + j) % recent.length]);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void remember(Frame frame) {
+        if (recentCount < recent.length) {
+            recent[(recentStart + recentCount++) % recent.length] = frame;
+        } else {
+            recent[recentStart] = frame;
+            recentStart = (recentStart + 1) % recent.length;
+        }
+    }
+    
+    // One delta from the change log covering everything after `since`
+    private Frame catchUp(long since, long epoch) {
+        LocationChanges changes = changeLog.getChangesSince(since, epoch);
+        return encode(since, changes, true);
+    }
+    
+    private Frame encode(long since, LocationChanges changes, boolean catchUp) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write((eventId(changes.getVersion()) + "\nevent: changes\ndata: ").getBytes(StandardCharsets.UTF_8));
+            objectMapper.writeValue(bytes, changes);
+            bytes.write("\n\n".getBytes(StandardCharsets.UTF_8));
+            return new Frame(since, changes.getVersion(), catchUp, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private String eventId(long version) {
+        return "id: " + changeLog.getEpoch() + "-" + version;
+    }
+    
+    // An encoded event; since/version are -1 for comments and directives
+    private static final class Frame {
+        final long since;
+        final long version;
+        final boolean catchUp;
+        final byte[] bytes;
+        
+        Frame(long since, long version, boolean catchUp, byte[] bytes) {
+            this.since = since;
+            this.version = version;
+            this.catchUp = catchUp;
+            this.bytes = bytes;
+        }
+    }
+    
+    /**
+     * One open stream. The fan-out thread queues frames and container threads drain them
+     * whenever the connection can take more; neither ever waits for the client.
+     */
+    private final class Subscriber implements WriteListener, AsyncListener {
+        
+        final AsyncContext async;
+        final ServletOutputStream output;
+        private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+        private long queuedBytes;
+        private boolean catchUpQueued;
+        private boolean flushNeeded;
+        // Version the client has been sent (or resumed from); catch-ups start here
+        long clientVersion;
+        volatile boolean closed;
+        
+        Subscriber(AsyncContext async, ServletOutputStream output) {
+            this.async = async;
+            this.output = output;
+        }
+        
+        // Fan-out thread only
+        void offer(Frame frame) {
+            boolean overflow;
+            long since;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                overflow = !queue.isEmpty() && queuedBytes + frame.bytes.length > maxPendingBytes.toBytes();
+                if (!overflow) {
+                    enqueue(frame);
+                } else if (!catchUpQueued) {
+                    queue.clear();
+                    queuedBytes = 0;
+                }
+                since = clientVersion;
+            }
+            if (overflow && catchUpQueued) {
+                dropped.increment();
+                close();
+                return;
+            }
+            if (overflow) {
+                // The change log already holds what the dropped frames carried
+                catchUps.increment();
+                Frame catchUp = catchUp(since, changeLog.getEpoch());
+                synchronized (this) {
+                    enqueue(catchUp);
+                }
+            }
+            drain();
+        }
+        
+        private void enqueue(Frame frame) {
+            queue.add(frame);
+            queuedBytes += frame.bytes.length;
+            catchUpQueued |= frame.catchUp;
+        }
+        
+        // Writes queued frames while the connection accepts them without blocking
+        synchronized void drain() {
+            try {
+                while (!closed && output.isReady()) {
+                    Frame frame = queue.poll();
+                    if (frame == null) {
+                        if (!flushNeeded) {
+                            return;
+                        }
+                        flushNeeded = false;
+                        output.flush();
+                        continue;
+                    }
+                    queuedBytes -= frame.bytes.length;
+                    if (frame.version >= 0) {
+                        clientVersion = frame.version;
+                    }
+                    if (frame.catchUp) {
+                        catchUpQueued = false;
+                    }
+                    output.write(frame.bytes);
+                    flushNeeded = true;
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+        
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                queue.clear();
+            }
+            subscriberCount.decrementAndGet();
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+            try {
+                fanOut.execute(() -> subscribers.remove(this));
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the list goes with the service
+            }
+        }
+        
+        @Override
+        public void onWritePossible() {
+            drain();
+        }
+        
+        @Override
+        public void onError(Throwable failure) {
+            close();
+        }
+        
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close();
+        }
+        
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+        
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+        
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
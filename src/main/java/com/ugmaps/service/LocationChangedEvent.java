@@ -0,0 +1,28 @@
+package com.ugmaps.service;
+
+import com.ugmaps.model.Location;
+
+/**
+ * Published by {@link LocationService} after a location has been saved or deleted.
+ * {@code previous} is null for inserts and {@code current} is null for deletes.
+ */
+public class LocationChangedEvent {
+    
+    private final Long locationId;
+    private final Location previous;
+    private final Location current;
+    
+    public LocationChangedEvent(Long locationId, Location previous, Location current) {
+        this.locationId = locationId;
+        this.previous = previous;
+        this.current = current;
+    }
+    
+    public Long getLocationId() { return locationId; }
+    
+    public Location getPrevious() { return previous; }
+    
+    public Location getCurrent() { return current; }
+    
+    public boolean isDeletion() { return current == null; }
+}
@@ -0,0 +1,115 @@
+package com.ugmaps.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationFormat;
+import com.ugmaps.repository.LocationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes locations straight from a database cursor to an output stream. Entities are
+ * detached as soon as they are written so the persistence context never grows, which keeps
+ * exports and streaming responses at constant memory whatever the result size.
+ */
+@Service
+public class LocationExportService {
+    
+    // Ranked id lists are loaded this many rows at a time
+    private static final int ID_CHUNK_SIZE = 500;
+    
+    @Autowired
+    private LocationRepository locationRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    public long exportLocations(LocationFormat format, OutputStream output) {
+        return writeCursor(format, output, locationRepository::streamAll);
+    }
+    
+    public long exportLocationsWithinBounds(Double minLat, Double maxLat, Double minLon, Double maxLon,
+                                            LocationFormat format, OutputStream output) {
+        return writeCursor(format, output, () -> locationRepository.streamWithinBounds(minLat, maxLat, minLon, maxLon));
+    }
+    
+    // Locations for the given ids in the same order; unknown ids are skipped
+    public long exportLocationsByIds(long[] orderedIds, LocationFormat format, OutputStream output) {
+        return inReadOnlyTransaction(() -> {
+            long count = 0;
+            try (LocationStreamWriter writer = LocationStreamWriter.open(format, output, objectMapper)) {
+                for (int start = 0; start < orderedIds.length; start += ID_CHUNK_SIZE) {
+                    long[] chunk = Arrays.copyOfRange(orderedIds, start, Math.min(orderedIds.length, start + ID_CHUNK_SIZE));
+                    List<Long> ids = new ArrayList<>(chunk.length);
+                    for (long id : chunk) {
+                        ids.add(id);
+                    }
+                    Map<Long, Location> locationsById = new HashMap<>();
+                    for (Location location : locationRepository.findAllById(ids)) {
+                        locationsById.put(location.getId(), location);
+                    }
+                    for (Long id : ids) {
+                        Location location = locationsById.get(id);
+                        if (location != null) {
+                            writer.write(location);
+                            count++;
+                        }
+                    }
+                    writer.flush();
+                    entityManager.clear();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+    }
+    
+    private long writeCursor(LocationFormat format, OutputStream output, Supplier<Stream<Location>> query) {
+        return inReadOnlyTransaction(() -> {
+            long count = 0;
+            try (Stream<Location> locations = query.get();
+                 LocationStreamWriter writer = LocationStreamWriter.open(format, output, objectMapper)) {
+                Iterator<Location> iterator = locations.iterator();
+                while (iterator.hasNext()) {
+                    Location location = iterator.next();
+                    writer.write(location);
+                    entityManager.detach(location);
+                    count++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+    }
+    
+    private long inReadOnlyTransaction(Supplier<Long> work) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        Long written = transaction.execute(status -> work.get());
+        return written != null ? written : 0;
+    }
+}
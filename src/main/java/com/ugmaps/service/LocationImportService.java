@@ -0,0 +1,134 @@
+package com.ugmaps.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ugmaps.model.ImportResult;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationFormat;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams locations from NDJSON, CSV or GeoJSON into the database in batches. Each batch is
+ * one transaction whose inserts go out as JDBC batches (ids come from the pooled
+ * {@code locations_seq} sequence, so Hibernate does not need a round trip per row).
+ * Imported rows always become new locations; ids in the input are ignored.
+ */
+@Service
+public class LocationImportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(LocationImportService.class);
+    private static final int MAX_REPORTED_ERRORS = 20;
+    
+    @Autowired
+    private LocationService locationService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${import.batch-size:1000}")
+    private int batchSize;
+    
+    // Longest CSV or NDJSON record in characters; an unterminated quote would otherwise buffer the rest of the file
+    @Value("${import.max-record-length:65536}")
+    private int maxRecordLength;
+    
+    public ImportResult importLocations(InputStream input, LocationFormat format) {
+        long start = System.nanoTime();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<String> errors = new ArrayList<>();
+        long imported = 0;
+        long failed = 0;
+        
+        try (LocationRecordReader reader = LocationRecordReader.open(format, input, objectMapper, maxRecordLength)) {
+            List<Location> batch = new ArrayList<>(batchSize);
+            while (true) {
+                Location location;
+                try {
+                    location = reader.next();
+                } catch (IllegalArgumentException e) {
+                    failed++;
+                    reportError(errors, reader.getRecordNumber(), e.getMessage());
+                    continue;
+                }
+                if (location == null) {
+                    break;
+                }
+                
+                Set<ConstraintViolation<Location>> violations = validator.validate(location);
+                if (!violations.isEmpty() || location.getType() == null) {
+                    failed++;
+                    reportError(errors, reader.getRecordNumber(), violations.isEmpty()
+                            ? "Type is required" : violations.iterator().next().getMessage());
+                    continue;
+                }
+                
+                LocalDateTime now = LocalDateTime.now();
+                location.setId(null);
+                location.setCreatedAt(now);
+                location.setUpdatedAt(now);
+                batch.add(location);
+                if (batch.size() == batchSize) {
+                    imported += persist(transaction, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            imported += persist(transaction, batch);
+        } catch (IOException e) {
+            errors.add("Import aborted: " + e.getMessage());
+        }
+        // Imported rows are readable once the import returns
+        locationService.awaitReadModel();
+        
+        ImportResult result = new ImportResult(imported, failed, errors, (System.nanoTime() - start) / 1_000_000);
+        log.info("{} from {}", result, format);
+        return result;
+    }
+    
+    private int persist(TransactionTemplate transaction, List<Location> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transaction.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (Location location : batch) {
+                entityManager.persist(location);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        locationService.registerImported(batch);
+        return batch.size();
+    }
+    
+    private static void reportError(List<String> errors, long recordNumber, String message) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("Record " + recordNumber + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.ugmaps.service;
+
+import com.ugmaps.index.ClusterIndex;
+import com.ugmaps.index.LongTrieMap;
+import com.ugmaps.index.SearchIndex;
+import com.ugmaps.index.SpatialIndex;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+import com.ugmaps.model.ReadOnlyLocation;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One version of every location together with the indexes derived from them. A version is
+ * never changed once built: {@link #withChanges} produces the next one, sharing every map,
+ * index partition, cell and postings block the changes do not touch, so building it costs what
+ * the changes touch rather than the number of locations. {@link LocationService} publishes
+ * versions through a single reference, so a reader holding one sees a consistent view without
+ * locks, sessions or transactions.
+ *
+ * Locations are {@link ReadOnlyLocation} copies made when a version is built, so no reader
+ * can change what another one sees.
+ */
+public final class LocationReadModel {
+    
+    private static final Comparator<Location> BY_ID = Comparator.comparing(Location::getId);
+    
+    private final long version;
+    // Last write (see LocationService) reflected in this version
+    private final long sequence;
+    private final LongTrieMap<Location> byId;
+    private final Map<LocationType, LongTrieMap<Location>> byType;
+    private final SpatialIndex spatialIndex;
+    // One partition per type, so type-filtered nearest queries only visit locations of that type
+    private final Map<LocationType, SpatialIndex> spatialIndexByType;
+    private final ClusterIndex clusterIndex;
+    private final SearchIndex searchIndex;
+    
+    // Every location and the locations of each type by id, built on first use
+    private volatile List<Location> all;
+    private final AtomicReferenceArray<List<Location>> listsByType =
+            new AtomicReferenceArray<>(LocationType.values().length);
+    
+    private LocationReadModel(long version, long sequence, LongTrieMap<Location> byId,
+                              Map<LocationType, LongTrieMap<Location>> byType, SpatialIndex spatialIndex,
+                              Map<LocationType, SpatialIndex> spatialIndexByType, ClusterIndex clusterIndex,
+                              SearchIndex searchIndex) {
+        this.version = version;
+        this.sequence = sequence;
+        this.byId = byId;
+        this.byType = byType;
+        this.spatialIndex = spatialIndex;
+        this.spatialIndexByType = spatialIndexByType;
+        this.clusterIndex = clusterIndex;
+        this.searchIndex = searchIndex;
+    }
+    
+    // First version, from every row in the table
+    public static LocationReadModel build(long version, long sequence, Collection<Location> rows, double cellSize,
+                                          int clusterMaxZoom, double clusterRadius) {
+        LongTrieMap<Location> byId = new LongTrieMap<>();
+        Map<LocationType, LongTrieMap<Location>> byType = new EnumMap<>(LocationType.class);
+        SpatialIndex spatialIndex = new SpatialIndex(cellSize);
+        Map<LocationType, SpatialIndex> spatialIndexByType = new EnumMap<>(LocationType.class);
+        for (LocationType type : LocationType.values()) {
+            spatialIndexByType.put(type, new SpatialIndex(cellSize));
+            byType.put(type, new LongTrieMap<>());
+        }
+        // One extra category for locations without a type
+        ClusterIndex clusterIndex = new ClusterIndex(clusterMaxZoom, clusterRadius, LocationType.values().length + 1);
+        SearchIndex searchIndex = new SearchIndex();
+        for (Location row : rows) {
+            Location location = copyOf(row);
+            Location previous = byId.put(location.getId(), location);
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate location id " + location.getId());
+            }
+            spatialIndex.put(location.getId(), location.getLatitude(), location.getLongitude(), categoryOf(location));
+            if (location.getType() != null) {
+                byType.get(location.getType()).put(location.getId(), location);
+                spatialIndexByType.get(location.getType()).put(location.getId(), location.getLatitude(), location.getLongitude());
+            }
+            clusterIndex.put(location.getId(), location.getLatitude(), location.getLongitude(), categoryOf(location));
+            searchIndex.put(location.getId(), location.getName(), location.getDescription());
+        }
+        return new LocationReadModel(version, sequence, byId, byType, spatialIndex, spatialIndexByType,
+                clusterIndex, searchIndex);
+    }
+    
+    // Next version with the changes applied in order; this version stays as it is
+    public LocationReadModel withChanges(long nextVersion, long nextSequence, List<LocationChangedEvent> changes) {
+        LongTrieMap<Location> nextById = byId.copy();
+        Map<LocationType, LongTrieMap<Location>> nextByType = new EnumMap<>(byType);
+        SpatialIndex nextSpatialIndex = spatialIndex.copy();
+        Map<LocationType, SpatialIndex> nextSpatialIndexByType = new EnumMap<>(spatialIndexByType);
+        ClusterIndex nextClusterIndex = clusterIndex.copy();
+        SearchIndex nextSearchIndex = searchIndex.copy();
+        
+        Set<LocationType> touchedTypes = EnumSet.noneOf(LocationType.class);
+        for (LocationChangedEvent change : changes) {
+            long id = change.getLocationId();
+            Location previous = nextById.get(id);
+            // The spatial indexes find a point by the position it was added at
+            if (previous != null) {
+                nextSpatialIndex.remove(id, previous.getLatitude(), previous.getLongitude());
+                if (previous.getType() != null) {
+                    touch(nextByType, nextSpatialIndexByType, touchedTypes, previous.getType());
+                    nextByType.get(previous.getType()).remove(id);
+                    nextSpatialIndexByType.get(previous.getType())
+                            .remove(id, previous.getLatitude(), previous.getLongitude());
+                }
+            }
+            if (change.isDeletion()) {
+                nextById.remove(id);
+                nextClusterIndex.remove(id);
+                nextSearchIndex.remove(id);
+                continue;
+            }
+            Location location = copyOf(change.getCurrent());
+            nextById.put(id, location);
+            nextSpatialIndex.put(id, location.getLatitude(), location.getLongitude(), categoryOf(location));
+            if (location.getType() != null) {
+                touch(nextByType, nextSpatialIndexByType, touchedTypes, location.getType());
+                nextByType.get(location.getType()).put(id, location);
+                nextSpatialIndexByType.get(location.getType()).put(id, location.getLatitude(), location.getLongitude());
+            }
+            nextClusterIndex.put(id, location.getLatitude(), location.getLongitude(), categoryOf(location));
+            nextSearchIndex.put(id, location.getName(), location.getDescription());
+        }
+        
+        LocationReadModel next = new LocationReadModel(nextVersion, nextSequence, nextById, nextByType,
+                nextSpatialIndex, nextSpatialIndexByType, nextClusterIndex, nextSearchIndex);
+        // Lists of the types no change touched carry over
+        for (LocationType type : LocationType.values()) {
+            if (!touchedTypes.contains(type)) {
+                next.listsByType.set(type.ordinal(), listsByType.get(type.ordinal()));
+            }
+        }
+        return next;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public int size() {
+        return byId.size();
+    }
+    
+    public Location get(long id) {
+        return byId.get(id);
+    }
+    
+    public boolean contains(long id) {
+        return byId.containsKey(id);
+    }
+    
+    // Locations for the given ids in the same order; unknown ids are skipped
+    public List<Location> getByIds(long[] orderedIds) {
+        List<Location> locations = new ArrayList<>(orderedIds.length);
+        for (long id : orderedIds) {
+            Location location = byId.get(id);
+            if (location != null) {
+                locations.add(location);
+            }
+        }
+        return locations;
+    }
+    
+    // Every location, by id
+    public List<Location> getAll() {
+        List<Location> locations = all;
+        if (locations == null) {
+            locations = sortedValues(byId);
+            all = locations;
+        }
+        return locations;
+    }
+    
+    // Whether getByType(type), or getAll() for null, is already built
+    boolean isListed(LocationType type) {
+        return type == null ? all != null : listsByType.get(type.ordinal()) != null;
+    }
+    
+    // Locations of one type, by id
+    public List<Location> getByType(LocationType type) {
+        List<Location> locations = listsByType.get(type.ordinal());
+        if (locations == null) {
+            locations = sortedValues(byType.get(type));
+            listsByType.set(type.ordinal(), locations);
+        }
+        return locations;
+    }
+    
+    // Nearest ids of one type (any type when null), nearest first
+    public long[] nearest(double latitude, double longitude, LocationType type, int limit, double maxRadiusMetres) {
+        SpatialIndex index = type != null ? spatialIndexByType.get(type) : spatialIndex;
+        return index.nearest(latitude, longitude, limit, maxRadiusMetres);
+    }
+    
+    // Ids inside the box, in no particular order
+    public long[] within(double south, double west, double north, double east) {
+        return spatialIndex.within(south, west, north, east);
+    }
+    
+    public long[] search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+    
+    public List<ClusterIndex.Cluster> clusters(double west, double south, double east, double north, int zoom) {
+        return clusterIndex.clusters(west, south, east, north, zoom);
+    }
+    
+    // Gives the next version its own copy of the type's locations and partition on the type's first change
+    private static void touch(Map<LocationType, LongTrieMap<Location>> byType,
+                              Map<LocationType, SpatialIndex> partitions, Set<LocationType> touched, LocationType type) {
+        if (touched.add(type)) {
+            byType.put(type, byType.get(type).copy());
+            partitions.put(type, partitions.get(type).copy());
+        }
+    }
+    
+    private static List<Location> sortedValues(LongTrieMap<Location> locations) {
+        List<Location> sorted = new ArrayList<>(locations.size());
+        locations.forEach((location, id) -> sorted.add(location));
+        sorted.sort(BY_ID);
+        return Collections.unmodifiableList(sorted);
+    }
+    
+    // Immutable copy, so later changes to the saved entity cannot reach a published version
+    private static Location copyOf(Location location) {
+        if (location instanceof ReadOnlyLocation) {
+            return location;
+        }
+        return new ReadOnlyLocation(location.getId(), location.getName(), location.getDescription(),
+                location.getLatitude(), location.getLongitude(), location.getType(),
+                asStored(location.getCreatedAt()), asStored(location.getUpdatedAt()));
+    }
+    
+    // Timestamps as the TIMESTAMP columns keep them (rounded to microseconds), matching a reload from the table
+    private static LocalDateTime asStored(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp.plusNanos(500).truncatedTo(ChronoUnit.MICROS) : null;
+    }
+    
+    // Index category of a location: its type's ordinal, with one extra value for no type
+    private static int categoryOf(Location location) {
+        return location.getType() != null ? location.getType().ordinal() : LocationType.values().length;
+    }
+}
@@ -0,0 +1,340 @@
+package com.ugmaps.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationFormat;
+import com.ugmaps.model.LocationType;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull-style reader turning an import stream into {@link Location}s one record at a time,
+ * so files of any size are never held in memory. A malformed record raises
+ * {@link IllegalArgumentException} and reading can continue with the next one; an
+ * {@link IOException} means the stream itself is unusable. CSV and NDJSON records longer than
+ * the maximum record length (e.g. after an unterminated quote) are rejected the same way,
+ * and reading resumes at the next line.
+ */
+public abstract class LocationRecordReader implements Closeable {
+    
+    protected long recordNumber;
+    
+    // maxRecordLength caps the characters of one CSV or NDJSON record
+    public static LocationRecordReader open(LocationFormat format, InputStream input, ObjectMapper objectMapper,
+                                            int maxRecordLength) throws IOException {
+        switch (format) {
+            case NDJSON:
+                return new NdjsonReader(input, objectMapper, maxRecordLength);
+            case CSV:
+                return new CsvReader(input, maxRecordLength);
+            case GEOJSON:
+                return new GeoJsonReader(input, objectMapper);
+            default:
+                throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+    }
+    
+    // Next location, or null at the end of the stream
+    public abstract Location next() throws IOException;
+    
+    // 1-based number of the record returned (or rejected) last
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+    
+    static LocationType parseType(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Type is required");
+        }
+        try {
+            return LocationType.valueOf(value.trim().toUpperCase().replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            return LocationType.fromDisplayName(value.trim());
+        }
+    }
+    
+    static Double parseCoordinate(String value, String field) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        double coordinate;
+        try {
+            coordinate = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+        // "NaN" and "Infinity" parse, but are no position
+        if (!Double.isFinite(coordinate)) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+        return coordinate;
+    }
+    
+    // Drops the rest of the current line, so reading resumes at the next one
+    static void skipLine(BufferedReader reader) throws IOException {
+        int c;
+        do {
+            c = reader.read();
+        } while (c != -1 && c != '\n');
+    }
+    
+    static IllegalArgumentException tooLong(int maxRecordLength) {
+        return new IllegalArgumentException("Record longer than " + maxRecordLength
+                + " characters (unterminated quote?); skipped to the next line");
+    }
+    
+    private static final class NdjsonReader extends LocationRecordReader {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private final int maxRecordLength;
+        
+        NdjsonReader(InputStream input, ObjectMapper objectMapper, int maxRecordLength) {
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            this.objectMapper = objectMapper;
+            this.maxRecordLength = maxRecordLength;
+        }
+        
+        @Override
+        public Location next() throws IOException {
+            String line;
+            do {
+                line = readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            recordNumber++;
+            if (line.length() > maxRecordLength) {
+                skipLine(reader);
+                throw tooLong(maxRecordLength);
+            }
+            try {
+                return objectMapper.readValue(line, Location.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+        
+        // Like readLine, but stops buffering one character past the limit
+        private String readLine() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            StringBuilder line = new StringBuilder();
+            while (c != -1 && c != '\n' && line.length() <= maxRecordLength) {
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+                if (line.length() <= maxRecordLength) {
+                    c = reader.read();
+                }
+            }
+            return line.toString();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+    
+    // Header row required; columns are matched by name (name, description, latitude, longitude, type)
+    private static final class CsvReader extends LocationRecordReader {
+        private final BufferedReader reader;
+        private final int maxRecordLength;
+        private final Map<String, Integer> columns = new HashMap<>();
+        
+        CsvReader(InputStream input, int maxRecordLength) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            this.maxRecordLength = maxRecordLength;
+            List<String> header;
+            try {
+                header = readRecord();
+            } catch (IllegalArgumentException e) {
+                throw new IOException("CSV header: " + e.getMessage());
+            }
+            if (header == null) {
+                return;
+            }
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().replace("\uFEFF", "").toLowerCase(), i);
+            }
+            for (String required : new String[] {"name", "latitude", "longitude", "type"}) {
+                if (!columns.containsKey(required)) {
+                    throw new IOException("CSV header is missing the '" + required + "' column");
+                }
+            }
+        }
+        
+        @Override
+        public Location next() throws IOException {
+            List<String> fields;
+            do {
+                try {
+                    fields = readRecord();
+                } catch (IllegalArgumentException e) {
+                    recordNumber++;
+                    throw e;
+                }
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+            recordNumber++;
+            
+            Location location = new Location();
+            location.setName(field(fields, "name"));
+            location.setDescription(field(fields, "description"));
+            location.setLatitude(parseCoordinate(field(fields, "latitude"), "latitude"));
+            location.setLongitude(parseCoordinate(field(fields, "longitude"), "longitude"));
+            location.setType(parseType(field(fields, "type")));
+            return location;
+        }
+        
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index);
+            return value.isEmpty() ? null : value;
+        }
+        
+        // One RFC 4180 record; quoted fields may contain commas, quotes and line breaks
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int length = 0;
+            while (c != -1) {
+                // Line ends outside quotes are not part of the record
+                if ((quoted || (c != '\n' && c != '\r')) && ++length > maxRecordLength) {
+                    if (c != '\n') {
+                        skipLine(reader);
+                    }
+                    throw tooLong(maxRecordLength);
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+    
+    // FeatureCollection of Point features; each feature is parsed on its own
+    private static final class GeoJsonReader extends LocationRecordReader {
+        private final JsonParser parser;
+        private boolean inFeatures;
+        
+        GeoJsonReader(InputStream input, ObjectMapper objectMapper) throws IOException {
+            this.parser = objectMapper.getFactory().createParser(input);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("GeoJSON must start with a FeatureCollection object");
+            }
+        }
+        
+        @Override
+        public Location next() throws IOException {
+            if (!inFeatures && !seekFeatures()) {
+                return null;
+            }
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            recordNumber++;
+            return toLocation(parser.readValueAsTree());
+        }
+        
+        // Skip top-level members until the "features" array starts
+        private boolean seekFeatures() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("features".equals(name) && value == JsonToken.START_ARRAY) {
+                    inFeatures = true;
+                    return true;
+                }
+                parser.skipChildren();
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new IOException("Unexpected token in FeatureCollection: " + token);
+            }
+            return false;
+        }
+        
+        private static Location toLocation(JsonNode feature) {
+            JsonNode coordinates = feature.path("geometry").path("coordinates");
+            if (!"Point".equals(feature.path("geometry").path("type").asText()) || coordinates.size() < 2) {
+                throw new IllegalArgumentException("Only Point features are supported");
+            }
+            if (!coordinates.get(0).isNumber() || !coordinates.get(1).isNumber()) {
+                throw new IllegalArgumentException("Coordinates must be numbers");
+            }
+            JsonNode properties = feature.path("properties");
+            Location location = new Location();
+            location.setName(text(properties, "name"));
+            location.setDescription(text(properties, "description"));
+            location.setLongitude(coordinates.get(0).asDouble());
+            location.setLatitude(coordinates.get(1).asDouble());
+            location.setType(parseType(text(properties, "type")));
+            return location;
+        }
+        
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
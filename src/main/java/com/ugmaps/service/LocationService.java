@@ -1,73 +1,478 @@
 package com.ugmaps.service;
 
+import com.ugmaps.index.ClusterIndex;
 import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationCluster;
 import com.ugmaps.model.LocationType;
 import com.ugmaps.repository.LocationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
+/**
+ * Locations and the queries over them. Reads are answered from the current
+ * {@link LocationReadModel}, an immutable version published through one atomic reference, so
+ * they take no lock and never touch the database. Writes go to the database and queue a change;
+ * a single background builder folds queued changes into the next version, swaps it in and only
+ * then publishes the change events. saveLocation/deleteLocation return once their change is
+ * visible to reads; building a version costs what its changes touch, and writers do not wait
+ * for the event listeners. With snapshots enabled the builder also writes the rows every
+ * storage.snapshot-interval and after storage.snapshot-after-changes changes, not only on
+ * shutdown, so a crash loses at most that much of the warm start.
+ */
 @Service
 public class LocationService {
     
+    private static final Logger log = LoggerFactory.getLogger(LocationService.class);
+    
     @Autowired
     private LocationRepository locationRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ReadModelSnapshotService readModelSnapshots;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${map.index.cell-size:0.001}")
+    private double indexCellSize;
+    
+    @Value("${map.clusters.max-zoom:17}")
+    private int clusterMaxZoom;
+    
+    @Value("${map.clusters.radius:60}")
+    private double clusterRadius;
+    
+    // How long a write waits for its change to become visible to reads
+    @Value("${locations.read-model.publish-timeout:30s}")
+    private Duration publishTimeout;
+    
+    // Snapshot writes between shutdowns; 0 disables either trigger
+    @Value("${storage.snapshot-interval:10m}")
+    private Duration snapshotInterval;
+    
+    @Value("${storage.snapshot-after-changes:10000}")
+    private long snapshotAfterChanges;
+    
+    private final AtomicReference<LocationReadModel> readModel = new AtomicReference<>();
+    
+    // Version pinned by readConsistent for the current thread
+    private final ThreadLocal<LocationReadModel> pinned = new ThreadLocal<>();
+    
+    // Writers hold it from the database write until their change is queued, so the queue is in commit order
+    private final Lock writeLock = new ReentrantLock();
+    private final Queue<LocationChangedEvent> pendingChanges = new ConcurrentLinkedQueue<>();
+    private long queuedSequence;
+    
+    // Sequence of the last change whose version has been published; writers wait on it
+    private final Lock publishLock = new ReentrantLock();
+    private final Condition published = publishLock.newCondition();
+    private long publishedSequence;
+    
+    private final AtomicBoolean buildPending = new AtomicBoolean();
+    private ScheduledExecutorService builder;
+    private Timer buildTimer;
+    private volatile long lastBuildMillis;
+    // What the location caches counted before the read model: lookups by id or list, and locations superseded
+    private Counter lookupHits;
+    private Counter lookupMisses;
+    private Counter evictions;
+    // Only touched by the builder thread
+    private long appliedSequence;
+    private boolean reloadRequired;
+    private long snapshotSequence;
+    
+    @PostConstruct
+    public void buildIndexes() {
+        long start = System.nanoTime();
+        // Rows from the read model snapshot when it is current, so a warm start skips the JPA load
+        List<Location> locations = readModelSnapshots.load().orElseGet(locationRepository::findAll);
+        readModel.set(LocationReadModel.build(1, 0, locations, indexCellSize, clusterMaxZoom, clusterRadius));
+        lastBuildMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        buildTimer = Timer.builder("locations.readmodel.build")
+                .description("Time to build the next version of the location read model")
+                .register(meterRegistry);
+        Gauge.builder("locations.readmodel.version", readModel, model -> model.get().getVersion())
+                .description("Version of the location read model serving reads")
+                .register(meterRegistry);
+        Gauge.builder("locations.readmodel.size", readModel, model -> model.get().size())
+                .description("Locations in the read model version serving reads")
+                .register(meterRegistry);
+        Gauge.builder("locations.readmodel.pending", pendingChanges, Queue::size)
+                .description("Location changes queued for the next read model version")
+                .register(meterRegistry);
+        lookupHits = Counter.builder("locations.readmodel.lookups").tag("result", "hit")
+                .description("Lookups by id that found the location, and type or full lists already built")
+                .register(meterRegistry);
+        lookupMisses = Counter.builder("locations.readmodel.lookups").tag("result", "miss")
+                .description("Lookups by id of unknown locations, and type or full lists built on demand")
+                .register(meterRegistry);
+        evictions = Counter.builder("locations.readmodel.evictions")
+                .description("Locations replaced or removed by a newer read model version")
+                .register(meterRegistry);
+        builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "read-model-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (readModelSnapshots.isEnabled() && !snapshotInterval.isZero()) {
+            builder.scheduleWithFixedDelay(this::saveSnapshot, snapshotInterval.toMillis(),
+                    snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @PreDestroy
+    public void saveReadModelSnapshot() throws InterruptedException {
+        builder.shutdown();
+        builder.awaitTermination(publishTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (readModelSnapshots.isEnabled()) {
+            readModelSnapshots.save(readModel.get().getAll());
+        }
+    }
+    
+    // On the builder thread, so the rows written are those of a whole version; skipped while unchanged
+    private void saveSnapshot() {
+        try {
+            readModelSnapshots.save(readModel.get().getAll());
+            snapshotSequence = appliedSequence;
+        } catch (RuntimeException e) {
+            log.warn("Writing the read model snapshot failed", e);
+        }
+    }
+    
     public List<Location> getAllLocations() {
-        return locationRepository.findAll();
+        LocationReadModel model = current();
+        countLookup(model.isListed(null));
+        return model.getAll();
     }
     
     public Optional<Location> getLocationById(Long id) {
-        return locationRepository.findById(id);
+        Location location = current().get(id);
+        countLookup(location != null);
+        return Optional.ofNullable(location);
     }
     
     public List<Location> getLocationsByType(LocationType type) {
-        return locationRepository.findByType(type);
+        LocationReadModel model = current();
+        countLookup(model.isListed(type));
+        return model.getByType(type);
     }
     
     public List<Location> searchLocations(String searchTerm) {
+        return searchLocations(searchTerm, null);
+    }
+    
+    // Ranked full-text search over name and description; limit is optional
+    public List<Location> searchLocations(String searchTerm, Integer limit) {
+        LocationReadModel model = current();
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
-            return getAllLocations();
+            return model.getAll();
         }
-        return locationRepository.searchLocations(searchTerm.trim());
+        int maxResults = limit != null ? limit : Integer.MAX_VALUE;
+        return model.getByIds(model.search(searchTerm, maxResults));
+    }
+    
+    // Ranked ids only, for callers that load the rows themselves
+    public long[] searchLocationIds(String searchTerm, int limit) {
+        return current().search(searchTerm, limit);
     }
     
+    // Ids inside the box straight from the spatial index, in no particular order
+    public long[] findLocationIdsWithinBounds(double south, double west, double north, double east) {
+        return current().within(south, west, north, east);
+    }
+    
+    // Locations inside the box, by id
     public List<Location> getLocationsWithinBounds(Double minLat, Double maxLat, Double minLon, Double maxLon) {
-        return locationRepository.findLocationsWithinBounds(minLat, maxLat, minLon, maxLon);
+        LocationReadModel model = current();
+        long[] ids = model.within(minLat, minLon, maxLat, maxLon);
+        Arrays.sort(ids);
+        return model.getByIds(ids);
     }
     
     public List<Location> getNearestLocations(Double latitude, Double longitude, int limit) {
-        List<Location> allLocations = locationRepository.findAll();
-        
-        // Calculate distance for each location and sort by distance
-        return allLocations.stream()
-                .sorted((loc1, loc2) -> {
-                    double dist1 = calculateDistance(latitude, longitude, loc1.getLatitude(), loc1.getLongitude());
-                    double dist2 = calculateDistance(latitude, longitude, loc2.getLatitude(), loc2.getLongitude());
-                    return Double.compare(dist1, dist2);
-                })
-                .limit(limit)
-                .collect(java.util.stream.Collectors.toList());
+        return getNearestLocations(latitude, longitude, limit, null);
+    }
+    
+    // Nearest locations first; maxRadius is in metres and optional
+    public List<Location> getNearestLocations(Double latitude, Double longitude, int limit, Double maxRadius) {
+        return getNearestLocations(latitude, longitude, null, limit, maxRadius);
+    }
+    
+    // Nearest locations of one type (any type when null), from that type's own partition
+    public List<Location> getNearestLocations(Double latitude, Double longitude, LocationType type, int limit, Double maxRadius) {
+        LocationReadModel model = current();
+        double radius = maxRadius != null ? maxRadius : Double.POSITIVE_INFINITY;
+        return model.getByIds(model.nearest(latitude, longitude, type, limit, radius));
+    }
+    
+    // Nearest ids of one type (any type when null), nearest first
+    public long[] findNearestLocationIds(double latitude, double longitude, LocationType type, int limit, Double maxRadius) {
+        double radius = maxRadius != null ? maxRadius : Double.POSITIVE_INFINITY;
+        return current().nearest(latitude, longitude, type, limit, radius);
+    }
+    
+    // Runs reads that must see one consistent state of the data: every read inside sees the same version
+    public <T> T readConsistent(Supplier<T> reads) {
+        LocationReadModel outer = pinned.get();
+        if (outer != null) {
+            return reads.get();
+        }
+        pinned.set(readModel.get());
+        try {
+            return reads.get();
+        } finally {
+            pinned.remove();
+        }
+    }
+    
+    // Map markers for a viewport: aggregated clusters up to map.clusters.max-zoom, single locations beyond
+    public List<LocationCluster> getClusters(double west, double south, double east, double north, int zoom) {
+        LocationType[] types = LocationType.values();
+        List<LocationCluster> clusters = new ArrayList<>();
+        for (ClusterIndex.Cluster cluster : current().clusters(west, south, east, north, zoom)) {
+            Map<LocationType, Integer> countsByType = new EnumMap<>(LocationType.class);
+            int[] counts = cluster.getCategoryCounts();
+            for (int i = 0; i < types.length; i++) {
+                if (counts[i] > 0) {
+                    countsByType.put(types[i], counts[i]);
+                }
+            }
+            clusters.add(new LocationCluster(cluster.getLatitude(), cluster.getLongitude(), cluster.getCount(),
+                    countsByType, cluster.getPointId() >= 0 ? cluster.getPointId() : null));
+        }
+        return clusters;
     }
     
-    private double calculateDistance(Double lat1, Double lon1, Double lat2, Double lon2) {
-        // Simple Euclidean distance (for small distances like campus)
-        double latDiff = lat1 - lat2;
-        double lonDiff = lon1 - lon2;
-        return Math.sqrt(latDiff * latDiff + lonDiff * lonDiff);
+    // Locations for the given ids in the same order; unknown ids are skipped
+    public List<Location> getLocationsByIds(long[] orderedIds) {
+        List<Location> locations = current().getByIds(orderedIds);
+        lookupHits.increment(locations.size());
+        lookupMisses.increment(orderedIds.length - locations.size());
+        return locations;
     }
     
     public Location saveLocation(Location location) {
-        return locationRepository.save(location);
+        Location saved;
+        long sequence;
+        writeLock.lock();
+        try {
+            Location previous = location.getId() != null
+                    ? locationRepository.findById(location.getId()).orElse(null)
+                    : null;
+            saved = locationRepository.save(location);
+            sequence = enqueue(new LocationChangedEvent(saved.getId(), previous, saved));
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleBuild();
+        awaitPublished(sequence);
+        return saved;
     }
     
     public void deleteLocation(Long id) {
-        locationRepository.deleteById(id);
+        long sequence;
+        writeLock.lock();
+        try {
+            Location previous = locationRepository.findById(id).orElse(null);
+            locationRepository.deleteById(id);
+            sequence = enqueue(new LocationChangedEvent(id, previous, null));
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleBuild();
+        awaitPublished(sequence);
+    }
+    
+    // Queue rows inserted by the bulk importer; see awaitReadModel
+    public void registerImported(List<Location> imported) {
+        writeLock.lock();
+        try {
+            for (Location location : imported) {
+                enqueue(new LocationChangedEvent(location.getId(), null, location));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleBuild();
+    }
+    
+    // Waits until every change queued so far is visible to reads
+    public void awaitReadModel() {
+        long sequence;
+        writeLock.lock();
+        try {
+            sequence = queuedSequence;
+        } finally {
+            writeLock.unlock();
+        }
+        awaitPublished(sequence);
+    }
+    
+    // Version of the read model serving reads (the pinned one inside readConsistent); it changes with every published change
+    public long getReadModelVersion() {
+        return current().getVersion();
     }
     
     public boolean existsById(Long id) {
-        return locationRepository.existsById(id);
+        return current().contains(id);
+    }
+    
+    // Version serving reads, queued changes, the last build time and lookup counts, for /api/locations/read-model/stats
+    public Map<String, Map<String, Object>> getReadModelStats() {
+        LocationReadModel model = readModel.get();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("version", model.getVersion());
+        description.put("sequence", model.getSequence());
+        description.put("locations", model.size());
+        description.put("pendingChanges", pendingChanges.size());
+        description.put("lastBuildMillis", lastBuildMillis);
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("readModel", description);
+        Map<String, Object> lookups = new LinkedHashMap<>();
+        lookups.put("hits", (long) lookupHits.count());
+        lookups.put("misses", (long) lookupMisses.count());
+        lookups.put("evictions", (long) evictions.count());
+        stats.put("lookups", lookups);
+        return stats;
+    }
+    
+    private void countLookup(boolean hit) {
+        (hit ? lookupHits : lookupMisses).increment();
+    }
+    
+    private LocationReadModel current() {
+        LocationReadModel model = pinned.get();
+        return model != null ? model : readModel.get();
+    }
+    
+    // Called with writeLock held
+    private long enqueue(LocationChangedEvent change) {
+        pendingChanges.add(change);
+        return ++queuedSequence;
+    }
+    
+    // Coalesces bursts of writes into a single build of the next version
+    private void scheduleBuild() {
+        if (buildPending.compareAndSet(false, true)) {
+            builder.execute(() -> {
+                buildPending.set(false);
+                buildNextVersion();
+            });
+        }
+    }
+    
+    private void buildNextVersion() {
+        List<LocationChangedEvent> changes = new ArrayList<>();
+        for (LocationChangedEvent change; (change = pendingChanges.poll()) != null; ) {
+            changes.add(change);
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        appliedSequence += changes.size();
+        long start = System.nanoTime();
+        LocationReadModel previous = readModel.get();
+        LocationReadModel next = null;
+        try {
+            next = reloadRequired
+                    ? reload(previous)
+                    : previous.withChanges(previous.getVersion() + 1, appliedSequence, changes);
+        } catch (RuntimeException e) {
+            log.warn("Applying {} location changes failed, reloading the read model", changes.size(), e);
+            try {
+                next = reload(previous);
+            } catch (RuntimeException reloadFailure) {
+                log.error("Reloading the read model failed, reads stay on version {}", previous.getVersion(), reloadFailure);
+            }
+        }
+        reloadRequired = next == null;
+        if (next != null) {
+            for (LocationChangedEvent change : changes) {
+                if (previous.contains(change.getLocationId())) {
+                    evictions.increment();
+                }
+            }
+            readModel.set(next);
+            lastBuildMillis = (System.nanoTime() - start) / 1_000_000;
+            buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        
+        // Writers waiting for these changes can return now; the listeners follow on this thread
+        publishLock.lock();
+        try {
+            publishedSequence = appliedSequence;
+            published.signalAll();
+        } finally {
+            publishLock.unlock();
+        }
+        for (LocationChangedEvent change : changes) {
+            try {
+                eventPublisher.publishEvent(change);
+            } catch (RuntimeException e) {
+                log.warn("Listener failed for change of location {}", change.getLocationId(), e);
+            }
+        }
+        if (readModelSnapshots.isEnabled() && snapshotAfterChanges > 0
+                && appliedSequence - snapshotSequence >= snapshotAfterChanges) {
+            saveSnapshot();
+        }
+    }
+    
+    // Next version straight from the table, which already holds every queued change
+    private LocationReadModel reload(LocationReadModel previous) {
+        return LocationReadModel.build(previous.getVersion() + 1, appliedSequence, locationRepository.findAll(),
+                indexCellSize, clusterMaxZoom, clusterRadius);
+    }
+    
+    private void awaitPublished(long sequence) {
+        long remaining = publishTimeout.toNanos();
+        publishLock.lock();
+        try {
+            while (publishedSequence < sequence) {
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Change " + sequence + " not visible to reads after " + publishTimeout);
+                }
+                remaining = published.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for change " + sequence + " to become visible", e);
+        } finally {
+            publishLock.unlock();
+        }
     }
 }
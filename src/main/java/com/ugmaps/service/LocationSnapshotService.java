@@ -0,0 +1,95 @@
+package com.ugmaps.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the JSON body of GET /api/locations serialized (plain and gzipped) together with a
+ * strong ETag derived from its content. The bytes are regenerated on the first request
+ * after the read model moves to a new version and shared by every request in between, so a
+ * writer reading its own change never gets the previous body.
+ */
+@Service
+public class LocationSnapshotService {
+    
+    @Autowired
+    private LocationService locationService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private volatile Snapshot snapshot;
+    
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.version == locationService.getReadModelVersion()) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null || snapshot.version != locationService.getReadModelVersion()) {
+                snapshot = locationService.readConsistent(this::build);
+            }
+            return snapshot;
+        }
+    }
+    
+    // Called with the read model pinned, so the version and the body agree
+    private Snapshot build() {
+        long version = locationService.getReadModelVersion();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(locationService.getAllLocations());
+            
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            String hash = HexFormat.of().formatHex(digest, 0, 16);
+            return new Snapshot(version, json, compressed.toByteArray(), "\"" + hash + "\"", "\"" + hash + "-gz\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize locations", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public static final class Snapshot {
+        private final long version;
+        private final byte[] json;
+        private final byte[] gzippedJson;
+        private final String etag;
+        private final String gzippedEtag;
+        
+        Snapshot(long version, byte[] json, byte[] gzippedJson, String etag, String gzippedEtag) {
+            this.version = version;
+            this.json = json;
+            this.gzippedJson = gzippedJson;
+            this.etag = etag;
+            this.gzippedEtag = gzippedEtag;
+        }
+        
+        public long getVersion() { return version; }
+        
+        public byte[] getJson() { return json; }
+        
+        public byte[] getGzippedJson() { return gzippedJson; }
+        
+        // Each encoding is a different representation, so each gets its own strong ETag
+        public String getEtag() { return etag; }
+        
+        public String getGzippedEtag() { return gzippedEtag; }
+    }
+}
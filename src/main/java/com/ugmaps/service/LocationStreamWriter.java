@@ -0,0 +1,174 @@
+package com.ugmaps.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationFormat;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes locations one at a time in one of the {@link LocationFormat}s, so callers can
+ * stream any number of rows with constant memory. Closing the writer finishes the
+ * document (e.g. the GeoJSON feature array) but leaves the underlying stream open.
+ */
+public abstract class LocationStreamWriter implements Closeable {
+    
+    static final String[] CSV_COLUMNS = {"id", "name", "description", "latitude", "longitude", "type", "createdAt", "updatedAt"};
+    
+    public static LocationStreamWriter open(LocationFormat format, OutputStream output, ObjectMapper objectMapper)
+            throws IOException {
+        switch (format) {
+            case NDJSON:
+                return new NdjsonWriter(output, objectMapper);
+            case CSV:
+                return new CsvWriter(output);
+            case GEOJSON:
+                return new GeoJsonWriter(output, objectMapper);
+            default:
+                throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+    }
+    
+    public abstract void write(Location location) throws IOException;
+    
+    // Pushes buffered output to the underlying stream
+    public abstract void flush() throws IOException;
+    
+    private static JsonGenerator createGenerator(OutputStream output, ObjectMapper objectMapper) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+    
+    // One JSON object per line
+    private static final class NdjsonWriter extends LocationStreamWriter {
+        private final JsonGenerator generator;
+        
+        NdjsonWriter(OutputStream output, ObjectMapper objectMapper) throws IOException {
+            this.generator = createGenerator(output, objectMapper);
+        }
+        
+        @Override
+        public void write(Location location) throws IOException {
+            generator.writeObject(location);
+            generator.writeRaw('\n');
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+    
+    // FeatureCollection of Point features with the location fields as properties
+    private static final class GeoJsonWriter extends LocationStreamWriter {
+        private final JsonGenerator generator;
+        
+        GeoJsonWriter(OutputStream output, ObjectMapper objectMapper) throws IOException {
+            this.generator = createGenerator(output, objectMapper);
+            generator.writeStartObject();
+            generator.writeStringField("type", "FeatureCollection");
+            generator.writeArrayFieldStart("features");
+        }
+        
+        @Override
+        public void write(Location location) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "Feature");
+            if (location.getId() != null) {
+                generator.writeNumberField("id", location.getId());
+            }
+            generator.writeObjectFieldStart("geometry");
+            generator.writeStringField("type", "Point");
+            generator.writeArrayFieldStart("coordinates");
+            generator.writeNumber(location.getLongitude());
+            generator.writeNumber(location.getLatitude());
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("properties");
+            generator.writeStringField("name", location.getName());
+            generator.writeStringField("description", location.getDescription());
+            generator.writeStringField("type", location.getType() != null ? location.getType().name() : null);
+            generator.writeStringField("createdAt", location.getCreatedAt() != null ? location.getCreatedAt().toString() : null);
+            generator.writeStringField("updatedAt", location.getUpdatedAt() != null ? location.getUpdatedAt().toString() : null);
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.close();
+        }
+    }
+    
+    // RFC 4180 CSV with a header row
+    private static final class CsvWriter extends LocationStreamWriter {
+        private final Writer writer;
+        
+        CsvWriter(OutputStream output) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write("\r\n");
+        }
+        
+        @Override
+        public void write(Location location) throws IOException {
+            writeField(location.getId(), true);
+            writeField(location.getName(), false);
+            writeField(location.getDescription(), false);
+            writeField(location.getLatitude(), false);
+            writeField(location.getLongitude(), false);
+            writeField(location.getType() != null ? location.getType().name() : null, false);
+            writeField(location.getCreatedAt(), false);
+            writeField(location.getUpdatedAt(), false);
+            writer.write("\r\n");
+        }
+        
+        private void writeField(Object value, boolean first) throws IOException {
+            if (!first) {
+                writer.write(',');
+            }
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.ugmaps.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ugmaps.index.GeoDistance;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+import com.ugmaps.model.Reachability;
+import com.ugmaps.model.ReachableLocation;
+import com.ugmaps.routing.WalkingGraph;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers "what can I walk to within N minutes from here". Walking times come from a
+ * Dijkstra over the footpath graph that stops at the time budget, joined from the exact
+ * origin at its nearest connected nodes with the straight-line approach added; locations no
+ * footpath leads to are found through the spatial index and timed along the straight line.
+ *
+ * The walk from each start node is cached per node and budget, so origins around the same
+ * hall share it. Entries carry the version of the walking graph they were computed on and
+ * are recomputed once it has been replaced; they hold location ids, never the graph itself.
+ */
+@Service
+public class ReachabilityService {
+    
+    // Graph nodes the walk from the origin may start at
+    private static final int START_NODES = 4;
+    
+    @Autowired
+    private LocationService locationService;
+    
+    @Autowired
+    private RouteService routeService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Average walking speed in metres per second
+    @Value("${routing.walking-speed:1.4}")
+    private double walkingSpeed;
+    
+    @Value("${reachability.max-minutes:30}")
+    private int maxMinutes;
+    
+    @Value("${reachability.cache-size:1000}")
+    private long cacheSize;
+    
+    private Cache<List<Long>, Walk> walks;
+    
+    @PostConstruct
+    public void createCache() {
+        walks = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, walks, "reachability");
+    }
+    
+    public int getMaxMinutes() {
+        return maxMinutes;
+    }
+    
+    // Reachable locations of the given types (all types when empty) within minutes of walking
+    public Reachability getReachable(double latitude, double longitude, int minutes, Set<LocationType> types) {
+        double budget = minutes * 60 * walkingSpeed;
+        WalkingGraph graph = routeService.getGraph();
+        
+        // Along footpaths, joined at the closest nodes that have any
+        Map<Long, Double> pathDistances = new HashMap<>();
+        for (int node : graph.nearestConnectedNodes(latitude, longitude, START_NODES, budget)) {
+            double approach = GeoDistance.haversine(latitude, longitude, graph.latitude(node), graph.longitude(node));
+            Walk walk = walkFrom(graph, node, minutes, budget);
+            for (int i = 0; i < walk.locationIds.length && approach + walk.distances[i] <= budget; i++) {
+                pathDistances.merge(walk.locationIds[i], approach + walk.distances[i], Math::min);
+            }
+        }
+        List<Long> ids = new ArrayList<>(pathDistances.keySet());
+        
+        // Off the footpath network (or added since the graph was built): straight line within the budget
+        double latitudeSpan = budget / GeoDistance.METRES_PER_DEGREE;
+        double longitudeSpan = latitudeSpan / Math.cos(Math.toRadians(latitude));
+        for (long id : locationService.findLocationIdsWithinBounds(latitude - latitudeSpan, longitude - longitudeSpan,
+                latitude + latitudeSpan, longitude + longitudeSpan)) {
+            int node = graph.indexOf(id);
+            if (node < 0 || !graph.hasEdges(node)) {
+                ids.add(id);
+            }
+        }
+        
+        Map<LocationType, List<ReachableLocation>> byType = new EnumMap<>(LocationType.class);
+        for (Location location : locationService.getLocationsByIds(ids.stream().mapToLong(Long::longValue).toArray())) {
+            LocationType type = location.getType();
+            if (type == null || !(types.isEmpty() || types.contains(type))) {
+                continue;
+            }
+            Double distance = pathDistances.get(location.getId());
+            boolean straightLine = distance == null;
+            if (straightLine) {
+                distance = GeoDistance.haversine(latitude, longitude, location.getLatitude(), location.getLongitude());
+                if (distance > budget) {
+                    continue;
+                }
+            }
+            byType.computeIfAbsent(type, t -> new ArrayList<>())
+                    .add(new ReachableLocation(location, distance, Math.round(distance / walkingSpeed), straightLine));
+        }
+        byType.values().forEach(reachable -> reachable.sort(Comparator.comparingDouble(ReachableLocation::getDistance)));
+        return new Reachability(latitude, longitude, minutes, byType);
+    }
+    
+    // Locations within the budget of a node along footpaths, from the cache while the graph is unchanged
+    private Walk walkFrom(WalkingGraph graph, int node, int minutes, double budget) {
+        List<Long> key = Arrays.asList(graph.nodeId(node), (long) minutes);
+        Walk walk = walks.getIfPresent(key);
+        if (walk == null || walk.graphVersion != graph.getVersion()) {
+            WalkingGraph.Reachable walked = graph.reachableWithin(new int[] {node}, new double[] {0}, budget);
+            long[] locationIds = new long[walked.size()];
+            double[] distances = new double[walked.size()];
+            for (int i = 0; i < walked.size(); i++) {
+                locationIds[i] = graph.nodeId(walked.node(i));
+                distances[i] = walked.distance(i);
+            }
+            walk = new Walk(graph.getVersion(), locationIds, distances);
+            walks.put(key, walk);
+        }
+        return walk;
+    }
+    
+    // Locations reached from one start node, nearest first
+    private static final class Walk {
+        final long graphVersion;
+        final long[] locationIds;
+        final double[] distances;
+        
+        Walk(long graphVersion, long[] locationIds, double[] distances) {
+            this.graphVersion = graphVersion;
+            this.locationIds = locationIds;
+            this.distances = distances;
+        }
+    }
+}
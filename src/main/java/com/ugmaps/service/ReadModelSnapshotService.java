@@ -0,0 +1,99 @@
+package com.ugmaps.service;
+
+import com.ugmaps.model.Location;
+import com.ugmaps.repository.LocationRepository;
+import com.ugmaps.storage.ReadModelFile;
+import com.ugmaps.storage.TableFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Warm starts for the in-memory read models. On boot the location rows come from a
+ * memory-mapped {@link ReadModelFile} when its fingerprint still matches the table, instead
+ * of a full JPA load; on shutdown the current rows are written back. Only rows are stored:
+ * the indexes of the read model are rebuilt from them on every start. Disabled when
+ * storage.snapshot-file is empty, as in the in-memory default mode.
+ */
+@Service
+public class ReadModelSnapshotService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReadModelSnapshotService.class);
+    
+    @Autowired
+    private LocationRepository locationRepository;
+    
+    @Value("${storage.snapshot-file:}")
+    private String snapshotFile;
+    
+    // Table state the file on disk describes, so an unchanged snapshot is not rewritten
+    private volatile TableFingerprint savedFingerprint;
+    
+    public boolean isEnabled() {
+        return !snapshotFile.isBlank();
+    }
+    
+    // Rows of the snapshot, or empty when there is none or the table has changed since it was taken
+    public Optional<List<Location>> load() {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Path file = Paths.get(snapshotFile);
+        if (!Files.exists(file)) {
+            log.info("No read model snapshot at {}, loading locations from the database", file);
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        try {
+            ReadModelFile snapshot = ReadModelFile.read(file);
+            TableFingerprint current = locationRepository.fingerprint();
+            if (!snapshot.getFingerprint().equals(current)
+                    || !TableFingerprint.of(snapshot.getLocations()).equals(current)) {
+                log.info("Read model snapshot {} is stale ({} vs {}), loading locations from the database",
+                        file, snapshot.getFingerprint(), current);
+                return Optional.empty();
+            }
+            savedFingerprint = current;
+            log.info("Loaded {} locations from read model snapshot {} in {} ms",
+                    snapshot.getLocations().size(), file, (System.nanoTime() - start) / 1_000_000);
+            return Optional.of(snapshot.getLocations());
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable read model snapshot {}", file, e);
+            return Optional.empty();
+        }
+    }
+    
+    // Writes the rows as the snapshot of the table, unless the table moved on while they were read
+    public void save(List<Location> locations) {
+        if (!isEnabled()) {
+            return;
+        }
+        Path file = Paths.get(snapshotFile);
+        TableFingerprint current = locationRepository.fingerprint();
+        if (current.equals(savedFingerprint) && Files.exists(file)) {
+            return;
+        }
+        if (!TableFingerprint.of(locations).equals(current)) {
+            log.info("Not writing read model snapshot: locations changed while it was being taken");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            ReadModelFile.write(file, current, locations);
+            savedFingerprint = current;
+            log.info("Wrote {} locations to read model snapshot {} in {} ms",
+                    locations.size(), file, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Writing read model snapshot {} failed", file, e);
+        }
+    }
+}
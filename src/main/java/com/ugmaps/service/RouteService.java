@@ -0,0 +1,447 @@
+package com.ugmaps.service;
+
+import com.ugmaps.index.GeoDistance;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+import com.ugmaps.model.Path;
+import com.ugmaps.model.Route;
+import com.ugmaps.repository.LocationRepository;
+import com.ugmaps.repository.PathRepository;
+import com.ugmaps.routing.HotRouteTable;
+import com.ugmaps.routing.WalkingGraph;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Walking routes over the footpath graph, with precomputed shortest-path trees for the hot
+ * destinations. The graph is built from the locations and paths tables on first use and then
+ * kept current from location and path changes: a background thread folds queued changes
+ * into the next graph in memory and recomputes only the trees they affect. Deletions are
+ * applied before the change listener returns, and every location on a route is checked
+ * against the read model version serving the request.
+ */
+@Service
+public class RouteService {
+    
+    private static final Logger log = LoggerFactory.getLogger(RouteService.class);
+    
+    // Dropped hot destinations named in the log; the rest are only counted
+    private static final int LOGGED_DROPPED = 20;
+    
+    @Autowired
+    private LocationService locationService;
+    
+    @Autowired
+    private LocationRepository locationRepository;
+    
+    @Autowired
+    private PathRepository pathRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Average walking speed in metres per second
+    @Value("${routing.walking-speed:1.4}")
+    private double walkingSpeed;
+    
+    // Destinations that get a precomputed shortest-path tree
+    @Value("${routing.hot-types:LIBRARY,AUDITORIUM,DINING_HALL,ENTRANCE_GATE}")
+    private Set<LocationType> hotTypes;
+    
+    // Each tree costs O(nodes) memory, so large imports must not turn every row into one
+    @Value("${routing.max-hot-destinations:64}")
+    private int maxHotDestinations;
+    
+    // Graph, hot-destination table and hot candidates are always published together
+    private volatile RoutingState state;
+    // Set once the first build starts; changes before it are already in the data it reads
+    private volatile boolean started;
+    
+    // Changes not yet in state, in the order they happened
+    private final Object pendingLock = new Object();
+    private WalkingGraph.Update pendingGraph = new WalkingGraph.Update();
+    private Map<Long, Boolean> pendingHot = new LinkedHashMap<>();
+    
+    // Held while a state is built or the next one derived, so changes apply in order
+    private final Object applyLock = new Object();
+    private final AtomicBoolean applyPending = new AtomicBoolean();
+    private ExecutorService updateExecutor;
+    
+    @PostConstruct
+    public void startUpdateExecutor() {
+        updateExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "route-update");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("routing.hot.destinations", this, service -> service.state != null ? service.state.hotRoutes.size() : 0)
+                .description("Hot destinations with a precomputed shortest-path tree")
+                .register(meterRegistry);
+        Gauge.builder("routing.hot.dropped", this, service -> service.getDroppedHotDestinations().size())
+                .description("Hot destinations beyond routing.max-hot-destinations, routed with A* instead")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void stopUpdateExecutor() {
+        updateExecutor.shutdownNow();
+    }
+    
+    public WalkingGraph getGraph() {
+        return currentState().graph;
+    }
+    
+    // Locations of the hot types left without a tree by routing.max-hot-destinations, by id
+    public List<Long> getDroppedHotDestinations() {
+        RoutingState current = state;
+        return current != null ? current.droppedHot : List.of();
+    }
+    
+    public Optional<Route> findRoute(Long fromLocationId, Long toLocationId) {
+        // The read model drops a deleted location before the graph does
+        if (!locationService.existsById(fromLocationId) || !locationService.existsById(toLocationId)) {
+            return Optional.empty();
+        }
+        return route((graph, hotRoutes) -> {
+            int source = graph.indexOf(fromLocationId);
+            int target = graph.indexOf(toLocationId);
+            return source < 0 || target < 0 ? null : shortestPath(graph, hotRoutes, source, target);
+        }, null, null);
+    }
+    
+    // Route from an arbitrary point (e.g. the user's GPS position) via the closest location with footpaths
+    public Optional<Route> findRoute(Double fromLatitude, Double fromLongitude, Long toLocationId) {
+        if (!locationService.existsById(toLocationId)) {
+            return Optional.empty();
+        }
+        return route((graph, hotRoutes) -> {
+            int source = graph.nearestConnectedNode(fromLatitude, fromLongitude);
+            int target = graph.indexOf(toLocationId);
+            return source < 0 || target < 0 ? null : shortestPath(graph, hotRoutes, source, target);
+        }, fromLatitude, fromLongitude);
+    }
+    
+    /**
+     * Runs the search and checks every location on the result against the read model serving
+     * this thread, which inside {@link LocationService#readConsistent} is the pinned version. A
+     * route through a location that version lacks or has elsewhere is searched again once the
+     * queued changes are applied, and failing that on a copy of the graph moved to that version.
+     */
+    private Optional<Route> route(PathFinder finder, Double startLatitude, Double startLongitude) {
+        RoutingState current = currentState();
+        WalkingGraph graph = current.graph;
+        WalkingGraph.ShortestPath path = finder.find(graph, current.hotRoutes);
+        if (path != null && !matchesReadModel(graph, path.getNodes())) {
+            applyPending();
+            current = state;
+            graph = current.graph;
+            path = finder.find(graph, current.hotRoutes);
+        }
+        if (path != null && !matchesReadModel(graph, path.getNodes())) {
+            // The trees belong to the published graph, so the copy is searched with A*
+            graph = graph.withChanges(toReadModel(graph, path.getNodes())).getGraph();
+            path = finder.find(graph, HotRouteTable.empty());
+            if (path != null && !matchesReadModel(graph, path.getNodes())) {
+                return Optional.empty();
+            }
+        }
+        return toRoute(graph, path, startLatitude, startLongitude);
+    }
+    
+    private boolean matchesReadModel(WalkingGraph graph, int[] nodes) {
+        for (int node : nodes) {
+            Location location = locationService.getLocationById(graph.nodeId(node)).orElse(null);
+            if (location == null || location.getLatitude() != graph.latitude(node)
+                    || location.getLongitude() != graph.longitude(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Moves, or removes, the given nodes to where the read model has them
+    private WalkingGraph.Update toReadModel(WalkingGraph graph, int[] nodes) {
+        WalkingGraph.Update update = new WalkingGraph.Update();
+        for (int node : nodes) {
+            long id = graph.nodeId(node);
+            Optional<Location> location = locationService.getLocationById(id);
+            if (location.isPresent()) {
+                update.putNode(id, location.get().getLatitude(), location.get().getLongitude());
+            } else {
+                update.removeNode(id);
+            }
+        }
+        return update;
+    }
+    
+    // Table lookup when either end is a hot destination, A* otherwise
+    private static WalkingGraph.ShortestPath shortestPath(WalkingGraph graph, HotRouteTable hotRoutes,
+                                                          int source, int target) {
+        if (hotRoutes.covers(source, target)) {
+            return hotRoutes.find(source, target);
+        }
+        return graph.shortestPath(source, target);
+    }
+    
+    // Readers never wait for an update; only the very first request builds synchronously
+    private RoutingState currentState() {
+        RoutingState current = state;
+        if (current != null) {
+            return current;
+        }
+        synchronized (applyLock) {
+            if (state == null) {
+                started = true;
+                synchronized (pendingLock) {
+                    pendingGraph = new WalkingGraph.Update();
+                    pendingHot = new LinkedHashMap<>();
+                }
+                state = buildState();
+                // Changes made while the data was read are applied again; applying one twice changes nothing
+                scheduleApply();
+            }
+            return state;
+        }
+    }
+    
+    private RoutingState buildState() {
+        long start = System.nanoTime();
+        // From the table: the read model serving this thread may be a pinned older version
+        List<Location> locations = locationRepository.findAll();
+        WalkingGraph graph = WalkingGraph.build(locations, pathRepository.findAll());
+        NavigableSet<Long> hotCandidates = new TreeSet<>();
+        for (Location location : locations) {
+            if (hotTypes.contains(location.getType())) {
+                hotCandidates.add(location.getId());
+            }
+        }
+        List<Long> dropped = droppedOf(hotCandidates);
+        HotRouteTable hotRoutes = HotRouteTable.build(graph, chosenOf(hotCandidates));
+        logDropped(List.of(), dropped);
+        log.debug("Built walking graph with {} nodes, {} edges and {} hot destinations in {} ms",
+                graph.locationCount(), graph.edgeCount(), hotRoutes.size(), (System.nanoTime() - start) / 1_000_000);
+        return new RoutingState(graph, hotRoutes, Collections.unmodifiableNavigableSet(hotCandidates), dropped);
+    }
+    
+    // Folds every queued change into the next state
+    private void applyPending() {
+        synchronized (applyLock) {
+            RoutingState current = state;
+            if (current == null) {
+                // Built from the current data on first use
+                return;
+            }
+            WalkingGraph.Update update;
+            Map<Long, Boolean> hot;
+            synchronized (pendingLock) {
+                update = pendingGraph;
+                hot = pendingHot;
+                pendingGraph = new WalkingGraph.Update();
+                pendingHot = new LinkedHashMap<>();
+            }
+            if (update.isEmpty() && hot.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                WalkingGraph.Patch patch = current.graph.withChanges(update);
+                NavigableSet<Long> hotCandidates = new TreeSet<>(current.hotCandidates);
+                hot.forEach((id, isHot) -> {
+                    if (isHot) {
+                        hotCandidates.add(id);
+                    } else {
+                        hotCandidates.remove(id);
+                    }
+                });
+                List<Long> dropped = droppedOf(hotCandidates);
+                HotRouteTable hotRoutes = current.hotRoutes.update(patch.getGraph(), patch.getChanges(),
+                        chosenOf(hotCandidates));
+                logDropped(current.droppedHot, dropped);
+                state = new RoutingState(patch.getGraph(), hotRoutes,
+                        Collections.unmodifiableNavigableSet(hotCandidates), dropped);
+                log.debug("Applied {} edge changes to the walking graph, recomputing {} of {} hot trees, in {} ms",
+                        patch.getChanges().size(), hotRoutes.getComputed(), hotRoutes.size(),
+                        (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.warn("Updating the walking graph failed, rebuilding it", e);
+                state = buildState();
+            }
+        }
+    }
+    
+    // Coalesces bursts of edits into a single background update
+    private void scheduleApply() {
+        if (applyPending.compareAndSet(false, true)) {
+            updateExecutor.execute(() -> {
+                applyPending.set(false);
+                try {
+                    applyPending();
+                } catch (RuntimeException e) {
+                    log.warn("Rebuilding the walking graph failed, keeping the previous one", e);
+                }
+            });
+        }
+    }
+    
+    // Hot destinations that get a tree: the first routing.max-hot-destinations by id
+    private List<Long> chosenOf(NavigableSet<Long> hotCandidates) {
+        List<Long> chosen = new ArrayList<>(Math.min(hotCandidates.size(), maxHotDestinations));
+        for (Long id : hotCandidates) {
+            if (chosen.size() == maxHotDestinations) {
+                break;
+            }
+            chosen.add(id);
+        }
+        return chosen;
+    }
+    
+    private List<Long> droppedOf(NavigableSet<Long> hotCandidates) {
+        List<Long> dropped = new ArrayList<>(Math.max(0, hotCandidates.size() - maxHotDestinations));
+        int i = 0;
+        for (Long id : hotCandidates) {
+            if (i++ >= maxHotDestinations) {
+                dropped.add(id);
+            }
+        }
+        return Collections.unmodifiableList(dropped);
+    }
+    
+    private void logDropped(List<Long> before, List<Long> after) {
+        if (!after.isEmpty() && !after.equals(before)) {
+            log.warn("{} hot destinations exceed routing.max-hot-destinations={} and are routed with A*: {}{}",
+                    after.size(), maxHotDestinations, after.subList(0, Math.min(after.size(), LOGGED_DROPPED)),
+                    after.size() > LOGGED_DROPPED ? " and more" : "");
+        }
+    }
+    
+    private Optional<Route> toRoute(WalkingGraph current, WalkingGraph.ShortestPath path,
+                                    Double startLatitude, Double startLongitude) {
+        if (path == null) {
+            return Optional.empty();
+        }
+        int[] nodes = path.getNodes();
+        List<Long> locationIds = new ArrayList<>(nodes.length);
+        List<double[]> polyline = new ArrayList<>(nodes.length + 1);
+        double approach = 0;
+        if (startLatitude != null) {
+            approach = GeoDistance.haversine(startLatitude, startLongitude,
+                    current.latitude(nodes[0]), current.longitude(nodes[0]));
+            if (approach > 0) {
+                polyline.add(new double[] {startLatitude, startLongitude});
+            }
+        }
+        for (int node : nodes) {
+            locationIds.add(current.nodeId(node));
+            polyline.add(new double[] {current.latitude(node), current.longitude(node)});
+        }
+        double distance = path.getDistance() + approach;
+        long duration = Math.round(distance / walkingSpeed);
+        return Optional.of(new Route(locationIds.get(0), locationIds.get(locationIds.size() - 1),
+                distance, duration, locationIds, polyline, current.isSynthetic(nodes)));
+    }
+    
+    public List<Path> getAllPaths() {
+        return pathRepository.findAll();
+    }
+    
+    public Path savePath(Path path) {
+        if (!locationService.existsById(path.getFromLocationId())
+                || !locationService.existsById(path.getToLocationId())) {
+            throw new IllegalArgumentException("Path endpoints must be existing locations");
+        }
+        Path saved = pathRepository.save(path);
+        record(update -> update.putPath(saved), null, false);
+        scheduleApply();
+        return saved;
+    }
+    
+    public boolean deletePath(Long id) {
+        if (!pathRepository.existsById(id)) {
+            return false;
+        }
+        pathRepository.deleteById(id);
+        record(update -> update.removePath(id), null, false);
+        scheduleApply();
+        return true;
+    }
+    
+    @EventListener
+    public void onLocationChanged(LocationChangedEvent event) {
+        long id = event.getLocationId();
+        if (event.isDeletion()) {
+            pathRepository.deleteByLocationId(id);
+            record(update -> update.removeNode(id), id, false);
+            // Routes through the location must not outlive it
+            applyPending();
+            return;
+        }
+        Location previous = event.getPrevious();
+        Location current = event.getCurrent();
+        boolean hot = hotTypes.contains(current.getType());
+        if (previous != null && previous.getLatitude().equals(current.getLatitude())
+                && previous.getLongitude().equals(current.getLongitude())
+                && hot == hotTypes.contains(previous.getType())) {
+            // Name or description only: nothing routing uses
+            return;
+        }
+        record(update -> update.putNode(id, current.getLatitude(), current.getLongitude()), id, hot);
+        scheduleApply();
+    }
+    
+    // Queues a change for the next state; hotId, when given, gains or loses hot candidacy
+    private void record(Consumer<WalkingGraph.Update> change, Long hotId, boolean hot) {
+        if (!started) {
+            return;
+        }
+        synchronized (pendingLock) {
+            change.accept(pendingGraph);
+            if (hotId != null) {
+                pendingHot.remove(hotId);
+                pendingHot.put(hotId, hot);
+            }
+        }
+    }
+    
+    // Shortest path on a graph, with the hot-destination table built for that graph
+    private interface PathFinder {
+        WalkingGraph.ShortestPath find(WalkingGraph graph, HotRouteTable hotRoutes);
+    }
+    
+    private static final class RoutingState {
+        final WalkingGraph graph;
+        final HotRouteTable hotRoutes;
+        // Ids of every location of a hot type
+        final NavigableSet<Long> hotCandidates;
+        final List<Long> droppedHot;
+        
+        RoutingState(WalkingGraph graph, HotRouteTable hotRoutes, NavigableSet<Long> hotCandidates,
+                     List<Long> droppedHot) {
+            this.graph = graph;
+            this.hotRoutes = hotRoutes;
+            this.hotCandidates = hotCandidates;
+            this.droppedHot = droppedHot;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.ugmaps.service;
+
+import com.ugmaps.index.WebMercator;
+import com.ugmaps.model.Location;
+import com.ugmaps.tiles.TilePyramid;
+import com.ugmaps.tiles.TileStore;
+import com.ugmaps.tiles.VectorTileEncoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves the campus locations as Mapbox Vector Tiles, one layer per location type.
+ *
+ * Every tile of the campus pyramid (map.bounds.* over map.zoom.min..max) is pre-rendered
+ * at startup into a memory-mapped {@link TileStore}. When a location changes only the
+ * tiles around its old and new position are marked stale; those are re-rendered on their
+ * next request and kept in a small on-heap overlay in front of the store. Tiles outside
+ * the pyramid are rendered on demand and not cached.
+ */
+@Service
+public class VectorTileService {
+    
+    private static final Logger log = LoggerFactory.getLogger(VectorTileService.class);
+    
+    public static final int EXTENT = 4096;
+    // Points this close outside a tile are drawn in it too so markers are not clipped at edges
+    private static final int BUFFER = 64;
+    private static final int MAX_ZOOM = 22;
+    
+    @Autowired
+    private LocationService locationService;
+    
+    @Value("${map.bounds.north}")
+    private double boundsNorth;
+    
+    @Value("${map.bounds.south}")
+    private double boundsSouth;
+    
+    @Value("${map.bounds.east}")
+    private double boundsEast;
+    
+    @Value("${map.bounds.west}")
+    private double boundsWest;
+    
+    @Value("${map.zoom.min}")
+    private int minZoom;
+    
+    @Value("${map.zoom.max}")
+    private int maxZoom;
+    
+    @Value("${map.tiles.store-file:${java.io.tmpdir}/ug-campus-tiles.bin}")
+    private String storeFile;
+    
+    private TilePyramid pyramid;
+    private volatile TileStore store;
+    
+    // Pyramid tiles changed since the store was written, and their re-rendered bytes
+    private final Set<Long> staleTiles = ConcurrentHashMap.newKeySet();
+    private final Map<Long, byte[]> overlay = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        pyramid = new TilePyramid(boundsSouth, boundsWest, boundsNorth, boundsEast, minZoom, Math.min(maxZoom, MAX_ZOOM));
+    }
+    
+    // Runs once the seed data is in; tiles requested before then are rendered on demand
+    @EventListener(ApplicationReadyEvent.class)
+    public void prerender() {
+        long started = System.currentTimeMillis();
+        Path file = Paths.get(storeFile);
+        try {
+            store = TileStore.create(file, pyramid, this::render);
+            log.info("Pre-rendered {} vector tiles ({} bytes) into {} in {} ms", pyramid.getTileCount(),
+                    store.getSizeBytes(), file, System.currentTimeMillis() - started);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not pre-render vector tiles into {}; tiles will be rendered on demand", file, e);
+        }
+    }
+    
+    @PreDestroy
+    public void close() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+    
+    // Encoded tile, empty when nothing is in it; null for coordinates outside the tile grid
+    public byte[] getTile(int zoom, int x, int y) {
+        if (zoom < 0 || zoom > MAX_ZOOM || x < 0 || y < 0 || x >= (1 << zoom) || y >= (1 << zoom)) {
+            return null;
+        }
+        if (!pyramid.contains(zoom, x, y)) {
+            return render(zoom, x, y);
+        }
+        long key = tileKey(zoom, x, y);
+        byte[] tile = overlay.get(key);
+        if (tile != null) {
+            return tile;
+        }
+        TileStore current = store;
+        if (current != null && !staleTiles.contains(key)) {
+            return current.get(zoom, x, y);
+        }
+        // An invalidation racing this render removes the entry after it has been added
+        return overlay.computeIfAbsent(key, k -> render(zoom, x, y));
+    }
+    
+    @EventListener
+    public void onLocationChanged(LocationChangedEvent event) {
+        invalidate(event.getPrevious());
+        invalidate(event.getCurrent());
+    }
+    
+    private void invalidate(Location location) {
+        if (location == null || location.getLatitude() == null || location.getLongitude() == null) {
+            return;
+        }
+        double pointX = WebMercator.x(location.getLongitude());
+        double pointY = WebMercator.y(location.getLatitude());
+        for (int zoom = pyramid.getMinZoom(); zoom <= pyramid.getMaxZoom(); zoom++) {
+            double scale = 1L << zoom;
+            double margin = (double) BUFFER / EXTENT;
+            int fromX = (int) Math.floor(pointX * scale - margin);
+            int toX = (int) Math.floor(pointX * scale + margin);
+            int fromY = (int) Math.floor(pointY * scale - margin);
+            int toY = (int) Math.floor(pointY * scale + margin);
+            for (int x = fromX; x <= toX; x++) {
+                for (int y = fromY; y <= toY; y++) {
+                    if (pyramid.contains(zoom, x, y)) {
+                        long key = tileKey(zoom, x, y);
+                        staleTiles.add(key);
+                        overlay.remove(key);
+                    }
+                }
+            }
+        }
+    }
+    
+    private byte[] render(int zoom, int x, int y) {
+        double scale = 1L << zoom;
+        double margin = (double) BUFFER / EXTENT;
+        double west = WebMercator.longitude((x - margin) / scale);
+        double east = WebMercator.longitude((x + 1 + margin) / scale);
+        double north = WebMercator.latitude((y - margin) / scale);
+        double south = WebMercator.latitude((y + 1 + margin) / scale);
+        
+        long[] ids = locationService.findLocationIdsWithinBounds(south, west, north, east);
+        if (ids.length == 0) {
+            return new byte[0];
+        }
+        Arrays.sort(ids);
+        List<Location> locations = locationService.getLocationsByIds(ids);
+        
+        VectorTileEncoder encoder = new VectorTileEncoder(EXTENT);
+        for (Location location : locations) {
+            int tileX = (int) Math.round((WebMercator.x(location.getLongitude()) * scale - x) * EXTENT);
+            int tileY = (int) Math.round((WebMercator.y(location.getLatitude()) * scale - y) * EXTENT);
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("name", location.getName());
+            properties.put("type", location.getType() != null ? location.getType().name() : null);
+            String layer = location.getType() != null ? location.getType().name().toLowerCase() : "other";
+            encoder.addPoint(layer, location.getId(), tileX, tileY, properties);
+        }
+        return encoder.encode();
+    }
+    
+    private static long tileKey(int zoom, int x, int y) {
+        return ((long) zoom << 58) | ((long) x << 29) | y;
+    }
+}
@@ -0,0 +1,162 @@
+package com.ugmaps.storage;
+
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary copy of every location row, from which the in-memory read models are rebuilt
+ * on boot without going through JPA. The file is memory-mapped for reading, so decoding is a
+ * sequential scan of the page cache. Layout (big-endian): magic, format version, the
+ * {@link TableFingerprint} of the table when it was written, the type names in use, the row
+ * count, then per row id, latitude, longitude, type index, both timestamps, name and
+ * description. Types are stored by name, so reordering {@link LocationType} does not corrupt
+ * old files. Limited to 2 GB, several million campus-sized rows.
+ */
+public final class ReadModelFile {
+
+    private static final int MAGIC = 0x55474D52; // "UGMR"
+    private static final int VERSION = 1;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final TableFingerprint fingerprint;
+    private final List<Location> locations;
+
+    private ReadModelFile(TableFingerprint fingerprint, List<Location> locations) {
+        this.fingerprint = fingerprint;
+        this.locations = locations;
+    }
+
+    public TableFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    public List<Location> getLocations() {
+        return locations;
+    }
+
+    /**
+     * Writes the rows to a temporary file next to {@code file} and moves it into place, so a
+     * crash never leaves a half-written snapshot behind.
+     */
+    public static void write(Path file, TableFingerprint fingerprint, List<Location> locations) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        LocationType[] types = LocationType.values();
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(fingerprint.getRowCount());
+            output.writeLong(fingerprint.getMaxId());
+            writeTimestamp(output, fingerprint.getMaxUpdatedAt());
+            output.writeInt(types.length);
+            for (LocationType type : types) {
+                writeString(output, type.name());
+            }
+            output.writeInt(locations.size());
+            for (Location location : locations) {
+                output.writeLong(location.getId());
+                output.writeDouble(location.getLatitude());
+                output.writeDouble(location.getLongitude());
+                output.writeByte(location.getType() != null ? location.getType().ordinal() : -1);
+                writeTimestamp(output, location.getCreatedAt());
+                writeTimestamp(output, location.getUpdatedAt());
+                writeString(output, location.getName());
+                writeString(output, location.getDescription());
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Maps and decodes a snapshot; IOException when it is missing, truncated or of another format
+    public static ReadModelFile read(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Read model snapshot exceeds 2 GB: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (data.getInt() != MAGIC || data.getInt() != VERSION) {
+                throw new IOException("Not a read model snapshot of this version: " + file);
+            }
+            TableFingerprint fingerprint = new TableFingerprint(data.getLong(), data.getLong(), readTimestamp(data));
+            LocationType[] types = new LocationType[data.getInt()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = LocationType.valueOf(readString(data));
+            }
+            int rows = data.getInt();
+            List<Location> locations = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                Location location = new Location();
+                location.setId(data.getLong());
+                location.setLatitude(data.getDouble());
+                location.setLongitude(data.getDouble());
+                byte type = data.get();
+                location.setType(type >= 0 ? types[type] : null);
+                location.setCreatedAt(readTimestamp(data));
+                location.setUpdatedAt(readTimestamp(data));
+                location.setName(readString(data));
+                location.setDescription(readString(data));
+                locations.add(location);
+            }
+            return new ReadModelFile(fingerprint, locations);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                | NegativeArraySizeException e) {
+            throw new IOException("Corrupt read model snapshot: " + file, e);
+        }
+    }
+
+    private static void writeTimestamp(DataOutputStream output, LocalDateTime timestamp) throws IOException {
+        if (timestamp == null) {
+            output.writeLong(NO_TIMESTAMP);
+            return;
+        }
+        output.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        output.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(MappedByteBuffer data) {
+        long seconds = data.getLong();
+        return seconds != NO_TIMESTAMP ? LocalDateTime.ofEpochSecond(seconds, data.getInt(), ZoneOffset.UTC) : null;
+    }
+
+    // Length-prefixed UTF-8; -1 for null
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
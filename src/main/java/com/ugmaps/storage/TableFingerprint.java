@@ -0,0 +1,73 @@
+package com.ugmaps.storage;
+
+import com.ugmaps.model.Location;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Cheap summary of the locations table: row count, highest id and latest update. Inserts move
+ * the count and the id, deletes the count and updates the timestamp, so a snapshot taken at
+ * the same fingerprint still matches the table. Changes made behind the application's back
+ * (raw SQL that keeps all three) are not detected.
+ */
+public final class TableFingerprint {
+
+    private final long rowCount;
+    private final long maxId;
+    private final LocalDateTime maxUpdatedAt;
+
+    public TableFingerprint(Long rowCount, Long maxId, LocalDateTime maxUpdatedAt) {
+        this.rowCount = rowCount != null ? rowCount : 0;
+        this.maxId = maxId != null ? maxId : 0;
+        this.maxUpdatedAt = maxUpdatedAt;
+    }
+
+    // Fingerprint the table would have if it held exactly these rows
+    public static TableFingerprint of(Collection<Location> locations) {
+        long maxId = 0;
+        LocalDateTime maxUpdatedAt = null;
+        for (Location location : locations) {
+            maxId = Math.max(maxId, location.getId());
+            if (location.getUpdatedAt() != null && (maxUpdatedAt == null || location.getUpdatedAt().isAfter(maxUpdatedAt))) {
+                maxUpdatedAt = location.getUpdatedAt();
+            }
+        }
+        return new TableFingerprint((long) locations.size(), maxId, maxUpdatedAt);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public LocalDateTime getMaxUpdatedAt() {
+        return maxUpdatedAt;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof TableFingerprint)) {
+            return false;
+        }
+        TableFingerprint that = (TableFingerprint) other;
+        return rowCount == that.rowCount && maxId == that.maxId && Objects.equals(maxUpdatedAt, that.maxUpdatedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rowCount, maxId, maxUpdatedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "TableFingerprint{rows=" + rowCount + ", maxId=" + maxId + ", maxUpdatedAt=" + maxUpdatedAt + "}";
+    }
+}
@@ -0,0 +1,96 @@
+package com.ugmaps.tiles;
+
+import com.ugmaps.index.WebMercator;
+
+/**
+ * The slippy-map tiles covering a bounding box over a range of zoom levels, numbered
+ * zoom by zoom and row by row so each tile has a dense index.
+ */
+public final class TilePyramid {
+
+    private final int minZoom;
+    private final int maxZoom;
+    private final int[] minX;
+    private final int[] maxX;
+    private final int[] minY;
+    private final int[] maxY;
+    private final int[] firstIndex;
+    private final int tileCount;
+
+    public TilePyramid(double south, double west, double north, double east, int minZoom, int maxZoom) {
+        if (minZoom < 0 || maxZoom > 30 || minZoom > maxZoom) {
+            throw new IllegalArgumentException("Invalid zoom range: " + minZoom + ".." + maxZoom);
+        }
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        int levels = maxZoom - minZoom + 1;
+        minX = new int[levels];
+        maxX = new int[levels];
+        minY = new int[levels];
+        maxY = new int[levels];
+        firstIndex = new int[levels];
+        long count = 0;
+        for (int level = 0; level < levels; level++) {
+            int zoom = minZoom + level;
+            minX[level] = WebMercator.tileX(west, zoom);
+            maxX[level] = WebMercator.tileX(east, zoom);
+            // Tile rows are numbered from the north
+            minY[level] = WebMercator.tileY(north, zoom);
+            maxY[level] = WebMercator.tileY(south, zoom);
+            firstIndex[level] = (int) Math.min(count, Integer.MAX_VALUE);
+            count += (long) (maxX[level] - minX[level] + 1) * (maxY[level] - minY[level] + 1);
+        }
+        tileCount = count > Integer.MAX_VALUE ? -1 : (int) count;
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public int getMinX(int zoom) {
+        return minX[zoom - minZoom];
+    }
+
+    public int getMaxX(int zoom) {
+        return maxX[zoom - minZoom];
+    }
+
+    public int getMinY(int zoom) {
+        return minY[zoom - minZoom];
+    }
+
+    public int getMaxY(int zoom) {
+        return maxY[zoom - minZoom];
+    }
+
+    // Number of tiles, or -1 if there are more than fit an int
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    public boolean contains(int zoom, int x, int y) {
+        return indexOf(zoom, x, y) >= 0;
+    }
+
+    // Dense index of the tile, or -1 when it is outside the pyramid
+    public int indexOf(int zoom, int x, int y) {
+        if (zoom < minZoom || zoom > maxZoom) {
+            return -1;
+        }
+        int level = zoom - minZoom;
+        if (x < minX[level] || x > maxX[level] || y < minY[level] || y > maxY[level]) {
+            return -1;
+        }
+        int columns = maxX[level] - minX[level] + 1;
+        return firstIndex[level] + (y - minY[level]) * columns + (x - minX[level]);
+    }
+
+    @Override
+    public String toString() {
+        return "TilePyramid{zoom=" + minZoom + ".." + maxZoom + ", tiles=" + tileCount + "}";
+    }
+}
@@ -0,0 +1,104 @@
+package com.ugmaps.tiles;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only store of pre-rendered tiles for a fixed pyramid, kept in one file that is
+ * memory-mapped after it has been written. Tile bytes therefore live in the page cache
+ * rather than on the heap; only the offset table (two ints per tile) does. The file is
+ * limited to 2 GB, far more than a campus pyramid needs.
+ */
+public final class TileStore implements Closeable {
+
+    // Renders the encoded bytes of one tile
+    public interface TileRenderer {
+        byte[] render(int zoom, int x, int y);
+    }
+
+    private final TilePyramid pyramid;
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    private TileStore(TilePyramid pyramid, FileChannel channel, MappedByteBuffer data, int[] offsets, int[] lengths) {
+        this.pyramid = pyramid;
+        this.channel = channel;
+        this.data = data;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Renders every tile of the pyramid into {@code file}, replacing its contents, and maps
+     * the result into memory.
+     */
+    public static TileStore create(Path file, TilePyramid pyramid, TileRenderer renderer) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        int tileCount = pyramid.getTileCount();
+        if (tileCount < 0) {
+            throw new IllegalArgumentException("Tile pyramid too large to store: " + pyramid);
+        }
+        int[] offsets = new int[tileCount];
+        int[] lengths = new int[tileCount];
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long position = 0;
+            for (int zoom = pyramid.getMinZoom(); zoom <= pyramid.getMaxZoom(); zoom++) {
+                for (int y = pyramid.getMinY(zoom); y <= pyramid.getMaxY(zoom); y++) {
+                    for (int x = pyramid.getMinX(zoom); x <= pyramid.getMaxX(zoom); x++) {
+                        byte[] tile = renderer.render(zoom, x, y);
+                        int slot = pyramid.indexOf(zoom, x, y);
+                        if (position + tile.length > Integer.MAX_VALUE) {
+                            throw new IOException("Tile store exceeds 2 GB: " + file);
+                        }
+                        offsets[slot] = (int) position;
+                        lengths[slot] = tile.length;
+                        ByteBuffer buffer = ByteBuffer.wrap(tile);
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                    }
+                }
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+            return new TileStore(pyramid, channel, data, offsets, lengths);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public TilePyramid getPyramid() {
+        return pyramid;
+    }
+
+    // Stored bytes of a tile, or null when the tile is outside the pyramid
+    public byte[] get(int zoom, int x, int y) {
+        int slot = pyramid.indexOf(zoom, x, y);
+        if (slot < 0) {
+            return null;
+        }
+        byte[] tile = new byte[lengths[slot]];
+        data.get(offsets[slot], tile);
+        return tile;
+    }
+
+    public long getSizeBytes() {
+        return data.capacity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
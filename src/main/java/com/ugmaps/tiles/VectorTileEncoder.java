@@ -0,0 +1,225 @@
+package com.ugmaps.tiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds one Mapbox Vector Tile (MVT 2.1) and encodes it as protobuf.
+ *
+ * Coordinates are tile-local integers in [0, extent) with the origin in the top-left
+ * corner; points slightly outside that range (the rendering buffer) are allowed. Property
+ * keys and values are de-duplicated per layer as the specification requires. The protobuf
+ * wire format is written by hand since a tile only needs a handful of message types.
+ */
+public class VectorTileEncoder {
+
+    private static final int GEOMETRY_POINT = 1;
+    private static final int COMMAND_MOVE_TO = 1;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    private final int extent;
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+    public VectorTileEncoder(int extent) {
+        this.extent = extent;
+    }
+
+    public int getExtent() {
+        return extent;
+    }
+
+    public boolean isEmpty() {
+        return layers.isEmpty();
+    }
+
+    /**
+     * Adds a point feature. Property values may be strings, integral numbers, floating
+     * point numbers or booleans; null values are skipped.
+     */
+    public void addPoint(String layerName, long id, int x, int y, Map<String, ?> properties) {
+        Layer layer = layers.computeIfAbsent(layerName, Layer::new);
+        List<Integer> tags = new ArrayList<>(properties.size() * 2);
+        for (Map.Entry<String, ?> property : properties.entrySet()) {
+            if (property.getValue() != null) {
+                tags.add(layer.keys.computeIfAbsent(property.getKey(), k -> layer.keys.size()));
+                tags.add(layer.values.computeIfAbsent(normalize(property.getValue()), v -> layer.values.size()));
+            }
+        }
+        int[] geometry = {command(COMMAND_MOVE_TO, 1), zigZag(x), zigZag(y)};
+        layer.features.add(new Feature(id, tags.stream().mapToInt(Integer::intValue).toArray(), geometry));
+    }
+
+    public byte[] encode() {
+        ProtoWriter tile = new ProtoWriter();
+        for (Layer layer : layers.values()) {
+            tile.writeMessage(3, encodeLayer(layer));
+        }
+        return tile.toByteArray();
+    }
+
+    private ProtoWriter encodeLayer(Layer layer) {
+        ProtoWriter out = new ProtoWriter();
+        out.writeVarintField(15, 2);
+        out.writeStringField(1, layer.name);
+        for (Feature feature : layer.features) {
+            ProtoWriter encoded = new ProtoWriter();
+            if (feature.id >= 0) {
+                encoded.writeVarintField(1, feature.id);
+            }
+            encoded.writePackedField(2, feature.tags);
+            encoded.writeVarintField(3, GEOMETRY_POINT);
+            encoded.writePackedField(4, feature.geometry);
+            out.writeMessage(2, encoded);
+        }
+        for (String key : layer.keys.keySet()) {
+            out.writeStringField(3, key);
+        }
+        for (Object value : layer.values.keySet()) {
+            out.writeMessage(4, encodeValue(value));
+        }
+        out.writeVarintField(5, extent);
+        return out;
+    }
+
+    private static ProtoWriter encodeValue(Object value) {
+        ProtoWriter out = new ProtoWriter();
+        if (value instanceof String) {
+            out.writeStringField(1, (String) value);
+        } else if (value instanceof Double) {
+            out.writeDoubleField(3, (Double) value);
+        } else if (value instanceof Long) {
+            out.writeVarintField(6, zigZag((Long) value));
+        } else {
+            out.writeVarintField(7, Boolean.TRUE.equals(value) ? 1 : 0);
+        }
+        return out;
+    }
+
+    // Collapse numeric types so that equal values share one entry in the value table
+    private static Object normalize(Object value) {
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return value;
+        }
+        return value.toString();
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static final class Layer {
+        final String name;
+        final Map<String, Integer> keys = new LinkedHashMap<>();
+        final Map<Object, Integer> values = new LinkedHashMap<>();
+        final List<Feature> features = new ArrayList<>();
+
+        Layer(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Feature {
+        final long id;
+        final int[] tags;
+        final int[] geometry;
+
+        Feature(long id, int[] tags, int[] geometry) {
+            this.id = id;
+            this.tags = tags;
+            this.geometry = geometry;
+        }
+    }
+
+    // Growable buffer with just the protobuf encodings a vector tile uses
+    private static final class ProtoWriter {
+        private byte[] buffer = new byte[64];
+        private int size;
+
+        void writeVarintField(int field, long value) {
+            writeVarint(((long) field << 3) | WIRE_VARINT);
+            writeVarint(value);
+        }
+
+        void writeDoubleField(int field, double value) {
+            writeVarint(((long) field << 3) | WIRE_FIXED64);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                writeByte((int) (bits >>> (8 * i)));
+            }
+        }
+
+        void writeStringField(int field, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(((long) field << 3) | WIRE_LENGTH_DELIMITED);
+            writeVarint(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        void writeMessage(int field, ProtoWriter message) {
+            writeVarint(((long) field << 3) | WIRE_LENGTH_DELIMITED);
+            writeVarint(message.size);
+            writeBytes(message.buffer, 0, message.size);
+        }
+
+        void writePackedField(int field, int[] values) {
+            if (values.length == 0) {
+                return;
+            }
+            ProtoWriter packed = new ProtoWriter();
+            for (int value : values) {
+                packed.writeVarint(value & 0xFFFFFFFFL);
+            }
+            writeMessage(field, packed);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
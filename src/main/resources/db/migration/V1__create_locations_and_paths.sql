@@ -0,0 +1,34 @@
+-- Schema of the persistent storage mode (profile "persistent"); the in-memory default
+-- mode still lets Hibernate create the same tables. Keep both in step with the entities.
+
+CREATE SEQUENCE locations_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE locations (
+    id          BIGINT NOT NULL,
+    name        VARCHAR(255) NOT NULL,
+    description TEXT,
+    latitude    FLOAT(53) NOT NULL,
+    longitude   FLOAT(53) NOT NULL,
+    type        VARCHAR(255) NOT NULL,
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6),
+    -- H2 cannot index expressions, so LOWER(name) is indexed through a generated column
+    name_lower  VARCHAR(255) GENERATED ALWAYS AS (LOWER(name)),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_locations_type ON locations (type);
+CREATE INDEX idx_locations_lat_lon ON locations (latitude, longitude);
+CREATE INDEX idx_locations_name_lower ON locations (name_lower);
+-- Keeps the fingerprint query (COUNT, MAX(id), MAX(updated_at)) of the read model snapshot cheap
+CREATE INDEX idx_locations_updated_at ON locations (updated_at);
+
+CREATE TABLE paths (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name             VARCHAR(255),
+    from_location_id BIGINT NOT NULL,
+    to_location_id   BIGINT NOT NULL,
+    distance         FLOAT(53),
+    created_at       TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,2 @@
+-- Marks placeholder paths (the straight-line links of the demo seed data) apart from surveyed footpaths
+ALTER TABLE paths ADD COLUMN synthetic BOOLEAN DEFAULT FALSE NOT NULL;
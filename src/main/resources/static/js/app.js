@@ -6,6 +6,10 @@ class UGCampusNavigator {
         this.userLocation = null;
         this.locations = [];
         this.currentLocationMarker = null;
+        // Above this many locations the full map is drawn from server-side clusters
+        this.clusterThreshold = 300;
+        this.clusterMode = false;
+        this.clusterRequest = 0;
         
         this.init();
     }
@@ -54,6 +58,12 @@ class UGCampusNavigator {
                 console.log('Clicked at:', e.latlng);
             });
             
+            this.map.on('moveend', () => {
+                if (this.clusterMode) {
+                    this.refreshClusters();
+                }
+            });
+            
             // Trigger load event if map is already loaded
             setTimeout(() => {
                 document.querySelector('.map-container').classList.add('map-loaded');
@@ -158,12 +168,74 @@ class UGCampusNavigator {
         this.markers.forEach(marker => this.map.removeLayer(marker));
         this.markers = [];
         
+        this.clusterMode = locations === this.locations && locations.length > this.clusterThreshold;
+        if (this.clusterMode) {
+            this.refreshClusters();
+            return;
+        }
+        
         locations.forEach(location => {
             const marker = this.createLocationMarker(location);
             this.markers.push(marker);
         });
     }
     
+    async refreshClusters() {
+        const request = ++this.clusterRequest;
+        const bounds = this.map.getBounds();
+        const bbox = [bounds.getWest(), bounds.getSouth(), bounds.getEast(), bounds.getNorth()].join(',');
+        
+        try {
+            const response = await fetch(`/api/locations/clusters?bbox=${bbox}&zoom=${this.map.getZoom()}`);
+            if (!response.ok) {
+                throw new Error('Failed to load clusters');
+            }
+            const clusters = await response.json();
+            
+            // A newer viewport request has been issued meanwhile
+            if (request !== this.clusterRequest || !this.clusterMode) {
+                return;
+            }
+            
+            this.markers.forEach(marker => this.map.removeLayer(marker));
+            this.markers = [];
+            clusters.forEach(cluster => {
+                const location = cluster.locationId != null
+                    ? this.locations.find(l => l.id === cluster.locationId)
+                    : null;
+                const marker = location
+                    ? this.createLocationMarker(location)
+                    : this.createClusterMarker(cluster);
+                this.markers.push(marker);
+            });
+        } catch (error) {
+            console.error('Error loading clusters:', error);
+        }
+    }
+    
+    createClusterMarker(cluster) {
+        const size = cluster.count < 10 ? 30 : cluster.count < 100 ? 38 : 46;
+        const marker = L.marker([cluster.latitude, cluster.longitude], {
+            icon: L.divIcon({
+                className: 'cluster-marker',
+                html: `<div style="width: ${size}px; height: ${size}px; line-height: ${size}px;">${cluster.count}</div>`,
+                iconSize: [size, size],
+                iconAnchor: [size / 2, size / 2]
+            })
+        }).addTo(this.map);
+        
+        const types = Object.entries(cluster.countsByType)
+            .sort((a, b) => b[1] - a[1])
+            .map(([type, count]) => `<li>${this.formatLocationType(type)}: ${count}</li>`)
+            .join('');
+        marker.bindTooltip(`<ul class="cluster-types">${types}</ul>`, { direction: 'top' });
+        marker.on('click', () => {
+            this.map.setView([cluster.latitude, cluster.longitude], this.map.getZoom() + 2);
+        });
+        
+        return marker;
+    }
+    
     createLocationMarker(location) {
         const icon = this.getLocationIcon(location.type);
         
@@ -365,10 +437,13 @@ class UGCampusNavigator {
         this.renderLocationsList();
     }
     
-    focusLocation(locationId) {
+    async focusLocation(locationId) {
         const location = this.locations.find(l => l.id === locationId);
         if (location) {
             this.map.setView([location.latitude, location.longitude], 18);
+            if (this.clusterMode) {
+                await this.refreshClusters();
+            }
             
             // Find and open the marker popup
             const marker = this.markers.find(m => 
@@ -464,7 +539,7 @@ class UGCampusNavigator {
             return;
         }
         
-        let fromLocation, toLocation;
+        const params = new URLSearchParams({ to: toValue });
         
         // Get from location
         if (fromValue === 'current') {
@@ -472,45 +547,44 @@ class UGCampusNavigator {
                 this.showError('Current location not available. Please enable location services.');
                 return;
             }
-            fromLocation = this.userLocation;
+            params.set('fromLat', this.userLocation.latitude);
+            params.set('fromLon', this.userLocation.longitude);
         } else {
-            const loc = this.locations.find(l => l.id == fromValue);
-            if (!loc) return;
-            fromLocation = { latitude: loc.latitude, longitude: loc.longitude };
+            params.set('from', fromValue);
         }
         
-        // Get to location
-        const loc = this.locations.find(l => l.id == toValue);
-        if (!loc) return;
-        toLocation = { latitude: loc.latitude, longitude: loc.longitude };
-        
-        this.displayRoute(fromLocation, toLocation);
+        this.displayRoute(params);
     }
     
-    displayRoute(from, to) {
+    async displayRoute(params) {
         // Clear existing route
         this.clearRoute();
         
-        // Create routing control
-        this.currentRoute = L.Routing.control({
-            waypoints: [
-                L.latLng(from.latitude, from.longitude),
-                L.latLng(to.latitude, to.longitude)
-            ],
-            routeWhileDragging: false,
-            addWaypoints: false,
-            createMarker: function() { return null; }, // Don't create default markers
-            lineOptions: {
-                styles: [{ color: '#667eea', weight: 6, opacity: 0.8 }]
+        try {
+            const response = await fetch(`/api/routes?${params}`);
+            if (!response.ok) {
+                throw new Error('No walking route found');
             }
-        }).addTo(this.map);
-        
-        document.getElementById('clearRouteBtn').style.display = 'inline-flex';
+            const route = await response.json();
+            
+            this.currentRoute = L.polyline(route.polyline, {
+                color: '#667eea', weight: 6, opacity: 0.8
+            }).addTo(this.map);
+            
+            const minutes = Math.max(1, Math.round(route.duration / 60));
+            this.currentRoute.bindPopup(`${Math.round(route.distance)} m &middot; ${minutes} min walk`).openPopup();
+            this.map.fitBounds(this.currentRoute.getBounds(), { padding: [40, 40] });
+            
+            document.getElementById('clearRouteBtn').style.display = 'inline-flex';
+        } catch (error) {
+            console.error('Error calculating route:', error);
+            this.showError('Could not find a walking route between these locations');
+        }
     }
     
     clearRoute() {
         if (this.currentRoute) {
-            this.map.removeControl(this.currentRoute);
+            this.map.removeLayer(this.currentRoute);
             this.currentRoute = null;
         }
         document.getElementById('clearRouteBtn').style.display = 'none';
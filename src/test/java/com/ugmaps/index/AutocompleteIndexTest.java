@@ -0,0 +1,81 @@
+package com.ugmaps.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AutocompleteIndexTest {
+
+    private final AutocompleteIndex<String> index = AutocompleteIndex.build(List.of(
+            new AutocompleteIndex.Entry<>("Balme Library", 1, 1.0, "balme"),
+            new AutocompleteIndex.Entry<>("Great Hall", 2, 1.0, "great-hall"),
+            new AutocompleteIndex.Entry<>("Commonwealth Hall", 3, 1.0, "commonwealth"),
+            new AutocompleteIndex.Entry<>("Vandals", 3, 0.9, "vandals"),
+            new AutocompleteIndex.Entry<>("Legon Hall", 4, 1.0, "legon")));
+
+    @Test
+    void allowedEditsGrowWithTokenLength() {
+        assertThat(AutocompleteIndex.maxEdits(2)).isZero();
+        assertThat(AutocompleteIndex.maxEdits(3)).isEqualTo(1);
+        assertThat(AutocompleteIndex.maxEdits(5)).isEqualTo(1);
+        assertThat(AutocompleteIndex.maxEdits(6)).isEqualTo(2);
+    }
+
+    @Test
+    void completesPrefixesWithoutEdits() {
+        assertThat(payloads(index.complete("ba", 5))).containsExactly("balme");
+
+        // "hal" is one edit away, so the halls follow the exact prefix match
+        List<AutocompleteIndex.Match<String>> matches = index.complete("bal", 5);
+        assertThat(payloads(matches).get(0)).isEqualTo("balme");
+        assertThat(matches.get(0).getEdits()).isZero();
+        assertThat(matches.subList(1, matches.size())).allSatisfy(match -> assertThat(match.getEdits()).isEqualTo(1));
+    }
+
+    @Test
+    void toleratesOneTypoInShortTokens() {
+        List<AutocompleteIndex.Match<String>> matches = index.complete("balne", 5);
+
+        assertThat(payloads(matches)).containsExactly("balme");
+        assertThat(matches.get(0).getEdits()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsTypoBeyondTheBound() {
+        assertThat(index.complete("bxlne", 5)).isEmpty();
+        // One or two characters must match exactly
+        assertThat(index.complete("bx", 5)).isEmpty();
+    }
+
+    @Test
+    void toleratesTwoTyposInLongTokens() {
+        List<AutocompleteIndex.Match<String>> matches = index.complete("librray", 5);
+
+        assertThat(payloads(matches)).containsExactly("balme");
+        assertThat(matches.get(0).getEdits()).isEqualTo(2);
+    }
+
+    @Test
+    void prefersPhrasesMatchingEveryToken() {
+        assertThat(payloads(index.complete("great hall", 5))).containsExactly("great-hall");
+        assertThat(payloads(index.complete("hall", 5))).containsExactlyInAnyOrder("great-hall", "commonwealth", "legon");
+    }
+
+    @Test
+    void fallsBackToPhrasesMatchingMostTokens() {
+        assertThat(payloads(index.complete("legon zzzz", 5))).containsExactly("legon");
+    }
+
+    @Test
+    void returnsOnePhrasePerGroup() {
+        // "Commonwealth Hall" and its alias "Vandals" share a group
+        assertThat(payloads(index.complete("vandals", 5))).containsExactly("vandals");
+        assertThat(index.complete("hall", 2)).hasSize(2);
+    }
+
+    private static List<String> payloads(List<AutocompleteIndex.Match<String>> matches) {
+        return matches.stream().map(match -> match.getEntry().getPayload()).toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.ugmaps.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ClusterIndexTest {
+
+    private static final double WEST = -0.3;
+    private static final double SOUTH = 5.5;
+    private static final double EAST = -0.1;
+    private static final double NORTH = 5.8;
+
+    @Test
+    void everyZoomAccountsForEveryPoint() {
+        Random random = new Random(13);
+        ClusterIndex index = new ClusterIndex(17, 60, 3);
+        int[] perCategory = new int[3];
+        for (int i = 0; i < 400; i++) {
+            int category = random.nextInt(3);
+            perCategory[category]++;
+            index.put(i, 5.6 + random.nextDouble() * 0.1, -0.25 + random.nextDouble() * 0.1, category);
+        }
+
+        for (int zoom = 0; zoom <= 19; zoom++) {
+            List<ClusterIndex.Cluster> clusters = index.clusters(WEST, SOUTH, EAST, NORTH, zoom);
+            int[] counted = new int[3];
+            int total = 0;
+            for (ClusterIndex.Cluster cluster : clusters) {
+                total += cluster.getCount();
+                for (int category = 0; category < 3; category++) {
+                    counted[category] += cluster.getCategoryCounts()[category];
+                }
+                assertThat(cluster.getPointId() >= 0).isEqualTo(cluster.getCount() == 1);
+            }
+            assertThat(total).isEqualTo(400);
+            assertThat(counted).containsExactly(perCategory);
+            if (zoom > 17) {
+                assertThat(clusters).hasSize(400);
+            }
+        }
+        assertThat(index.clusters(WEST, SOUTH, EAST, NORTH, 0)).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void clusterIsAtTheCentroidAndALonePointAtItsPosition() {
+        ClusterIndex index = new ClusterIndex(17, 60, 2);
+        index.put(1, 5.6484, -0.1864, 0);
+        index.put(2, 5.6490, -0.1870, 1);
+        index.put(3, 5.7000, -0.1500, 1);
+
+        List<ClusterIndex.Cluster> clusters = index.clusters(WEST, SOUTH, EAST, NORTH, 13);
+        assertThat(clusters).hasSize(2);
+        ClusterIndex.Cluster pair = clusters.stream().filter(cluster -> cluster.getCount() == 2).findFirst().orElseThrow();
+        assertThat(pair.getLatitude()).isCloseTo(5.6487, within(1e-9));
+        assertThat(pair.getLongitude()).isCloseTo(-0.1867, within(1e-9));
+        assertThat(pair.getCategoryCounts()).containsExactly(1, 1);
+        assertThat(pair.getPointId()).isEqualTo(-1);
+        ClusterIndex.Cluster lone = clusters.stream().filter(cluster -> cluster.getCount() == 1).findFirst().orElseThrow();
+        assertThat(lone.getPointId()).isEqualTo(3);
+        assertThat(lone.getLatitude()).isEqualTo(5.7000);
+        assertThat(lone.getLongitude()).isEqualTo(-0.1500);
+    }
+
+    @Test
+    void putMovesAndRecategorisesAnIndexedPoint() {
+        ClusterIndex index = new ClusterIndex(17, 60, 2);
+        index.put(1, 5.6484, -0.1864, 0);
+        index.put(2, 5.6490, -0.1870, 0);
+
+        index.put(2, 5.7000, -0.1500, 1);
+        List<ClusterIndex.Cluster> clusters = index.clusters(WEST, SOUTH, EAST, NORTH, 13);
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(clusters).extracting(ClusterIndex.Cluster::getPointId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.remove(2)).isTrue();
+        assertThat(index.remove(2)).isFalse();
+        assertThat(index.clusters(WEST, SOUTH, EAST, NORTH, 0)).singleElement()
+                .satisfies(cluster -> assertThat(cluster.getCategoryCounts()).containsExactly(1, 0));
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        ClusterIndex original = new ClusterIndex(17, 60, 2);
+        original.put(1, 5.6484, -0.1864, 0);
+        original.put(2, 5.6490, -0.1870, 1);
+        ClusterIndex copy = original.copy();
+
+        copy.remove(1);
+        copy.put(2, 5.7000, -0.1500, 0);
+        original.put(3, 5.6485, -0.1865, 1);
+
+        assertThat(original.clusters(WEST, SOUTH, EAST, NORTH, 13)).singleElement()
+                .satisfies(cluster -> assertThat(cluster.getCategoryCounts()).containsExactly(1, 2));
+        assertThat(copy.clusters(WEST, SOUTH, EAST, NORTH, 13)).singleElement()
+                .satisfies(cluster -> {
+                    assertThat(cluster.getPointId()).isEqualTo(2);
+                    assertThat(cluster.getLatitude()).isEqualTo(5.7000);
+                });
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        assertThatThrownBy(() -> new ClusterIndex(21, 60, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ClusterIndex(17, 0, 1)).isInstanceOf(IllegalArgumentException.class);
+        ClusterIndex index = new ClusterIndex(17, 60, 2);
+        assertThatThrownBy(() -> index.put(1, 5.6484, -0.1864, 2)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(index.size()).isZero();
+    }
+}
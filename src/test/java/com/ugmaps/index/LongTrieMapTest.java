@@ -0,0 +1,101 @@
+package com.ugmaps.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongTrieMapTest {
+
+    @Test
+    void behavesLikeAHashMap() {
+        Random random = new Random(21);
+        LongTrieMap<Long> map = new LongTrieMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(map.put(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+            }
+            assertThat(map.size()).isEqualTo(expected.size());
+        }
+
+        assertContains(map, expected);
+        assertThat(map.get(Long.MIN_VALUE + 12345)).isNull();
+        assertThat(map.remove(Long.MIN_VALUE + 12345)).isNull();
+    }
+
+    @Test
+    void copiesShareNothingVisible() {
+        Random random = new Random(4);
+        LongTrieMap<Long> original = new LongTrieMap<>();
+        Map<Long, Long> originalExpected = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            long key = randomKey(random);
+            original.put(key, (long) i);
+            originalExpected.put(key, (long) i);
+        }
+        LongTrieMap<Long> copy = original.copy();
+        Map<Long, Long> copyExpected = new HashMap<>(originalExpected);
+
+        // Change both sides, including removing every key of some shared subtrees
+        for (Long key : originalExpected.keySet().toArray(new Long[0])) {
+            if (random.nextBoolean()) {
+                copy.remove(key);
+                copyExpected.remove(key);
+            }
+            if (random.nextInt(4) == 0) {
+                original.put(key, -key);
+                originalExpected.put(key, -key);
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            long key = randomKey(random);
+            copy.put(key, (long) i);
+            copyExpected.put(key, (long) i);
+        }
+
+        assertContains(original, originalExpected);
+        assertContains(copy, copyExpected);
+    }
+
+    @Test
+    void emptiedMapIsEmpty() {
+        LongTrieMap<String> map = new LongTrieMap<>();
+        map.put(0L, "zero");
+        map.put(-1L, "minus one");
+        map.put(Long.MAX_VALUE, "max");
+        LongTrieMap<String> copy = map.copy();
+
+        map.remove(0L);
+        map.remove(-1L);
+        map.remove(Long.MAX_VALUE);
+
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.containsKey(0L)).isFalse();
+        assertThat(copy.size()).isEqualTo(3);
+        assertThat(copy.get(-1L)).isEqualTo("minus one");
+    }
+
+    // Dense small ids, as database ids are, mixed with keys spread over the whole range
+    private static long randomKey(Random random) {
+        return random.nextBoolean() ? random.nextInt(3_000) : random.nextLong();
+    }
+
+    private static void assertContains(LongTrieMap<Long> map, Map<Long, Long> expected) {
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+            assertThat(map.containsKey(entry.getKey())).isTrue();
+        }
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach((value, key) -> visited.put(key, value));
+        assertThat(visited).isEqualTo(expected);
+    }
+}
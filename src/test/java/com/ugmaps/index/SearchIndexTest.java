@@ -0,0 +1,112 @@
+package com.ugmaps.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchIndexTest {
+
+    @Test
+    void tokenizesIntoLowerCaseAccentFreeWords() {
+        assertThat(SearchIndex.tokenize("Café  Légon-Hall, Block 2B"))
+                .containsExactly("cafe", "legon", "hall", "block", "2b");
+        assertThat(SearchIndex.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Great Hall", "Assembly venue near the library");
+        index.put(2, "Balme Library", "Main university library");
+        index.put(3, "Night Market", "Food stalls");
+
+        assertThat(index.search("library", 10)).containsExactly(2, 1);
+    }
+
+    @Test
+    void rarerTermsWeighMore() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Science Block", "Chemistry labs");
+        index.put(2, "Arts Block", "Lecture rooms");
+        index.put(3, "Law Block", "Lecture rooms");
+        index.put(4, "Business Block", "Lecture rooms");
+
+        // "block" is in every document, "chemistry" in one: the inverse document frequency decides
+        assertThat(index.search("block chemistry", 10)[0]).isEqualTo(1);
+    }
+
+    @Test
+    void shorterFieldsScoreHigherForTheSameFrequency() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Hall", null);
+        index.put(2, "Hall of the Faculty of Social Sciences", null);
+
+        assertThat(index.search("hall", 10)).containsExactly(1, 2);
+    }
+
+    @Test
+    void matchesPrefixesBelowWholeTerms() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Library Annex", null);
+        index.put(2, "Lib", null);
+
+        assertThat(index.search("lib", 10)).containsExactly(2, 1);
+    }
+
+    @Test
+    void matchesInfixesThroughTrigrams() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Commonwealth Hall", null);
+        index.put(2, "Volta Hall", null);
+
+        assertThat(index.search("wealth", 10)).containsExactly(1);
+        assertThat(index.search("olta", 10)).containsExactly(2);
+        // Shorter than a trigram: prefix matches only
+        assertThat(index.search("lt", 10)).isEmpty();
+    }
+
+    @Test
+    void replacedAndRemovedDocumentsLeaveNoTerms() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Old Name", null);
+        index.put(1, "New Name", null);
+
+        assertThat(index.search("old", 10)).isEmpty();
+        assertThat(index.search("new", 10)).containsExactly(1);
+        assertThat(index.remove(1)).isTrue();
+        assertThat(index.search("name", 10)).isEmpty();
+        // Nor through the trigrams of the removed terms
+        assertThat(index.search("ame", 10)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void copiesDoNotSeeEachOthersChanges() {
+        SearchIndex original = new SearchIndex();
+        for (int i = 0; i < 1000; i++) {
+            original.put(i, "Room " + i, "Block " + (char) ('A' + i % 26));
+        }
+        SearchIndex copy = original.copy();
+        copy.put(5000, "Roomba Store", null);
+        copy.remove(7);
+
+        assertThat(copy.search("roomba", 10)).containsExactly(5000L);
+        assertThat(original.search("roomba", 10)).isEmpty();
+        // "7" is also a prefix of 70, 700...; the exact match ranks first where it still exists
+        assertThat(original.search("7", 1)).containsExactly(7L);
+        assertThat(copy.search("7", 1000)).doesNotContain(7L).contains(70L);
+        assertThat(original.size()).isEqualTo(1000);
+        assertThat(copy.size()).isEqualTo(1000);
+    }
+
+    @Test
+    void limitsAndTiesAreDeterministic() {
+        SearchIndex index = new SearchIndex();
+        for (int i = 10; i > 0; i--) {
+            index.put(i, "Lecture Theatre", null);
+        }
+
+        assertThat(index.search("lecture", 3)).containsExactly(1, 2, 3);
+        assertThat(index.search("lecture", 0)).isEmpty();
+    }
+}
@@ -0,0 +1,125 @@
+package com.ugmaps.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SpatialIndexTest {
+
+    @Test
+    void nearestMatchesBruteForce() {
+        Random random = new Random(3);
+        SpatialIndex index = new SpatialIndex(0.001);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            double[] point = {5.64 + random.nextDouble() * 0.02, -0.20 + random.nextDouble() * 0.02, random.nextInt(3)};
+            points.add(point);
+            index.put(i, point[0], point[1], (int) point[2]);
+        }
+
+        for (int query = 0; query < 200; query++) {
+            double latitude = 5.63 + random.nextDouble() * 0.04;
+            double longitude = -0.21 + random.nextDouble() * 0.04;
+            int k = 1 + random.nextInt(12);
+            double maxRadius = random.nextBoolean() ? Double.MAX_VALUE : random.nextDouble() * 1500;
+            int category = random.nextBoolean() ? SpatialIndex.ANY_CATEGORY : random.nextInt(3);
+            assertMatchesBruteForce(index, points, latitude, longitude, k, maxRadius, category);
+        }
+    }
+
+    @Test
+    void sparseCellsFallBackToScanningEveryOccupiedCell() {
+        // A few points far apart: the rings between them hold many more cells than are occupied
+        Random random = new Random(8);
+        SpatialIndex index = new SpatialIndex(0.0005);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            double[] point = {5.5 + random.nextDouble() * 0.3, -0.3 + random.nextDouble() * 0.3, 0};
+            points.add(point);
+            index.put(i, point[0], point[1]);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            double latitude = 5.4 + random.nextDouble() * 0.5;
+            double longitude = -0.4 + random.nextDouble() * 0.5;
+            assertMatchesBruteForce(index, points, latitude, longitude, 1 + random.nextInt(6), Double.MAX_VALUE,
+                    SpatialIndex.ANY_CATEGORY);
+        }
+    }
+
+    @Test
+    void queryFarOutsideTheOccupiedExtent() {
+        SpatialIndex index = new SpatialIndex(0.001);
+        index.put(1, 5.6484, -0.1864);
+        index.put(2, 5.6490, -0.1870);
+        index.put(3, 5.6470, -0.1875);
+
+        assertThat(index.nearest(6.5, -0.19, 2, Double.MAX_VALUE)).containsExactly(2L, 1L);
+        assertThat(index.nearest(6.5, -0.19, 2, 50_000)).isEmpty();
+    }
+
+    @Test
+    void maxRadiusAndCategoryLimitTheResults() {
+        SpatialIndex index = new SpatialIndex(0.001);
+        index.put(1, 5.6484, -0.1864, 0);
+        index.put(2, 5.6490, -0.1870, 1);
+        index.put(3, 5.6470, -0.1875, 1);
+        long[] ids = new long[3];
+        double[] distances = new double[3];
+
+        assertThat(index.nearest(5.6484, -0.1864, 3, 100)).containsExactly(1L, 2L);
+        int count = index.nearest(5.6484, -0.1864, 3, Double.MAX_VALUE, 1, ids, distances);
+        assertThat(count).isEqualTo(2);
+        assertThat(Arrays.copyOf(ids, count)).containsExactly(2L, 3L);
+        assertThat(distances[0]).isLessThan(distances[1]);
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        SpatialIndex original = new SpatialIndex(0.001);
+        original.put(1, 5.6484, -0.1864);
+        original.put(2, 5.6490, -0.1870);
+        SpatialIndex copy = original.copy();
+
+        assertThat(copy.remove(1, 5.6484, -0.1864)).isTrue();
+        copy.put(3, 5.6485, -0.1865);
+        original.put(4, 5.6483, -0.1863);
+
+        assertThat(original.size()).isEqualTo(3);
+        assertThat(copy.size()).isEqualTo(2);
+        assertThat(original.nearest(5.6484, -0.1864, 3, Double.MAX_VALUE)).containsExactlyInAnyOrder(1L, 2L, 4L);
+        assertThat(copy.nearest(5.6484, -0.1864, 3, Double.MAX_VALUE)).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(original.within(5.6, -0.2, 5.7, -0.1)).containsExactlyInAnyOrder(1L, 2L, 4L);
+    }
+
+    private static void assertMatchesBruteForce(SpatialIndex index, List<double[]> points, double latitude,
+                                                double longitude, int k, double maxRadius, int category) {
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        double[] expected = points.stream()
+                .filter(point -> category == SpatialIndex.ANY_CATEGORY || point[2] == category)
+                .mapToDouble(point -> Math.sqrt(GeoDistance.equirectangularSquared(latitude, longitude, cosLat,
+                        point[0], point[1])))
+                .filter(distance -> distance <= maxRadius)
+                .sorted()
+                .limit(k)
+                .toArray();
+
+        long[] ids = new long[k];
+        double[] distances = new double[k];
+        int count = index.nearest(latitude, longitude, k, maxRadius, category, ids, distances);
+
+        assertThat(count).isEqualTo(expected.length);
+        for (int i = 0; i < count; i++) {
+            double[] point = points.get((int) ids[i]);
+            assertThat(distances[i]).isCloseTo(expected[i], within(1e-6));
+            assertThat(Math.sqrt(GeoDistance.equirectangularSquared(latitude, longitude, cosLat, point[0], point[1])))
+                    .isCloseTo(distances[i], within(1e-6));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ugmaps.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WebMercatorTest {
+
+    @Test
+    void projectsOntoTheUnitSquare() {
+        assertThat(WebMercator.x(-180)).isZero();
+        assertThat(WebMercator.x(0)).isEqualTo(0.5);
+        assertThat(WebMercator.x(180)).isEqualTo(1);
+        assertThat(WebMercator.y(0)).isCloseTo(0.5, within(1e-12));
+        // The square ends at the latitude where the map is as tall as it is wide
+        assertThat(WebMercator.y(WebMercator.MAX_LATITUDE)).isCloseTo(0, within(1e-9));
+        assertThat(WebMercator.y(-WebMercator.MAX_LATITUDE)).isCloseTo(1, within(1e-9));
+    }
+
+    @Test
+    void clampsThePoles() {
+        assertThat(WebMercator.y(90)).isEqualTo(WebMercator.y(WebMercator.MAX_LATITUDE));
+        assertThat(WebMercator.y(-90)).isEqualTo(WebMercator.y(-WebMercator.MAX_LATITUDE));
+    }
+
+    @Test
+    void inverseRoundTrips() {
+        for (double latitude = -85; latitude <= 85; latitude += 8.5) {
+            assertThat(WebMercator.latitude(WebMercator.y(latitude))).isCloseTo(latitude, within(1e-9));
+        }
+        for (double longitude = -180; longitude <= 180; longitude += 22.5) {
+            assertThat(WebMercator.longitude(WebMercator.x(longitude))).isCloseTo(longitude, within(1e-9));
+        }
+    }
+
+    @Test
+    void findsSlippyMapTiles() {
+        assertThat(WebMercator.tileX(0, 0)).isZero();
+        assertThat(WebMercator.tileY(0, 0)).isZero();
+        assertThat(WebMercator.tileX(-0.1278, 10)).isEqualTo(511);
+        assertThat(WebMercator.tileY(51.5074, 10)).isEqualTo(340);
+        assertThat(WebMercator.tileX(-0.1870, 16)).isEqualTo(32733);
+        assertThat(WebMercator.tileY(5.6505, 16)).isEqualTo(31737);
+    }
+
+    @Test
+    void clampsTilesToTheGrid() {
+        // The eastern edge and the poles would otherwise fall one tile outside
+        assertThat(WebMercator.tileX(180, 3)).isEqualTo(7);
+        assertThat(WebMercator.tileY(90, 3)).isZero();
+        assertThat(WebMercator.tileY(-90, 3)).isEqualTo(7);
+    }
+}
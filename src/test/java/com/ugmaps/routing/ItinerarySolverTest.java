@@ -0,0 +1,207 @@
+package com.ugmaps.routing;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ItinerarySolverTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void noStopsIsAnEmptyOptimalWalk() {
+        ItinerarySolver.Solution solution = ItinerarySolver.solve(new double[][] {{0}}, new int[0][], true, 12,
+                pool, 2, deadline(100));
+
+        assertThat(solution.getOrder()).isEmpty();
+        assertThat(solution.getLength()).isZero();
+        assertThat(solution.isOptimal()).isTrue();
+    }
+
+    @Test
+    void heldKarpMatchesBruteForce() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            double[][] points = randomPoints(random, 9);
+            double[][] distances = distances(points);
+            // Nodes 1-5 are single stops, 6-8 the candidates of one type stop
+            int[][] groups = {{1}, {2}, {3}, {4}, {5}, {6, 7, 8}};
+            for (boolean closed : new boolean[] {false, true}) {
+                ItinerarySolver.Solution solution = ItinerarySolver.solve(distances, groups, closed, 12, pool, 2,
+                        deadline(1000));
+
+                assertThat(solution.isOptimal()).isTrue();
+                assertValid(solution, distances, groups, closed);
+                assertThat(solution.getLength()).isCloseTo(bruteForce(distances, groups, closed), within(1e-9));
+            }
+        }
+    }
+
+    @Test
+    void localSearchFindsTheConvexTour() {
+        // Points on a circle, shuffled: the only tour without crossings walks around it,
+        // and 2-opt removes every crossing
+        int n = 40;
+        List<double[]> circle = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            circle.add(new double[] {100 * Math.cos(angle), 100 * Math.sin(angle)});
+        }
+        List<double[]> shuffled = new ArrayList<>(circle.subList(1, n));
+        Collections.shuffle(shuffled, new Random(3));
+        shuffled.add(0, circle.get(0));
+        double[][] distances = distances(shuffled.toArray(new double[0][]));
+        int[][] groups = singletonGroups(n);
+
+        ItinerarySolver.Solution solution = ItinerarySolver.solve(distances, groups, true, 0, pool, 2, deadline(2000));
+
+        assertThat(solution.isOptimal()).isFalse();
+        assertValid(solution, distances, groups, true);
+        double perimeter = n * 2 * 100 * Math.sin(Math.PI / n);
+        assertThat(solution.getLength()).isCloseTo(perimeter, within(1e-6));
+    }
+
+    @Test
+    void localSearchMatchesBruteForceOnSmallInstances() {
+        Random random = new Random(11);
+        for (int round = 0; round < 10; round++) {
+            double[][] distances = distances(randomPoints(random, 9));
+            int[][] groups = {{1}, {2}, {3}, {4}, {5}, {6, 7, 8}};
+            for (boolean closed : new boolean[] {false, true}) {
+                // No exact groups allowed, so 2-opt, Or-opt and group re-choice do the work
+                ItinerarySolver.Solution solution = ItinerarySolver.solve(distances, groups, closed, 0, pool, 2,
+                        deadline(500));
+
+                assertThat(solution.isOptimal()).isFalse();
+                assertValid(solution, distances, groups, closed);
+                assertThat(solution.getLength()).isCloseTo(bruteForce(distances, groups, closed), within(1e-9));
+            }
+        }
+    }
+
+    @Test
+    void openWalkAlongALineVisitsStopsInOrder() {
+        // Start at 0 and stops on a line in scrambled node order; the shortest open walk goes straight out
+        double[] positions = {0, 50, 10, 40, 20, 30, 60};
+        double[][] distances = new double[positions.length][positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            for (int j = 0; j < positions.length; j++) {
+                distances[i][j] = Math.abs(positions[i] - positions[j]);
+            }
+        }
+
+        ItinerarySolver.Solution solution = ItinerarySolver.solve(distances, singletonGroups(positions.length), false,
+                0, pool, 2, deadline(500));
+
+        assertThat(solution.getOrder()).containsExactly(2, 4, 5, 3, 1, 6);
+        assertThat(solution.getLength()).isCloseTo(60, within(1e-9));
+    }
+
+    private static void assertValid(ItinerarySolver.Solution solution, double[][] distances, int[][] groups,
+                                    boolean closed) {
+        int[] order = solution.getOrder();
+        assertThat(order).hasSize(groups.length);
+        boolean[] seen = new boolean[groups.length];
+        for (int node : order) {
+            int group = groupOf(groups, node);
+            assertThat(seen[group]).as("group %d visited twice", group).isFalse();
+            seen[group] = true;
+        }
+        assertThat(solution.getLength()).isCloseTo(length(distances, order, closed), within(1e-9));
+    }
+
+    private static int groupOf(int[][] groups, int node) {
+        for (int group = 0; group < groups.length; group++) {
+            for (int member : groups[group]) {
+                if (member == node) {
+                    return group;
+                }
+            }
+        }
+        throw new AssertionError("Node " + node + " is in no group");
+    }
+
+    // Shortest walk over every order of the groups and every choice of node within them
+    private static double bruteForce(double[][] distances, int[][] groups, boolean closed) {
+        return bruteForce(distances, groups, closed, new int[groups.length], new boolean[groups.length], 0);
+    }
+
+    private static double bruteForce(double[][] distances, int[][] groups, boolean closed, int[] order,
+                                     boolean[] used, int depth) {
+        if (depth == groups.length) {
+            return length(distances, order, closed);
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int group = 0; group < groups.length; group++) {
+            if (!used[group]) {
+                used[group] = true;
+                for (int node : groups[group]) {
+                    order[depth] = node;
+                    best = Math.min(best, bruteForce(distances, groups, closed, order, used, depth + 1));
+                }
+                used[group] = false;
+            }
+        }
+        return best;
+    }
+
+    private static double length(double[][] distances, int[] order, boolean closed) {
+        double length = 0;
+        int previous = 0;
+        for (int node : order) {
+            length += distances[previous][node];
+            previous = node;
+        }
+        return closed ? length + distances[previous][0] : length;
+    }
+
+    private static int[][] singletonGroups(int nodes) {
+        int[][] groups = new int[nodes - 1][];
+        for (int i = 1; i < nodes; i++) {
+            groups[i - 1] = new int[] {i};
+        }
+        return groups;
+    }
+
+    private static double[][] randomPoints(Random random, int n) {
+        double[][] points = new double[n][];
+        for (int i = 0; i < n; i++) {
+            points[i] = new double[] {random.nextDouble() * 500, random.nextDouble() * 500};
+        }
+        return points;
+    }
+
+    private static double[][] distances(double[][] points) {
+        double[][] distances = new double[points.length][points.length];
+        for (int i = 0; i < points.length; i++) {
+            for (int j = 0; j < points.length; j++) {
+                distances[i][j] = Math.hypot(points[i][0] - points[j][0], points[i][1] - points[j][1]);
+            }
+        }
+        return distances;
+    }
+
+    private static long deadline(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,179 @@
+package com.ugmaps.routing;
+
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+import com.ugmaps.model.Path;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WalkingGraphTest {
+
+    @Test
+    void aStarMatchesDijkstra() {
+        Random random = new Random(11);
+        Map<Long, Location> locations = randomLocations(random, 60);
+        Map<Long, Path> paths = randomPaths(random, locations, 150);
+        WalkingGraph graph = WalkingGraph.build(new ArrayList<>(locations.values()), new ArrayList<>(paths.values()));
+
+        for (int root = 0; root < graph.nodeCount(); root += 7) {
+            WalkingGraph.ShortestPathTree tree = graph.shortestPathTree(root);
+            for (int source = 0; source < graph.nodeCount(); source++) {
+                WalkingGraph.ShortestPath path = graph.shortestPath(source, root);
+                if (tree.distance(source) == Double.POSITIVE_INFINITY) {
+                    assertThat(path).isNull();
+                } else {
+                    assertThat(path.getDistance()).isCloseTo(tree.distance(source), within(1e-6));
+                    assertThat(path.getNodes()[0]).isEqualTo(source);
+                    assertThat(path.getNodes()[path.getNodes().length - 1]).isEqualTo(root);
+                }
+            }
+        }
+    }
+
+    @Test
+    void patchedGraphMatchesFreshBuild() {
+        Random random = new Random(5);
+        Map<Long, Location> locations = randomLocations(random, 40);
+        Map<Long, Path> paths = randomPaths(random, locations, 90);
+        WalkingGraph graph = WalkingGraph.build(new ArrayList<>(locations.values()), new ArrayList<>(paths.values()));
+        List<Long> hot = List.of(1L, 9L, 17L, 25L);
+        HotRouteTable table = HotRouteTable.build(graph, hot);
+        long nextLocationId = 1000;
+        long nextPathId = 1000;
+
+        for (int round = 0; round < 30; round++) {
+            WalkingGraph.Update update = new WalkingGraph.Update();
+            switch (random.nextInt(5)) {
+                case 0 -> {
+                    Location moved = pick(random, locations);
+                    moved.setLatitude(moved.getLatitude() + (random.nextDouble() - 0.5) * 0.002);
+                    update.putNode(moved.getId(), moved.getLatitude(), moved.getLongitude());
+                }
+                case 1 -> {
+                    Location removed = locations.remove(pick(random, locations).getId());
+                    paths.values().removeIf(path -> path.getFromLocationId().equals(removed.getId())
+                            || path.getToLocationId().equals(removed.getId()));
+                    update.removeNode(removed.getId());
+                }
+                case 2 -> {
+                    Location added = location(nextLocationId++, 5.65 + random.nextDouble() * 0.01,
+                            -0.19 + random.nextDouble() * 0.01);
+                    locations.put(added.getId(), added);
+                    update.putNode(added.getId(), added.getLatitude(), added.getLongitude());
+                    Path path = path(nextPathId++, added.getId(), pick(random, locations).getId());
+                    paths.put(path.getId(), path);
+                    update.putPath(path);
+                }
+                case 3 -> {
+                    Path path = path(nextPathId++, pick(random, locations).getId(), pick(random, locations).getId());
+                    paths.put(path.getId(), path);
+                    update.putPath(path);
+                }
+                default -> {
+                    Path removed = paths.remove(pick(random, paths).getId());
+                    update.removePath(removed.getId());
+                }
+            }
+            WalkingGraph.Patch patch = graph.withChanges(update);
+            graph = patch.getGraph();
+            table = table.update(graph, patch.getChanges(), hot);
+            WalkingGraph fresh = WalkingGraph.build(new ArrayList<>(locations.values()), new ArrayList<>(paths.values()));
+
+            assertThat(graph.locationCount()).isEqualTo(fresh.locationCount());
+            assertThat(graph.edgeCount()).isEqualTo(fresh.edgeCount());
+            for (long root : hot) {
+                int node = graph.indexOf(root);
+                if (node < 0) {
+                    assertThat(fresh.indexOf(root)).isNegative();
+                    continue;
+                }
+                WalkingGraph.ShortestPathTree expected = fresh.shortestPathTree(fresh.indexOf(root));
+                WalkingGraph.ShortestPathTree carried = table.tree(node);
+                for (Location location : locations.values()) {
+                    assertThat(carried.distance(graph.indexOf(location.getId())))
+                            .isCloseTo(expected.distance(fresh.indexOf(location.getId())), within(1e-6));
+                }
+            }
+        }
+    }
+
+    @Test
+    void onlyAffectedTreesAreRecomputed() {
+        Map<Long, Location> locations = new LinkedHashMap<>();
+        for (long id = 1; id <= 4; id++) {
+            locations.put(id, location(id, 5.65, -0.18 + id * 0.001));
+        }
+        List<Path> paths = List.of(path(1, 1L, 2L), path(2, 2L, 3L), path(3, 3L, 4L));
+        WalkingGraph graph = WalkingGraph.build(new ArrayList<>(locations.values()), paths);
+        HotRouteTable table = HotRouteTable.build(graph, List.of(1L));
+
+        // A detour longer than the way round is no shortcut
+        Path detour = path(4, 1L, 4L);
+        detour.setDistance(5000.0);
+        WalkingGraph.Update update = new WalkingGraph.Update();
+        update.putPath(detour);
+        WalkingGraph.Patch patch = graph.withChanges(update);
+        HotRouteTable next = table.update(patch.getGraph(), patch.getChanges(), List.of(1L));
+
+        assertThat(patch.getChanges().size()).isEqualTo(1);
+        assertThat(next.getComputed()).isZero();
+        assertThat(next.find(patch.getGraph().indexOf(4L), patch.getGraph().indexOf(1L)).getNodes()).hasSize(4);
+
+        // A location on the only short way between 1 and 3 goes away
+        update = new WalkingGraph.Update();
+        update.removeNode(2L);
+        patch = patch.getGraph().withChanges(update);
+        next = next.update(patch.getGraph(), patch.getChanges(), List.of(1L));
+
+        assertThat(next.getComputed()).isEqualTo(1);
+        assertThat(next.find(patch.getGraph().indexOf(3L), patch.getGraph().indexOf(1L)).getNodes())
+                .containsExactly(patch.getGraph().indexOf(3L), patch.getGraph().indexOf(4L), patch.getGraph().indexOf(1L));
+        assertThat(patch.getGraph().indexOf(2L)).isNegative();
+    }
+
+    private static Map<Long, Location> randomLocations(Random random, int count) {
+        Map<Long, Location> locations = new LinkedHashMap<>();
+        for (long id = 1; id <= count; id++) {
+            locations.put(id, location(id, 5.65 + random.nextDouble() * 0.01, -0.19 + random.nextDouble() * 0.01));
+        }
+        return locations;
+    }
+
+    private static Map<Long, Path> randomPaths(Random random, Map<Long, Location> locations, int count) {
+        Map<Long, Path> paths = new LinkedHashMap<>();
+        for (long id = 1; id <= count; id++) {
+            Path path = path(id, pick(random, locations).getId(), pick(random, locations).getId());
+            // Some declared lengths above the straight line, as for paths around buildings
+            if (random.nextBoolean()) {
+                path.setDistance(random.nextDouble() * 2000);
+            }
+            paths.put(id, path);
+        }
+        return paths;
+    }
+
+    private static <T> T pick(Random random, Map<Long, T> values) {
+        List<T> list = new ArrayList<>(values.values());
+        return list.get(random.nextInt(list.size()));
+    }
+
+    private static Location location(long id, double latitude, double longitude) {
+        Location location = new Location("Location " + id, null, latitude, longitude, LocationType.LIBRARY);
+        location.setId(id);
+        return location;
+    }
+
+    private static Path path(long id, Long from, Long to) {
+        Path path = new Path("Path " + id, from, to);
+        path.setId(id);
+        return path;
+    }
+}
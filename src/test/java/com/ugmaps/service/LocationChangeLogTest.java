@@ -0,0 +1,152 @@
+package com.ugmaps.service;
+
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationChanges;
+import com.ugmaps.model.LocationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocationChangeLogTest {
+
+    private final Map<Long, Location> locations = new LinkedHashMap<>();
+    private LocationChangeLog log;
+
+    @BeforeEach
+    void seed() {
+        for (long id = 1; id <= 3; id++) {
+            locations.put(id, location(id));
+        }
+        LocationService locationService = mock(LocationService.class);
+        when(locationService.getAllLocations()).thenAnswer(call -> List.copyOf(locations.values()));
+        when(locationService.getLocationsByIds(any())).thenAnswer(call -> Arrays.stream((long[]) call.getArgument(0))
+                .mapToObj(locations::get).filter(Objects::nonNull).toList());
+
+        log = new LocationChangeLog();
+        ReflectionTestUtils.setField(log, "locationService", locationService);
+        ReflectionTestUtils.setField(log, "tombstoneRetention", Duration.ofDays(7));
+        ReflectionTestUtils.setField(log, "maxTombstones", 100);
+        log.seed();
+    }
+
+    @Test
+    void syncFromZeroYieldsEveryLocation() {
+        LocationChanges changes = log.getChangesSince(0, null);
+
+        assertThat(changes.isReset()).isFalse();
+        assertThat(changes.getVersion()).isEqualTo(3);
+        assertThat(ids(changes)).containsExactly(1L, 2L, 3L);
+        assertThat(changes.getDeletions()).isEmpty();
+    }
+
+    @Test
+    void keepsOnlyTheLatestChangePerLocation() {
+        save(2);
+        save(2);
+        save(1);
+
+        assertThat(log.getVersion()).isEqualTo(6);
+        // One entry each, in the order of their latest change
+        assertThat(ids(log.getChangesSince(0, null))).containsExactly(3L, 2L, 1L);
+        assertThat(ids(log.getChangesSince(3, null))).containsExactly(2L, 1L);
+        assertThat(ids(log.getChangesSince(5, null))).containsExactly(1L);
+        assertThat(ids(log.getChangesSince(6, null))).isEmpty();
+    }
+
+    @Test
+    void deletionReplacesEarlierUpsert() {
+        save(3);
+        delete(3);
+
+        LocationChanges changes = log.getChangesSince(3, null);
+        assertThat(changes.isReset()).isFalse();
+        assertThat(ids(changes)).isEmpty();
+        assertThat(changes.getDeletions()).containsExactly(3L);
+    }
+
+    @Test
+    void expiredTombstoneForcesResetOfOlderClients() throws InterruptedException {
+        ReflectionTestUtils.setField(log, "tombstoneRetention", Duration.ofMillis(1));
+        delete(3);
+        Thread.sleep(20);
+
+        // The client at version 3 never saw the deletion, which is gone: it must start over
+        LocationChanges stale = log.getChangesSince(3, null);
+        assertThat(stale.isReset()).isTrue();
+        assertThat(ids(stale)).containsExactly(1L, 2L);
+        assertThat(stale.getDeletions()).isEmpty();
+
+        // A client that already saw it carries on
+        LocationChanges current = log.getChangesSince(4, null);
+        assertThat(current.isReset()).isFalse();
+        assertThat(ids(current)).isEmpty();
+    }
+
+    @Test
+    void tombstonesBeyondTheMaximumAreDropped() {
+        ReflectionTestUtils.setField(log, "maxTombstones", 1);
+        delete(1);
+        delete(2);
+
+        assertThat(log.getChangesSince(3, null).isReset()).isTrue();
+        LocationChanges changes = log.getChangesSince(4, null);
+        assertThat(changes.isReset()).isFalse();
+        assertThat(changes.getDeletions()).containsExactly(2L);
+    }
+
+    @Test
+    void supersededTombstonesDoNotCountTowardsTheMaximum() {
+        ReflectionTestUtils.setField(log, "maxTombstones", 1);
+        delete(2);
+        // Re-created under the same id: the upsert replaces the tombstone
+        locations.put(2L, location(2));
+        log.onLocationChanged(new LocationChangedEvent(2L, null, locations.get(2L)));
+        delete(1);
+
+        LocationChanges changes = log.getChangesSince(3, null);
+        assertThat(changes.isReset()).isFalse();
+        assertThat(ids(changes)).containsExactly(2L);
+        assertThat(changes.getDeletions()).containsExactly(1L);
+    }
+
+    @Test
+    void resetsClientsOfAnotherEpochOrFromTheFuture() {
+        assertThat(log.getChangesSince(3, log.getEpoch()).isReset()).isFalse();
+        assertThat(log.getChangesSince(3, log.getEpoch() - 1).isReset()).isTrue();
+        assertThat(log.getChangesSince(4, null).isReset()).isTrue();
+
+        LocationChanges reset = log.getChangesSince(3, log.getEpoch() - 1);
+        assertThat(ids(reset)).containsExactly(1L, 2L, 3L);
+    }
+
+    private void save(long id) {
+        log.onLocationChanged(new LocationChangedEvent(id, locations.get(id), locations.get(id)));
+    }
+
+    private void delete(long id) {
+        Location previous = locations.remove(id);
+        log.onLocationChanged(new LocationChangedEvent(id, previous, null));
+    }
+
+    private static List<Long> ids(LocationChanges changes) {
+        return changes.getUpserts().stream().map(Location::getId).toList();
+    }
+
+    private static Location location(long id) {
+        Location location = new Location("Location " + id, null, 5.65, -0.18, LocationType.LIBRARY);
+        location.setId(id);
+        return location;
+    }
+}
@@ -0,0 +1,222 @@
+package com.ugmaps.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ugmaps.model.LocationChanges;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocationChangeStreamTest {
+
+    private static final long EPOCH = 42;
+
+    private final AtomicLong version = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LocationChangeStream stream;
+
+    @BeforeEach
+    void start() {
+        LocationChangeLog changeLog = mock(LocationChangeLog.class);
+        when(changeLog.getEpoch()).thenReturn(EPOCH);
+        when(changeLog.getVersion()).thenAnswer(call -> version.get());
+        when(changeLog.getChangesSince(anyLong(), eq(EPOCH))).thenAnswer(call -> {
+            long current = version.get();
+            return new LocationChanges(EPOCH, current, false, List.of(), List.of(current));
+        });
+
+        stream = new LocationChangeStream();
+        ReflectionTestUtils.setField(stream, "changeLog", changeLog);
+        ReflectionTestUtils.setField(stream, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(stream, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(stream, "coalesceWindow", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(stream, "replayEvents", 16);
+        ReflectionTestUtils.setField(stream, "maxPendingBytes", DataSize.ofKilobytes(64));
+        ReflectionTestUtils.setField(stream, "heartbeat", Duration.ofHours(1));
+        ReflectionTestUtils.setField(stream, "retry", Duration.ofSeconds(3));
+        ReflectionTestUtils.setField(stream, "maxDuration", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(stream, "maxSubscribers", 10);
+        stream.start();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        stream.stop();
+    }
+
+    @Test
+    void writeFailureDropsOnlyThatSubscriber() throws Exception {
+        Client gone = subscribe();
+        Client staying = subscribe();
+        gone.output.failing = true;
+
+        change();
+        await(() -> staying.received().contains("\"deletions\":[1]"));
+        awaitFanOut();
+
+        assertThat(gone.output.completed).isTrue();
+        verify(gone.async, atLeastOnce()).complete();
+        assertThat(subscribers()).isEqualTo(1);
+
+        change();
+        await(() -> staying.received().contains("\"deletions\":[2]"));
+        assertThat(staying.received()).contains("id: 42-1", "id: 42-2");
+        verify(staying.async, never()).complete();
+    }
+
+    @Test
+    void containerNoticedDisconnectStopsFanOut() throws Exception {
+        Client gone = subscribe();
+        Client staying = subscribe();
+        String before = gone.received();
+
+        // The container reports the closed connection before any write fails
+        gone.listener.onComplete(new AsyncEvent(gone.async));
+        assertThat(subscribers()).isEqualTo(1);
+        change();
+        await(() -> staying.received().contains("\"deletions\":[1]"));
+        awaitFanOut();
+
+        assertThat(gone.received()).isEqualTo(before);
+    }
+
+    @Test
+    void stalledSubscriberDoesNotHoldBackOthers() throws Exception {
+        Client stalled = subscribe();
+        Client staying = subscribe();
+        stalled.output.ready = false;
+
+        for (int i = 0; i < 3; i++) {
+            change();
+            long expected = version.get();
+            await(() -> staying.received().contains("id: 42-" + expected));
+        }
+
+        assertThat(stalled.received()).doesNotContain("event: changes");
+        // Once the connection drains, the queued events follow in order
+        stalled.output.ready = true;
+        stalled.output.writeListener.onWritePossible();
+        assertThat(stalled.received()).contains("id: 42-1", "id: 42-2", "id: 42-3");
+        assertThat(subscribers()).isEqualTo(2);
+    }
+
+    private void change() {
+        version.incrementAndGet();
+        stream.onLocationChanged(new LocationChangedEvent(version.get(), null, null));
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("locations.stream.subscribers").gauge().value();
+    }
+
+    private Client subscribe() throws Exception {
+        Client client = new Client();
+        stream.subscribe(client.request, client.response, null);
+        // Registered once the client has the id to resume from
+        await(() -> client.received().contains("id: 42-"));
+        return client;
+    }
+
+    // Waits until the fan-out thread has run everything queued so far
+    private void awaitFanOut() throws Exception {
+        ScheduledExecutorService fanOut = (ScheduledExecutorService) ReflectionTestUtils.getField(stream, "fanOut");
+        fanOut.schedule(() -> { }, 10, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 5s").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    // A request whose async context and output stream are stand-ins for one client connection
+    private static final class Client {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        final AsyncContext async = mock(AsyncContext.class);
+        final Output output = new Output();
+        AsyncListener listener;
+
+        Client() throws IOException {
+            when(request.startAsync()).thenReturn(async);
+            when(response.getOutputStream()).thenReturn(output);
+            doAnswer(call -> listener = call.getArgument(0)).when(async).addListener(any());
+            doAnswer(call -> {
+                output.completed = true;
+                return null;
+            }).when(async).complete();
+        }
+
+        String received() {
+            return output.text();
+        }
+    }
+
+    private static final class Output extends ServletOutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        volatile boolean ready = true;
+        volatile boolean failing;
+        volatile boolean completed;
+        WriteListener writeListener;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.writeListener = writeListener;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            bytes.write(b, off, len);
+        }
+
+        synchronized String text() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ugmaps.service;
+
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocationReadModelTest {
+
+    @Test
+    void olderVersionIsUnchangedByWithChanges() {
+        LocationReadModel first = LocationReadModel.build(1, 0, List.of(
+                location(1, "Balme Library", 5.6484, -0.1864, LocationType.LIBRARY),
+                location(2, "Great Hall", 5.6490, -0.1870, LocationType.AUDITORIUM),
+                location(3, "Volta Hall", 5.6470, -0.1875, LocationType.RESIDENTIAL_HALL)), 0.001, 17, 60);
+        List<Location> libraries = first.getByType(LocationType.LIBRARY);
+
+        Location moved = location(2, "Great Hall", 5.6400, -0.1800, LocationType.LIBRARY);
+        LocationReadModel second = first.withChanges(2, 2, List.of(
+                new LocationChangedEvent(2L, first.get(2), moved),
+                new LocationChangedEvent(3L, first.get(3), null),
+                new LocationChangedEvent(4L, null, location(4, "Night Market", 5.6500, -0.1850, LocationType.CAFETERIA))));
+
+        assertThat(first.getVersion()).isEqualTo(1);
+        assertThat(first.size()).isEqualTo(3);
+        assertThat(first.get(2).getLatitude()).isEqualTo(5.6490);
+        assertThat(first.get(2).getType()).isEqualTo(LocationType.AUDITORIUM);
+        assertThat(first.contains(3)).isTrue();
+        assertThat(first.contains(4)).isFalse();
+        assertThat(first.getByType(LocationType.LIBRARY)).isSameAs(libraries).extracting(Location::getId)
+                .containsExactly(1L);
+        assertThat(first.nearest(5.6490, -0.1870, null, 1, 10)).containsExactly(2L);
+        assertThat(first.search("volta", 10)).containsExactly(3L);
+
+        assertThat(second.size()).isEqualTo(3);
+        assertThat(second.get(2).getLatitude()).isEqualTo(5.6400);
+        assertThat(second.getByType(LocationType.LIBRARY)).extracting(Location::getId).containsExactly(1L, 2L);
+        assertThat(second.nearest(5.6490, -0.1870, null, 1, 10)).isEmpty();
+        assertThat(second.search("volta", 10)).isEmpty();
+        assertThat(second.contains(4)).isTrue();
+    }
+
+    @Test
+    void locationsCannotBeChangedThroughTheReadModel() {
+        Location row = location(1, "Balme Library", 5.6484, -0.1864, LocationType.LIBRARY);
+        LocationReadModel model = LocationReadModel.build(1, 0, List.of(row), 0.001, 17, 60);
+
+        // The saved entity is copied, not shared
+        row.setName("Renamed");
+        assertThat(model.get(1).getName()).isEqualTo("Balme Library");
+
+        Location published = model.get(1);
+        assertThatThrownBy(() -> published.setLatitude(0.0)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> published.setName("Renamed")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(model.getAll().get(0).getLatitude()).isEqualTo(5.6484);
+    }
+
+    private static Location location(long id, String name, double latitude, double longitude, LocationType type) {
+        Location location = new Location(name, null, latitude, longitude, type);
+        location.setId(id);
+        return location;
+    }
+}
@@ -0,0 +1,89 @@
+package com.ugmaps.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ugmaps.model.Location;
+import com.ugmaps.model.LocationFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationRecordReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void quotedFieldsMayHoldCommasQuotesAndLineBreaks() throws IOException {
+        List<String> read = readAll(LocationFormat.CSV, 200, "name,description,latitude,longitude,type\n"
+                + "\"Balme Library\",\"Books, journals\nand \"\"more\"\"\",5.6484,-0.1864,LIBRARY\n"
+                + "Great Hall,,5.649,-0.187,AUDITORIUM\n");
+
+        assertThat(read).containsExactly("Balme Library", "Great Hall");
+    }
+
+    @Test
+    void unterminatedQuoteIsReportedAndReadingResumes() throws IOException {
+        StringBuilder body = new StringBuilder("name,description,latitude,longitude,type\n");
+        body.append("Balme Library,\"never closed,5.6484,-0.1864,LIBRARY\n");
+        for (int i = 0; i < 20; i++) {
+            body.append("Swallowed ").append(i).append(",,5.649,-0.187,AUDITORIUM\n");
+        }
+        body.append("Volta Hall,,5.647,-0.1875,RESIDENTIAL_HALL\n");
+
+        List<String> read = readAll(LocationFormat.CSV, 200, body.toString());
+
+        // The broken record and what it swallowed up to the limit are one error; later lines import
+        assertThat(read.get(0)).startsWith("1: Record longer than 200 characters");
+        assertThat(read).contains("Volta Hall");
+        assertThat(read).hasSizeLessThan(22);
+    }
+
+    @Test
+    void recordOfExactlyTheLimitIsAccepted() throws IOException {
+        String row = "Great Hall,5.649,-0.187,AUDITORIUM";
+        List<String> read = readAll(LocationFormat.CSV, row.length(),
+                "name,latitude,longitude,type\n" + row + "\n" + row + "\r\n");
+
+        assertThat(read).containsExactly("Great Hall", "Great Hall");
+    }
+
+    @Test
+    void overlongJsonLineIsReportedAndReadingResumes() throws IOException {
+        String hall = "{\"name\":\"Great Hall\",\"latitude\":5.649,\"longitude\":-0.187,\"type\":\"AUDITORIUM\"}";
+        String padded = "{\"name\":\"Balme Library\",\"description\":\"" + "x".repeat(500)
+                + "\",\"latitude\":5.6484,\"longitude\":-0.1864,\"type\":\"LIBRARY\"}";
+
+        List<String> read = readAll(LocationFormat.NDJSON, 200, padded + "\n" + hall + "\n");
+
+        assertThat(read).hasSize(2);
+        assertThat(read.get(0)).startsWith("1: Record longer than 200 characters");
+        assertThat(read.get(1)).isEqualTo("Great Hall");
+    }
+
+    // Names of the records read, or "<record number>: <error>" for rejected ones
+    private List<String> readAll(LocationFormat format, int maxRecordLength, String body) throws IOException {
+        List<String> read = new ArrayList<>();
+        try (LocationRecordReader reader = LocationRecordReader.open(format,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), objectMapper, maxRecordLength)) {
+            while (true) {
+                Location location;
+                try {
+                    location = reader.next();
+                } catch (IllegalArgumentException e) {
+                    read.add(reader.getRecordNumber() + ": " + e.getMessage());
+                    continue;
+                }
+                if (location == null) {
+                    return read;
+                }
+                read.add(location.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ugmaps.tiles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TilePyramidTest {
+
+    @Test
+    void wholeWorldHasFourTimesTheTilesPerZoom() {
+        TilePyramid pyramid = new TilePyramid(-90, -180, 90, 180, 0, 3);
+
+        assertThat(pyramid.getTileCount()).isEqualTo(1 + 4 + 16 + 64);
+        assertThat(pyramid.getMaxX(3)).isEqualTo(7);
+        assertThat(pyramid.getMaxY(3)).isEqualTo(7);
+    }
+
+    @Test
+    void indexesEveryTileOnceAndDensely() {
+        TilePyramid pyramid = new TilePyramid(5.63, -0.21, 5.67, -0.17, 12, 16);
+        Set<Integer> indexes = new HashSet<>();
+        for (int zoom = pyramid.getMinZoom(); zoom <= pyramid.getMaxZoom(); zoom++) {
+            for (int y = pyramid.getMinY(zoom); y <= pyramid.getMaxY(zoom); y++) {
+                for (int x = pyramid.getMinX(zoom); x <= pyramid.getMaxX(zoom); x++) {
+                    assertThat(indexes.add(pyramid.indexOf(zoom, x, y))).isTrue();
+                }
+            }
+        }
+
+        assertThat(indexes).hasSize(pyramid.getTileCount());
+        assertThat(indexes).allSatisfy(index -> assertThat(index).isBetween(0, pyramid.getTileCount() - 1));
+    }
+
+    @Test
+    void rowsAreNumberedFromTheNorth() {
+        TilePyramid pyramid = new TilePyramid(5.63, -0.21, 5.67, -0.17, 16, 16);
+
+        assertThat(pyramid.getMinY(16)).isLessThanOrEqualTo(pyramid.getMaxY(16));
+        assertThat(pyramid.contains(16, 32733, 31737)).isTrue();
+    }
+
+    @Test
+    void tilesOutsideThePyramidHaveNoIndex() {
+        TilePyramid pyramid = new TilePyramid(5.63, -0.21, 5.67, -0.17, 12, 16);
+
+        assertThat(pyramid.indexOf(11, pyramid.getMinX(12) / 2, pyramid.getMinY(12) / 2)).isEqualTo(-1);
+        assertThat(pyramid.indexOf(17, 2 * pyramid.getMinX(16), 2 * pyramid.getMinY(16))).isEqualTo(-1);
+        assertThat(pyramid.contains(16, pyramid.getMaxX(16) + 1, pyramid.getMinY(16))).isFalse();
+        assertThat(pyramid.contains(16, pyramid.getMinX(16), pyramid.getMinY(16) - 1)).isFalse();
+    }
+
+    @Test
+    void reportsCountsBeyondAnInt() {
+        assertThat(new TilePyramid(-90, -180, 90, 180, 0, 17).getTileCount()).isEqualTo(-1);
+    }
+
+    @Test
+    void rejectsInvalidZoomRanges() {
+        assertThatThrownBy(() -> new TilePyramid(0, 0, 1, 1, 5, 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TilePyramid(0, 0, 1, 1, -1, 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TilePyramid(0, 0, 1, 1, 0, 31)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,196 @@
+package com.ugmaps.tiles;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VectorTileEncoderTest {
+
+    @Test
+    void emptyTileHasNoBytes() {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096);
+
+        assertThat(encoder.isEmpty()).isTrue();
+        assertThat(encoder.encode()).isEmpty();
+    }
+
+    @Test
+    void encodesLayerHeader() {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096);
+        encoder.addPoint("locations", 7, 10, 20, Map.of());
+
+        List<Field> tile = decode(encoder.encode());
+        assertThat(tile).extracting(field -> field.number).containsExactly(3);
+        List<Field> layer = decode(tile.get(0).bytes);
+        assertThat(varint(layer, 15)).isEqualTo(2);
+        assertThat(string(layer, 1)).isEqualTo("locations");
+        assertThat(varint(layer, 5)).isEqualTo(4096);
+    }
+
+    @Test
+    void encodesPointGeometry() {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096);
+        // Points in the rendering buffer may lie outside the tile
+        encoder.addPoint("locations", 7, 25, -3, Map.of());
+
+        List<Field> feature = decode(only(decode(only(decode(encoder.encode()), 3).bytes), 2).bytes);
+        assertThat(varint(feature, 1)).isEqualTo(7);
+        assertThat(varint(feature, 3)).isEqualTo(1);
+        // MoveTo with a count of one, then the zigzag-encoded coordinates
+        assertThat(packed(feature, 4)).containsExactly(9L, 50L, 5L);
+        assertThat(feature).extracting(field -> field.number).doesNotContain(2);
+    }
+
+    @Test
+    void omitsNegativeIds() {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096);
+        encoder.addPoint("clusters", -1, 0, 0, Map.of());
+
+        List<Field> feature = decode(only(decode(only(decode(encoder.encode()), 3).bytes), 2).bytes);
+        assertThat(feature).extracting(field -> field.number).doesNotContain(1);
+    }
+
+    @Test
+    void sharesKeysAndValuesWithinALayer() {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096);
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("name", "Balme Library");
+        first.put("type", "LIBRARY");
+        first.put("count", 3);
+        first.put("note", null);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("type", "LIBRARY");
+        second.put("count", 3L);
+        second.put("score", 0.5);
+        second.put("open", true);
+        encoder.addPoint("locations", 1, 0, 0, first);
+        encoder.addPoint("locations", 2, 0, 0, second);
+
+        List<Field> layer = decode(only(decode(encoder.encode()), 3).bytes);
+        List<String> keys = all(layer, 3).stream().map(Field::string).toList();
+        assertThat(keys).containsExactly("name", "type", "count", "score", "open");
+        List<List<Field>> values = all(layer, 4).stream().map(field -> decode(field.bytes)).toList();
+        assertThat(values).hasSize(5);
+        assertThat(string(values.get(0), 1)).isEqualTo("Balme Library");
+        assertThat(string(values.get(1), 1)).isEqualTo("LIBRARY");
+        // Integers of any width are one sint64 value
+        assertThat(varint(values.get(2), 6)).isEqualTo(6);
+        assertThat(Double.longBitsToDouble(only(values.get(3), 3).value)).isEqualTo(0.5);
+        assertThat(varint(values.get(4), 7)).isEqualTo(1);
+
+        List<Field> features = all(layer, 2);
+        // Key and value indexes in pairs; the null note is skipped
+        assertThat(packed(decode(features.get(0).bytes), 2)).containsExactly(0L, 0L, 1L, 1L, 2L, 2L);
+        assertThat(packed(decode(features.get(1).bytes), 2)).containsExactly(1L, 1L, 2L, 2L, 3L, 3L, 4L, 4L);
+    }
+
+    @Test
+    void keepsLayersApart() {
+        VectorTileEncoder encoder = new VectorTileEncoder(512);
+        encoder.addPoint("locations", 1, 0, 0, Map.of("type", "HALL"));
+        encoder.addPoint("clusters", -1, 0, 0, Map.of("count", 12));
+        encoder.addPoint("locations", 2, 0, 0, Map.of("type", "HALL"));
+
+        List<Field> tile = decode(encoder.encode());
+        assertThat(tile).hasSize(2);
+        List<Field> locations = decode(tile.get(0).bytes);
+        List<Field> clusters = decode(tile.get(1).bytes);
+        assertThat(string(locations, 1)).isEqualTo("locations");
+        assertThat(all(locations, 2)).hasSize(2);
+        assertThat(all(locations, 3)).extracting(Field::string).containsExactly("type");
+        assertThat(string(clusters, 1)).isEqualTo("clusters");
+        assertThat(all(clusters, 3)).extracting(Field::string).containsExactly("count");
+        assertThat(varint(clusters, 5)).isEqualTo(512);
+    }
+
+    // Just enough of the protobuf wire format to read back what the encoder writes
+
+    private static final class Field {
+        final int number;
+        final long value;
+        final byte[] bytes;
+
+        Field(int number, long value, byte[] bytes) {
+            this.number = number;
+            this.value = value;
+            this.bytes = bytes;
+        }
+
+        String string() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<Field> decode(byte[] message) {
+        List<Field> fields = new ArrayList<>();
+        int[] position = {0};
+        while (position[0] < message.length) {
+            long key = readVarint(message, position);
+            int number = (int) (key >>> 3);
+            switch ((int) (key & 0x7)) {
+                case 0 -> fields.add(new Field(number, readVarint(message, position), null));
+                case 1 -> {
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits |= (message[position[0]++] & 0xFFL) << (8 * i);
+                    }
+                    fields.add(new Field(number, bits, null));
+                }
+                case 2 -> {
+                    int length = (int) readVarint(message, position);
+                    byte[] bytes = Arrays.copyOfRange(message, position[0], position[0] + length);
+                    position[0] += length;
+                    fields.add(new Field(number, 0, bytes));
+                }
+                default -> throw new AssertionError("Unexpected wire type in key " + key);
+            }
+        }
+        return fields;
+    }
+
+    private static long readVarint(byte[] message, int[] position) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = message[position[0]++];
+            value |= (b & 0x7FL) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static List<Field> all(List<Field> fields, int number) {
+        return fields.stream().filter(field -> field.number == number).toList();
+    }
+
+    private static Field only(List<Field> fields, int number) {
+        List<Field> matching = all(fields, number);
+        assertThat(matching).hasSize(1);
+        return matching.get(0);
+    }
+
+    private static long varint(List<Field> fields, int number) {
+        return only(fields, number).value;
+    }
+
+    private static String string(List<Field> fields, int number) {
+        return only(fields, number).string();
+    }
+
+    private static List<Long> packed(List<Field> fields, int number) {
+        byte[] bytes = only(fields, number).bytes;
+        List<Long> values = new ArrayList<>();
+        int[] position = {0};
+        while (position[0] < bytes.length) {
+            values.add(readVarint(bytes, position));
+        }
+        return values;
+    }
+}